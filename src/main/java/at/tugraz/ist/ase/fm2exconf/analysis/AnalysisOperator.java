@@ -18,6 +18,7 @@ import org.chocosolver.solver.constraints.Constraint;
 import org.chocosolver.solver.variables.BoolVar;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import static at.tugraz.ist.ase.fm2exconf.core.Feature.AnomalyType.*;
 import static at.tugraz.ist.ase.fm2exconf.core.Utilities.*;
@@ -28,19 +29,701 @@ import static at.tugraz.ist.ase.fm2exconf.core.Utilities.*;
  * @author Viet-Man Le (vietman.le@ist.tugraz.at)
  */
 public class AnalysisOperator {
+
+    /**
+     * When the diagnoses of the anomalies are computed.
+     */
+    public enum ExplanationMode {
+        EAGER, // during the detection, the explanations are shown with the anomalies
+        LAZY, // only when requested, see {@link #explain(Anomaly)}
+        BACKGROUND // by a background thread after the detection, or earlier when requested
+    }
+
     private ChocoModel model;
     private FeatureModel featureModel;
 
     private MainWindowController controller;
 
+    // number of workers which run the checks of features,
+    // 1 runs the checks sequentially on the model
+    private int numOfThreads = 1;
+    private ExecutorService executor;
+    // models of the workers, each worker owns one model while running a check
+    private BlockingQueue<ChocoModel> models;
+
+    // skip the dead and full mandatory checks of features covered by witnesses
+    private boolean witnessPruning = false;
+    private WitnessTracker witnessTracker;
+
+    // the solver which checks the consistency
+    private SolverBackend.Type backendType = SolverBackend.Type.CHOCO;
+
+    // settle the checks by the propagation before the full search
+    private boolean tieredChecks = false;
+
+    // the consistency checker of each model, which caches the checks of the diagnoses
+    private int cacheSize = ConsistencyChecker.DEFAULT_CACHE_SIZE;
+    private Map<ChocoModel, ConsistencyChecker> checkers;
+
+    // number of workers which run the speculative checks of the parallel FastDiag,
+    // 1 computes the diagnoses sequentially
+    private int numOfDiagnosisThreads = 1;
+    private int lookAhead = ParallelFastDiag.DEFAULT_LOOK_AHEAD;
+    // expand each level of the diagnosis tree in parallel instead of the speculative checks
+    private boolean parallelExpansion = false;
+    private ExecutorService diagnosisExecutor;
+    private BlockingQueue<ParallelFastDiag.Worker> diagnosisWorkers;
+    private long numOfSpeculativeChecks = 0;
+    private long numOfSpeculativeHits = 0;
+
+    // the algorithm of the diagnoses, or the candidates of the selector if the strategy is automatic
+    private DiagnosisStrategy.Type diagnosisStrategy = DiagnosisStrategy.Type.FASTDIAG_V4;
+    private boolean automaticStrategy = false;
+    // keeps the timings of the strategies across the runs
+    private DiagnosisStrategySelector strategySelector = new DiagnosisStrategySelector();
+
+    // statistics of the HS-tree
+    private long numOfFastDiagCalls = 0;
+    private long numOfReusedLabels = 0;
+    private long numOfClosedNodes = 0;
+    private long numOfPrunedNodes = 0;
+
+    // statistics of the conflict-directed search
+    private long numOfConflicts = 0;
+    private long numOfReusedConflicts = 0;
+
+    // limits of the diagnosis enumeration, 0 means no limit
+    private int maxDiagnoses = 0;
+    private int maxCardinality = 0;
+    private long diagnosisTimeLimit = 0;
+    private long numOfTruncatedEnumerations = 0;
+
+    private ExplanationMode explanationMode = ExplanationMode.EAGER;
+    // the anomalies of the last run in the order of the detection
+    private List<Anomaly> anomalies = new ArrayList<>();
+    private ExecutorService explanationExecutor;
+    // the model is used by one run or one explanation at a time
+    private final Object modelLock = new Object();
+
+    // compute the diagnoses once for each cluster of dead or full mandatory features
+    private boolean rootCauseGrouping = false;
+    private RootCauseGrouping rootCauses;
+    private long numOfGroupedAnomalies = 0;
+    private long numOfRootCauses = 0;
+
+    // infer the core and dead features from the structure before the solver checks
+    private boolean structuralInference = false;
+    private StructuralInference inference;
+
+    // compute the backbone on a model reduced to the classes of equivalent features
+    private boolean preprocessing = false;
+
+    // check the redundancies independently of each other, or reduce to a non-redundant subset
+    private RedundancyDetector.Mode redundancyMode = RedundancyDetector.Mode.NON_REDUNDANT_SUBSET;
+    // check the tree relationships for redundancies, not only the cross-tree constraints
+    private boolean treeRedundancies = false;
+
+    // derive the dead, full mandatory and false optional features from the backbone
+    private boolean backboneAnalysis = false;
+    private Backbone backbone;
+
+    // the limits of each check and the budget of a run, shared by the backends of all models
+    private CheckLimits checkLimits = new CheckLimits();
+    // the checked items of the last run whose checks are stopped by a limit
+    private List<String> undecided = Collections.synchronizedList(new ArrayList<>());
+    // the statistics of the last run
+    private List<String> statistics = Collections.synchronizedList(new ArrayList<>());
+
+    // the search of the Choco checks, and the searches of the checks of the anomaly types
+    private SearchProfile searchProfile = SearchProfile.DEFAULT;
+    private Map<Feature.AnomalyType, SearchProfile> searchProfiles = new EnumMap<>(Feature.AnomalyType.class);
+
     public AnalysisOperator(FeatureModel fm, MainWindowController controller) {
+        this(fm, controller, true);
+    }
+
+    /**
+     * @param fm - a {@link FeatureModel}
+     * @param controller - the controller which shows the results
+     * @param incremental - true if one compiled {@link ChocoModel} with selector literals
+     *                    should serve all checks, false if the constraints should be
+     *                    reposted for each check
+     */
+    public AnalysisOperator(FeatureModel fm, MainWindowController controller, boolean incremental) {
+        this(fm, controller, incremental, ChocoModel.GroupEncoding.PAIRWISE);
+    }
+
+    /**
+     * @param fm - a {@link FeatureModel}
+     * @param controller - the controller which shows the results
+     * @param incremental - true if one compiled {@link ChocoModel} with selector literals
+     *                    should serve all checks, false if the constraints should be
+     *                    reposted for each check
+     * @param groupEncoding - the encoding of the ALTERNATIVE and OR relationships,
+     *                      the {@link ChocoModel.GroupEncoding#LADDER} encoding stays linear
+     *                      in the size of large alternative groups, the {@link ChocoModel.GroupEncoding#NATIVE}
+     *                      encoding has no selector literals, so it falls back to the non-incremental mode
+     */
+    public AnalysisOperator(FeatureModel fm, MainWindowController controller, boolean incremental,
+                            ChocoModel.GroupEncoding groupEncoding) {
         this.featureModel = fm;
         this.controller = controller;
 
-        model = new ChocoModel(fm);
+        model = new ChocoModel(fm, incremental && groupEncoding != ChocoModel.GroupEncoding.NATIVE, groupEncoding);
+    }
+
+    /**
+     * @return true if the checks use one compiled {@link ChocoModel} with selector literals,
+     * which is false with the native group encoding even if the incremental mode is requested
+     */
+    public boolean isIncremental() {
+        return model.isIncremental();
+    }
+
+    public ChocoModel.GroupEncoding getGroupEncoding() {
+        return model.getGroupEncoding();
+    }
+
+    /**
+     * Set the number of workers which run the checks of dead, conditionally dead,
+     * full mandatory and false optional features. Each worker owns its own {@link ChocoModel}.
+     * The results are merged in the order of features, so they are identical to
+     * the results of the sequential checks.
+     *
+     * @param numOfThreads - the number of workers, 1 runs the checks sequentially
+     */
+    public void setNumOfThreads(int numOfThreads) {
+        if (numOfThreads < 1) throw new IllegalArgumentException("The number of threads have to be at least 1!");
+        this.numOfThreads = numOfThreads;
+    }
+
+    public int getNumOfThreads() {
+        return numOfThreads;
+    }
+
+    /**
+     * Set the {@link SolverBackend} which checks the consistency of the models.
+     * The {@link SolverBackend.Type#SAT} backend requires the incremental mode.
+     *
+     * @param backendType - a {@link SolverBackend.Type}
+     */
+    public void setSolverBackend(SolverBackend.Type backendType) {
+        if (backendType == null) throw new NullPointerException("The backend type have to be not null!");
+        this.backendType = backendType;
+    }
+
+    public SolverBackend.Type getSolverBackend() {
+        return backendType;
+    }
+
+    /**
+     * Enable or disable the tiered checks, see {@link TieredBackend}. If enabled, each check
+     * runs only the propagation first, and the full search only if the propagation neither
+     * fails nor fixes all features.
+     *
+     * @param tieredChecks - true to settle the checks by the propagation first
+     */
+    public void setTieredChecks(boolean tieredChecks) {
+        this.tieredChecks = tieredChecks;
+    }
+
+    public boolean isTieredChecks() {
+        return tieredChecks;
+    }
+
+    /**
+     * Set the maximum number of consistency checks of the diagnoses, whose results are cached.
+     * The cache of each model is shared by all diagnoses computed in one run.
+     *
+     * @param cacheSize - the maximum number of cached results, 0 disables the cache
+     */
+    public void setCacheSize(int cacheSize) {
+        if (cacheSize < 0) throw new IllegalArgumentException("The cache size have to be at least 0!");
+        this.cacheSize = cacheSize;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Set the number of workers of the parallel FastDiag, see {@link ParallelFastDiag}.
+     * The workers speculatively run the consistency checks, which the FastDiag recursion
+     * will probably need, each on its own {@link ChocoModel}. The diagnoses are the same
+     * as of the sequential FastDiag. The parallel FastDiag requires the incremental mode.
+     *
+     * @param numOfDiagnosisThreads - the number of workers, 1 computes the diagnoses sequentially
+     */
+    public void setNumOfDiagnosisThreads(int numOfDiagnosisThreads) {
+        if (numOfDiagnosisThreads < 1) throw new IllegalArgumentException("The number of threads have to be at least 1!");
+        this.numOfDiagnosisThreads = numOfDiagnosisThreads;
+    }
+
+    public int getNumOfDiagnosisThreads() {
+        return numOfDiagnosisThreads;
+    }
+
+    /**
+     * Set the look-ahead of the parallel FastDiag, i.e. the maximum number of checks
+     * on each predicted path of the recursion. A look-ahead of n starts up to 2^n - 1 checks.
+     *
+     * @param lookAhead - the look-ahead, 0 disables the speculative checks
+     */
+    public void setLookAhead(int lookAhead) {
+        if (lookAhead < 0) throw new IllegalArgumentException("The look-ahead have to be at least 0!");
+        this.lookAhead = lookAhead;
+    }
+
+    public int getLookAhead() {
+        return lookAhead;
+    }
+
+    /**
+     * Enable or disable the parallel expansion of the diagnosis tree, see {@link LevelParallelFastDiag}.
+     * If enabled, the diagnosis workers compute the FastDiag calls of the children of each level
+     * of the tree in parallel, instead of the speculative checks of a single FastDiag call.
+     * It has no effect with only one diagnosis thread.
+     *
+     * @param parallelExpansion - true to expand the levels of the tree in parallel
+     */
+    public void setParallelExpansion(boolean parallelExpansion) {
+        this.parallelExpansion = parallelExpansion;
+    }
+
+    public boolean isParallelExpansion() {
+        return parallelExpansion;
+    }
+
+    /**
+     * Set the algorithm which finds the diagnoses of the anomalies, see {@link DiagnosisStrategy.Type}.
+     * The default is {@link DiagnosisStrategy.Type#FASTDIAG_V4}. The limits of the enumeration,
+     * see {@link #setMaxDiagnoses(int)}, take precedence over all strategies except
+     * {@link DiagnosisStrategy.Type#QUICKXPLAIN}. The strategy is ignored if it is automatic,
+     * see {@link #setAutomaticStrategy(boolean)}.
+     *
+     * @param diagnosisStrategy - a {@link DiagnosisStrategy.Type}
+     */
+    public void setDiagnosisStrategy(DiagnosisStrategy.Type diagnosisStrategy) {
+        if (diagnosisStrategy == null) throw new NullPointerException("The diagnosis strategy have to be not null!");
+        this.diagnosisStrategy = diagnosisStrategy;
+    }
+
+    public DiagnosisStrategy.Type getDiagnosisStrategy() {
+        return diagnosisStrategy;
+    }
+
+    /**
+     * Enable or disable the automatic selection of the diagnosis strategy. If enabled,
+     * the strategy of each anomaly is selected by the {@link DiagnosisStrategySelector}
+     * from the statistics of the anomaly and the timings of the previous anomalies,
+     * see {@link #getStrategySelector()}.
+     *
+     * @param automaticStrategy - true to select the strategy of each anomaly
+     */
+    public void setAutomaticStrategy(boolean automaticStrategy) {
+        this.automaticStrategy = automaticStrategy;
+    }
+
+    public boolean isAutomaticStrategy() {
+        return automaticStrategy;
+    }
+
+    /**
+     * The selector of the diagnosis strategies records the time of each strategy on each anomaly,
+     * also if the strategy isn't automatic, see {@link DiagnosisStrategySelector#getTimings()}.
+     * Its candidates are set by {@link DiagnosisStrategySelector#setCandidates(java.util.Collection)}.
+     *
+     * @return the selector of the diagnosis strategies
+     */
+    public DiagnosisStrategySelector getStrategySelector() {
+        return strategySelector;
+    }
+
+    /**
+     * Enable or disable the HS-tree enumeration of the diagnoses, see {@link HSTree}.
+     * If enabled, the diagnoses are enumerated with a HS-tree labeled by FastDiag,
+     * which reuses the known diagnoses as labels, closes the nodes with duplicate paths
+     * and prunes the supersets of the paths of leaves. Otherwise, the FastDiag tree of
+     * {@link FastDiagV4} is used. It is a shortcut of {@link #setDiagnosisStrategy(DiagnosisStrategy.Type)}.
+     *
+     * @param hsTree - true to enumerate the diagnoses with the HS-tree
+     */
+    public void setHSTree(boolean hsTree) {
+        setStrategyFlag(DiagnosisStrategy.Type.HS_TREE, hsTree);
+    }
+
+    public boolean isHSTree() {
+        return diagnosisStrategy == DiagnosisStrategy.Type.HS_TREE;
+    }
+
+    /**
+     * Enable or disable the conflict-directed diagnosis search. If enabled, the constraints
+     * of each relationship form one group, the minimal conflicts of the groups are computed
+     * by {@link QuickXplain}, and the diagnoses are enumerated as their minimal hitting sets
+     * by {@link DiagnosisEnumerator#findGroupDiagnoses(List, List)}, which reuses the known
+     * conflicts. The diagnoses are minimal sets of relationships. It is often faster than
+     * FastDiag for heavily over-constrained models, which have few small conflicts but many diagnoses.
+     * It respects the limits of the enumeration. It is a shortcut of {@link #setDiagnosisStrategy(DiagnosisStrategy.Type)}.
+     *
+     * @param conflictDirected - true to search the diagnoses by the conflicts of the relationships
+     */
+    public void setConflictDirected(boolean conflictDirected) {
+        setStrategyFlag(DiagnosisStrategy.Type.QUICKXPLAIN, conflictDirected);
+    }
+
+    public boolean isConflictDirected() {
+        return diagnosisStrategy == DiagnosisStrategy.Type.QUICKXPLAIN;
+    }
+
+    // disabling a strategy restores the default strategy
+    private void setStrategyFlag(DiagnosisStrategy.Type type, boolean enabled) {
+        if (enabled) {
+            diagnosisStrategy = type;
+        } else if (diagnosisStrategy == type) {
+            diagnosisStrategy = DiagnosisStrategy.Type.FASTDIAG_V4;
+        }
+    }
+
+    // true if the strategy could be used by the run
+    private boolean usesStrategy(DiagnosisStrategy.Type type) {
+        return automaticStrategy ? strategySelector.getCandidates().contains(type) : diagnosisStrategy == type;
+    }
+
+    /**
+     * Set the maximum number of diagnoses of each anomaly. If a limit is set, the diagnoses
+     * are enumerated by a {@link DiagnosisEnumerator} in the order of increasing cardinality,
+     * and the explanations say whether the enumeration is truncated.
+     *
+     * @param maxDiagnoses - the maximum number of diagnoses, 0 means no limit
+     */
+    public void setMaxDiagnoses(int maxDiagnoses) {
+        if (maxDiagnoses < 0) throw new IllegalArgumentException("The maximum number of diagnoses have to be at least 0!");
+        this.maxDiagnoses = maxDiagnoses;
+    }
+
+    public int getMaxDiagnoses() {
+        return maxDiagnoses;
+    }
+
+    /**
+     * Set the maximum number of constraints of a diagnosis, see {@link #setMaxDiagnoses(int)}.
+     *
+     * @param maxCardinality - the maximum cardinality, 0 means no limit
+     */
+    public void setMaxCardinality(int maxCardinality) {
+        if (maxCardinality < 0) throw new IllegalArgumentException("The maximum cardinality have to be at least 0!");
+        this.maxCardinality = maxCardinality;
+    }
+
+    public int getMaxCardinality() {
+        return maxCardinality;
+    }
+
+    /**
+     * Set the time limit of the diagnosis enumeration of each anomaly, see {@link #setMaxDiagnoses(int)}.
+     *
+     * @param diagnosisTimeLimit - the time limit in milliseconds, 0 means no limit
+     */
+    public void setDiagnosisTimeLimit(long diagnosisTimeLimit) {
+        if (diagnosisTimeLimit < 0) throw new IllegalArgumentException("The time limit have to be at least 0!");
+        this.diagnosisTimeLimit = diagnosisTimeLimit;
+    }
+
+    public long getDiagnosisTimeLimit() {
+        return diagnosisTimeLimit;
+    }
+
+    private boolean isBoundedEnumeration() {
+        return maxDiagnoses > 0 || maxCardinality > 0 || diagnosisTimeLimit > 0;
+    }
+
+    /**
+     * Set when the diagnoses of the anomalies are computed. With {@link ExplanationMode#LAZY}
+     * and {@link ExplanationMode#BACKGROUND}, the detection only finds the anomalies,
+     * see {@link #getAnomalies()}, and the diagnoses of each anomaly are computed when its
+     * explanations are requested, see {@link #explain(Anomaly)}. The diagnoses are cached.
+     *
+     * @param explanationMode - an {@link ExplanationMode}
+     */
+    public void setExplanationMode(ExplanationMode explanationMode) {
+        if (explanationMode == null) throw new NullPointerException("The explanation mode have to be not null!");
+        this.explanationMode = explanationMode;
+    }
+
+    public ExplanationMode getExplanationMode() {
+        return explanationMode;
+    }
+
+    /**
+     * Enable or disable the root cause grouping, see {@link RootCauseGrouping}.
+     * If enabled, the dead features and the full mandatory features are clustered
+     * by the implications of the relationships, e.g. a dead subtree is one cluster,
+     * and the diagnoses are computed only for the root of each cluster.
+     * The other members share the diagnoses of their root cause.
+     *
+     * @param rootCauseGrouping - true to compute the diagnoses once for each cluster
+     */
+    public void setRootCauseGrouping(boolean rootCauseGrouping) {
+        this.rootCauseGrouping = rootCauseGrouping;
+    }
+
+    public boolean isRootCauseGrouping() {
+        return rootCauseGrouping;
+    }
+
+    /**
+     * Enable or disable the structural inference, see {@link StructuralInference}.
+     * If enabled, the features which are core or dead because of the feature tree
+     * and the requires/excludes constraints are found by a propagation over
+     * the relationships, without a solver. Only the undecided features are checked
+     * by the solver, and the results say which anomalies are inferred and which are solved.
+     * Disabled by default.
+     *
+     * @param structuralInference - true to enable the structural inference
+     */
+    public void setStructuralInference(boolean structuralInference) {
+        this.structuralInference = structuralInference;
+    }
+
+    public boolean isStructuralInference() {
+        return structuralInference;
+    }
+
+    /**
+     * Enable or disable the preprocessing, see {@link FeatureModelReduction}. If enabled,
+     * the backbone is computed on a reduced model with one feature for each class of
+     * equivalent features, i.e. of the atomic sets and the cycles of requires constraints,
+     * and mapped back to the features of the classes. The diagnoses are still computed
+     * on the original model, so they refer to the original relationships.
+     * It has no effect without the backbone analysis.
+     *
+     * @param preprocessing - true to compute the backbone on the reduced model
+     */
+    public void setPreprocessing(boolean preprocessing) {
+        this.preprocessing = preprocessing;
+    }
+
+    public boolean isPreprocessing() {
+        return preprocessing;
+    }
+
+    /**
+     * Set how the redundant relationships and constraints are found, see {@link RedundancyDetector}.
+     * The {@link RedundancyDetector.Mode#NON_REDUNDANT_SUBSET} mode removes the redundancies
+     * one after another, so that all reported ones can be removed together, the cross-tree constraints first.
+     * The {@link RedundancyDetector.Mode#INDEPENDENT} checks don't depend on each other and run on
+     * all workers, but each reported redundancy is only removable alone, e.g. two constraints
+     * which imply each other are both reported. The default is {@link RedundancyDetector.Mode#NON_REDUNDANT_SUBSET}.
+     *
+     * @param redundancyMode - a {@link RedundancyDetector.Mode}
+     */
+    public void setRedundancyMode(RedundancyDetector.Mode redundancyMode) {
+        if (redundancyMode == null) throw new NullPointerException("The redundancy mode have to be not null!");
+        this.redundancyMode = redundancyMode;
+    }
+
+    public RedundancyDetector.Mode getRedundancyMode() {
+        return redundancyMode;
+    }
+
+    /**
+     * Enable or disable the redundancy checks of the tree relationships. Disabled by default.
+     *
+     * @param treeRedundancies - true to check the tree relationships too, false to check only the cross-tree constraints
+     */
+    public void setTreeRedundancies(boolean treeRedundancies) {
+        this.treeRedundancies = treeRedundancies;
+    }
+
+    public boolean isTreeRedundancies() {
+        return treeRedundancies;
+    }
+
+    /**
+     * Enable or disable the witness pruning. If enabled, each solution found by a check
+     * of all constraints is recorded by a {@link WitnessTracker}, and the solver calls
+     * for features which are already true (not dead) or false (not full mandatory)
+     * in a solution are skipped, as well as for pairs of features which are already
+     * true together (not conditionally dead). The tracker also decides the preferred values
+     * of the search. Disabled by default.
+     *
+     * @param witnessPruning - true to enable the witness pruning
+     */
+    public void setWitnessPruning(boolean witnessPruning) {
+        this.witnessPruning = witnessPruning;
+    }
+
+    public boolean isWitnessPruning() {
+        return witnessPruning;
+    }
+
+    /**
+     * Enable or disable the backbone analysis. If enabled, the features which are
+     * always true or always false are computed once by a {@link Backbone}, and the
+     * dead, full mandatory and false optional features are derived from it,
+     * instead of checking each feature separately. The solver is then only called
+     * to compute the diagnoses of the anomalies. Disabled by default.
+     *
+     * @param backboneAnalysis - true to enable the backbone analysis
+     */
+    public void setBackboneAnalysis(boolean backboneAnalysis) {
+        this.backboneAnalysis = backboneAnalysis;
+    }
+
+    public boolean isBackboneAnalysis() {
+        return backboneAnalysis;
+    }
+
+    /**
+     * The limits of the consistency checks, see {@link CheckLimits}. Each check is limited by
+     * the time, the search nodes, the fails and the backtracks, and all checks of a run by the budget.
+     * The result of a check which reaches a limit is unknown, so its feature, constraint or explanation
+     * is undecided instead of being reported as consistent or anomalous, see {@link #getUndecided()}.
+     * The limits are applied by the next run.
+     *
+     * @return the limits of the checks
+     */
+    public CheckLimits getCheckLimits() {
+        return checkLimits;
+    }
+
+    /**
+     * @return the checked items of the last run whose checks are stopped by a limit,
+     * together with the reached limits, in the order of the analysis
+     */
+    public List<String> getUndecided() {
+        synchronized (undecided) {
+            return new ArrayList<>(undecided);
+        }
+    }
+
+    /**
+     * @return the statistics of the last run, e.g. the cache hits, the skipped checks
+     * and the times of the backbone and of the diagnosis strategies, in the order of the analysis
+     */
+    public List<String> getStatistics() {
+        synchronized (statistics) {
+            return new ArrayList<>(statistics);
+        }
+    }
+
+    private void addStatistics(String line) {
+        statistics.add(line);
+    }
+
+    /**
+     * Set the search of the consistency checks with the Choco backend, see {@link SearchProfile}.
+     * It is used by the checks of the anomaly types without an own profile and by the diagnoses.
+     * The profiles don't apply to the SAT backend.
+     *
+     * @param searchProfile - a {@link SearchProfile}
+     */
+    public void setSearchProfile(SearchProfile searchProfile) {
+        if (searchProfile == null) throw new NullPointerException("The search profile have to be not null!");
+        this.searchProfile = searchProfile;
+    }
+
+    public SearchProfile getSearchProfile() {
+        return searchProfile;
     }
 
+    /**
+     * Set the search of the checks of the features of an anomaly type,
+     * e.g. by the winners of the SearchProfileBenchmark.
+     *
+     * @param type - the anomaly type
+     * @param searchProfile - a {@link SearchProfile}, null to use the default profile
+     */
+    public void setSearchProfile(Feature.AnomalyType type, SearchProfile searchProfile) {
+        if (type == null) throw new NullPointerException("The anomaly type have to be not null!");
+        if (searchProfile == null) {
+            searchProfiles.remove(type);
+        } else {
+            searchProfiles.put(type, searchProfile);
+        }
+    }
+
+    public SearchProfile getSearchProfile(Feature.AnomalyType type) {
+        return searchProfiles.getOrDefault(type, searchProfile);
+    }
+
+    /**
+     * Run the analysis of the feature model.
+     *
+     * @return true if the feature model is consistent, false if it is void or its consistency is undecided
+     * @throws FeatureModelException when the analysis fails
+     */
     public boolean run() throws FeatureModelException {
+        stopExplanations();
+        synchronized (modelLock) {
+            anomalies = new ArrayList<>();
+            boolean consistent = runAnalysis();
+
+            if (explanationMode == ExplanationMode.BACKGROUND) {
+                explainInBackground();
+            }
+            return consistent;
+        }
+    }
+
+    private boolean runAnalysis() throws FeatureModelException {
+        witnessTracker = witnessPruning ? new WitnessTracker(featureModel) : null;
+        rootCauses = rootCauseGrouping ? new RootCauseGrouping(featureModel) : null;
+        model.setBackend(createBackend(model));
+        model.setWitnessTracker(witnessTracker);
+        model.setSearchProfile(searchProfile);
+        checkers = new HashMap<>();
+        checkers.put(model, new ConsistencyChecker(model.getBackend(), cacheSize));
+        resetStatistics();
+        undecided.clear();
+        statistics.clear();
+
+        checkLimits.startBudget();
+        startWorkers();
+        try {
+            return analyse();
+        } finally {
+            stopWorkers();
+            checkLimits.endBudget();
+
+            if (witnessTracker != null) {
+                addStatistics("Witnesses: " + witnessTracker.getNumOfWitnesses()
+                        + ", skipped checks: " + witnessTracker.getNumOfSkippedChecks());
+                addStatistics("Pairs covered by witnesses: " + witnessTracker.getNumOfCoveredPairs()
+                        + ", explicitly checked pairs: " + witnessTracker.getNumOfCheckedPairs());
+            }
+            addCacheStatistics();
+            addTierStatistics();
+            if (usesStrategy(DiagnosisStrategy.Type.HS_TREE)) {
+                addStatistics("HS-tree FastDiag calls: " + numOfFastDiagCalls
+                        + ", saved by label reuse: " + numOfReusedLabels
+                        + ", by closing: " + numOfClosedNodes
+                        + ", by subset pruning: " + numOfPrunedNodes);
+            }
+            if (rootCauses != null) {
+                addStatistics("Root causes: " + numOfRootCauses
+                        + " of " + numOfGroupedAnomalies + " dead and full mandatory features");
+            }
+            if (usesStrategy(DiagnosisStrategy.Type.QUICKXPLAIN)) {
+                addStatistics("QuickXplain conflicts: " + numOfConflicts
+                        + ", reused conflicts: " + numOfReusedConflicts);
+            }
+            if (isBoundedEnumeration()) {
+                addStatistics("Truncated diagnosis enumerations: " + numOfTruncatedEnumerations);
+            }
+            if (numOfDiagnosisThreads > 1 && !parallelExpansion) {
+                addStatistics("Speculative checks: " + numOfSpeculativeChecks
+                        + ", checks answered by the look-ahead: " + numOfSpeculativeHits);
+            }
+            addStrategyTimings();
+            if (!checkLimits.isUnlimited()) {
+                addStatistics("Checks stopped by the limits: " + checkLimits.getNumOfStoppedChecks()
+                        + ", undecided items: " + undecided.size());
+            }
+        }
+    }
+
+    private boolean analyse() throws FeatureModelException {
         controller.clearResults();
         boolean consistent;
 
@@ -49,6 +732,12 @@ public class AnalysisOperator {
         consistent = checkConsistency();
 
         if (consistent) {
+            // infer the core and dead features from the structure
+            inference = structuralInference ? inferStructure() : null;
+
+            // compute the backbone
+            backbone = backboneAnalysis ? computeBackbone() : null;
+
             // check dead features
             checkDeadFeatures();
 
@@ -65,6 +754,8 @@ public class AnalysisOperator {
             checkRedundancies();
         }
 
+        showUndecided();
+
         return consistent;
     }
 
@@ -75,9 +766,19 @@ public class AnalysisOperator {
         printConstraints(model);
 
         boolean consistent = true;
+        addStatistics("Group encoding: " + model.getGroupEncoding() + ", " + model.getNbVars() + " variables");
+
+        boolean consistency;
+        try {
+            consistency = model.isConsistent();
+        } catch (CheckLimitException e) {
+            // the other analyses require a consistent feature model
+            addUndecided("Consistency", e);
+            this.controller.addResult("? Consistency: undecided", Color.ORANGE);
+            return false;
+        }
 
-        model.getSolver().reset();
-        if (model.getSolver().solve()) {
+        if (consistency) {
             this.controller.addResult("\u2713 Consistency: ok", Color.BLUE);
 
             // TODO: xu cu nay - Java heap
@@ -95,7 +796,8 @@ public class AnalysisOperator {
 //            System.out.println(model.getNbCstrs());
 //            printConstraints(model);
 
-            List<List<Constraint>> allDiag = calculateAllDiagnoses();
+            String anomaly = "void feature model";
+            List<List<Constraint>> allDiag = calculateAllDiagnoses(model, anomaly);
 
 //            System.out.println("After calculating all diagnoses----------------");
 //            System.out.println(model.getNbCstrs());
@@ -105,9 +807,10 @@ public class AnalysisOperator {
 //            printAllDiagnoses(allDiag);
 
             Map<String, ArrayList<String>> explanations = new LinkedHashMap<>();
-            String anomaly = "void feature model";
             explanations.put(anomaly, new ArrayList<>());
-            createExplanations(allDiag, anomaly, explanations);
+            if (allDiag != null) {
+                createExplanations(allDiag, anomaly, explanations);
+            }
 
 //            addCountingForExplanations(explanations);
 
@@ -123,8 +826,67 @@ public class AnalysisOperator {
         return consistent;
     }
 
+    // INFER THE CORE AND DEAD FEATURES
+    private StructuralInference inferStructure() {
+        StructuralInference inference = new StructuralInference(featureModel);
+        if (!inference.infer()) return null;
+
+        addStatistics("Structural inference: " + inference.getNumOfTrueFeatures() + " true, "
+                + inference.getNumOfFalseFeatures() + " false features");
+        return inference;
+    }
+
+    // COMPUTE THE BACKBONE
+    private Backbone computeBackbone() throws FeatureModelException {
+        Backbone backbone;
+        ChocoModel backboneModel = model;
+        FeatureModelReduction reduction = null;
+        if (preprocessing) {
+            // solve the reduced model with one feature for each class of equivalent features
+            reduction = new FeatureModelReduction(featureModel);
+            reduction.reduce();
+
+            ChocoModel reducedModel = new ChocoModel(reduction.getReducedModel(), model.isIncremental(), model.getGroupEncoding());
+            reducedModel.setBackend(createBackend(reducedModel));
+            reducedModel.setSearchProfile(searchProfile);
+            backbone = new Backbone(reducedModel);
+            backbone.setReduction(reduction);
+            backboneModel = reducedModel;
+
+            addStatistics("Preprocessing: " + featureModel.getNumOfFeatures() + " features to "
+                    + reduction.getNumOfClasses() + " classes (ratio " + String.format("%.2f", reduction.getReductionRatio())
+                    + "), " + reduction.getNumOfRelationships() + " relationships to "
+                    + reduction.getNumOfReducedRelationships() + ", in " + reduction.getTime() / 1000000.0 + " ms");
+        } else {
+            backbone = new Backbone(model);
+        }
+        backbone.setInference(inference);
+
+        long start = System.nanoTime();
+        try {
+            backbone.compute();
+        } catch (CheckLimitException e) {
+            // the features are checked one by one instead
+            backboneModel.resetCstrs();
+            addUndecided("Backbone", e);
+            return null;
+        }
+        long time = System.nanoTime() - start;
+
+        addStatistics("Backbone: " + backbone.getNumOfTrueFeatures() + " true, "
+                + backbone.getNumOfFalseFeatures() + (reduction != null ? " false classes, " : " false features, ")
+                + backbone.getNumOfSolverCalls() + " solver calls, in " + time / 1000000.0 + " ms");
+        if (reduction != null) {
+            // the backbone tries at most one flip for each feature
+            int savedCalls = featureModel.getNumOfFeatures() - reduction.getNumOfClasses();
+            addStatistics("Preprocessing saved up to " + savedCalls + " solver calls, about "
+                    + (savedCalls * time / Math.max(1, backbone.getNumOfSolverCalls())) / 1000000.0 + " ms");
+        }
+        return backbone;
+    }
+
     // CHECK DEAD FEATURES
-    private void checkDeadFeatures() {
+    private void checkDeadFeatures() throws FeatureModelException {
         // Find all dead features
         ArrayList<String> deadfeatures = new ArrayList<>();
         Map<String, ArrayList<String>> explanations = new LinkedHashMap<>();
@@ -133,45 +895,74 @@ public class AnalysisOperator {
 
         // show results
         showAnalysis("Dead feature", deadfeatures);
+        showInferredAnomalies(DEAD);
         showExplanations(explanations);
     }
 
     // Helper functions for checkDeadFeatures
     private void findDeadFeatures(ArrayList<String> deadfeatures,
-                                  Map<String, ArrayList<String>> explanations) {
-        for (int i = 1; i < featureModel.getNumOfFeatures(); i++) {
-            Feature feature = featureModel.getFeature(i);
-            BoolVar v = model.getVarWithName(feature.getName()); // TODO: need try catch
+                                  Map<String, ArrayList<String>> explanations) throws FeatureModelException {
+        Map<Feature, Anomaly> results = runChecks(DEAD, this::checkDeadFeature);
+        groupByRootCause(results.values());
 
-            // add {fi = true}
-            model.addClauseTrue(v);
+        results.forEach((feature, anomaly) -> {
+            deadfeatures.add(feature.getName());
+            feature.setAnomalyType(DEAD);
 
-//            System.out.println("Before check the dead features----------------");
-//            System.out.println(model.getNbCstrs());
-//            printConstraints(model);
+            addAnomaly(anomaly, explanations);
+        });
+    }
+
+    // check {fi = true} on the given model
+    // return the anomaly if the feature is dead, null otherwise
+    private Anomaly checkDeadFeature(ChocoModel model, Feature feature) {
+        // a feature which is inferred to be false is dead
+        boolean inferred = inference != null && inference.isFalse(feature.getName());
+        if (!inferred) {
+            if (inference != null && inference.isTrue(feature.getName())) {
+                // a core feature is not dead
+                return null;
+            }
+            if (backbone != null) {
+                // a feature is dead iff it is false in the backbone
+                if (!backbone.isFalse(feature.getName())) return null;
+            } else if (witnessTracker != null && witnessTracker.isSeenTrue(feature.getName())) {
+                // a feature which is true in a witness is not dead
+                return null;
+            }
+        }
 
-            model.getSolver().reset();
-            if (!model.getSolver().solve()) {
-                deadfeatures.add(feature.getName());
-                feature.setAnomalyType(DEAD);
+        BoolVar v = model.getVarWithName(feature.getName()); // TODO: need try catch
 
-                List<List<Constraint>> allDiag = calculateAllDiagnoses();
+        // add {fi = true}
+        model.addAssumption(v, true);
 
-                System.out.println("All diagnoses:---------------------------");
-                printAllDiagnoses(allDiag);
+//        System.out.println("Before check the dead features----------------");
+//        System.out.println(model.getNbCstrs());
+//        printConstraints(model);
 
-                explanations.put(feature.getName(), new ArrayList<>());
-                createExplanations(allDiag, feature.getName(), explanations);
-            } else {
-                System.out.println("--------------> Consistent");
+        Anomaly anomaly = null;
+        if (inferred || backbone != null || !model.isConsistent()) {
+            anomaly = new Anomaly(feature, DEAD);
+            anomaly.addAssumption(feature, true);
+            anomaly.setInferred(inferred);
+            explainDuringDetection(model, anomaly);
+
+            if (anomaly.isExplained()) {
+                System.out.println("All diagnoses:---------------------------");
+                printAllDiagnoses(anomaly.getDiagnoses());
             }
+        } else {
+            System.out.println("--------------> Consistent");
+        }
 
-            model.resetCstrs();
+        model.resetCstrs();
 
-//            System.out.println("After check the dead features----------------");
-//            System.out.println(model.getNbCstrs());
-//            printConstraints(model);
-        }
+//        System.out.println("After check the dead features----------------");
+//        System.out.println(model.getNbCstrs());
+//        printConstraints(model);
+
+        return anomaly;
     }
 
     // CHECK FALSE OPTIONAL
@@ -184,229 +975,89 @@ public class AnalysisOperator {
 
         // show results
         showAnalysis("False optional feature", falseoptionals);
+        showInferredAnomalies(FALSEOPTIONAL);
         showExplanations(explanations);
     }
 
-    private void findFalseOptionals(ArrayList<String> falseoptionals,
-                                    Map<String, ArrayList<String>> explanations) {
-        for (int i = 1; i < featureModel.getNumOfFeatures(); i++) {
-            Feature feature = featureModel.getFeature(i);
-
-            // Feature nay phai la optional - not mandatory
-            if (featureModel.isOptionalFeature(feature)) {
-
-//                if (feature.isAnomalyType(FULLMANDATORY)) {
-//                    falseoptionals.add(feature.getName());
-//                    feature.setAnomalyType(FALSEOPTIONAL);
-//
-//                    model.getSolver().reset();
-//                    List<List<Constraint>> allDiag = calculateAllDiagnoses();
-//
-////                                System.out.println("All diagnoses:---------------------------");
-////                                printAllDiagnoses(allDiag);
-//
-//                    explanations.put(feature.getName(), new ArrayList<>());
-//                    createExplanations(allDiag, feature.getName(), explanations);
-//
-//                    model.resetCstrs();
-//                    continue;
-//                }
-
-                ArrayList<Feature> parents = featureModel.getLeftSideOfRequiresConstraint(feature);
-
-                if (parents.size() > 0) { // co tham gia vao ve phai cua a requires constraint
-
-                    BoolVar v = model.getVarWithName(feature.getName()); // TODO: need try catch
-
-                    // add {f_opt = false}
-                    model.addClauseFalse(v);
-
-                    for (Feature parent : parents) {
-
-                        if (featureModel.isMandatoryFeature(parent)) { // trong mot so truong hop no co the bat cau
-
-                            BoolVar p = model.getVarWithName(parent.getName());
-                            // add {f_p = true}
-                            model.addClauseTrue(p);
-
-//                            System.out.println("Before check false optional----------------");
-//                            System.out.println(model.getNbCstrs());
-//                            printConstraints(model);
-
-                            model.getSolver().reset();
-                            if (!model.getSolver().solve()) {
-                                falseoptionals.add(feature.getName());
-                                feature.setAnomalyType(FALSEOPTIONAL);
-
-                                List<List<Constraint>> allDiag = calculateAllDiagnoses();
-
-//                                System.out.println("All diagnoses:---------------------------");
-//                                printAllDiagnoses(allDiag);
-
-                                explanations.put(feature.getName(), new ArrayList<>());
-                                createExplanations(allDiag, feature.getName(), explanations);
-                            } else {
-                                System.out.println("--------------> Consistent");
-                            }
+    private void findFalseOptionals2(ArrayList<String> falseoptionals,
+                                     Map<String, ArrayList<String>> explanations) throws FeatureModelException {
+        Map<Feature, Anomaly> results = runChecks(FALSEOPTIONAL, this::checkFalseOptionalFeature);
 
-                            model.resetCstrs();
-                            // readd {f_opt = false}
-                            model.addClauseFalse(v);
+        results.forEach((feature, anomaly) -> {
+            falseoptionals.add(feature.getName());
+            feature.setAnomalyType(FALSEOPTIONAL);
 
-//                            System.out.println("After check false optional----------------");
-//                            System.out.println(model.getNbCstrs());
-//                            printConstraints(model);
-                        }
-                    }
-                    model.resetCstrs();
-                }
-            }
-        }
-
-//        addCountingForExplanations(explanations);
+            addAnomaly(anomaly, explanations);
+        });
     }
 
-    private void findFalseOptionals1(ArrayList<String> falseoptionals,
-                                    Map<String, ArrayList<String>> explanations) throws FeatureModelException {
-        for (int i = 1; i < featureModel.getNumOfFeatures(); i++) {
-            Feature feature = featureModel.getFeature(i);
-
-            // Feature nay phai la optional - not mandatory
-            if (featureModel.isOptionalFeature(feature)) {
-
-                ArrayList<Feature> parents = featureModel.getMandatoryParents(feature);
+    // check {f_opt = false} together with {f_p = true} of the first mandatory parent on the given model
+    // return the anomaly if the feature is false optional, null otherwise
+    private Anomaly checkFalseOptionalFeature(ChocoModel model, Feature feature) throws FeatureModelException {
+        // Feature nay phai la optional - not mandatory
+        if (!featureModel.isOptionalFeature(feature)) return null;
 
-                if (parents.size() > 0) { // co tham gia vao ve phai cua a requires constraint
+        ArrayList<Feature> parents = featureModel.getMandatoryParents(feature);
+        for (Feature parent : parents) {
 
-                    BoolVar v = model.getVarWithName(feature.getName()); // TODO: need try catch
+            if (featureModel.isMandatoryFeature(parent)) { // trong mot so truong hop no co the bat cau
+                // {f_opt = false} contradicts a core f_opt, and {f_p = true} a dead f_p
+                boolean inferred = inference != null
+                        && (inference.isTrue(feature.getName()) || inference.isFalse(parent.getName()));
+                Boolean falseOptional = inferred ? Boolean.TRUE : isFalseOptionalByBackbone(feature, parent);
+                if (falseOptional != null && !falseOptional) return null;
 
-                    // add {f_opt = false}
-                    model.addClauseFalse(v);
+                BoolVar v = model.getVarWithName(feature.getName()); // TODO: need try catch
+                BoolVar p = model.getVarWithName(parent.getName());
 
-                    for (Feature parent : parents) {
+                // add {f_opt = false}
+                model.addAssumption(v, false);
+                // add {f_p = true}
+                model.addAssumption(p, true);
 
-                        if (featureModel.isMandatoryFeature(parent)) { // trong mot so truong hop no co the bat cau
-
-                            BoolVar p = model.getVarWithName(parent.getName());
-                            // add {f_p = true}
-                            model.addClauseTrue(p);
-
-//                            System.out.println("Before check false optional----------------");
-//                            System.out.println(model.getNbCstrs());
-//                            printConstraints(model);
-
-                            model.getSolver().reset();
-                            if (!model.getSolver().solve()) {
-                                if (!isExistInArrayList(falseoptionals, feature.getName())) {
-                                    falseoptionals.add(feature.getName());
-                                    feature.setAnomalyType(FALSEOPTIONAL);
-                                }
-
-                                List<List<Constraint>> allDiag = calculateAllDiagnoses();
-
-//                                System.out.println("All diagnoses:---------------------------");
-//                                printAllDiagnoses(allDiag);
-
-                                if (!explanations.containsKey(feature.getName())) {
-                                    explanations.put(feature.getName(), new ArrayList<>());
-                                }
-
-                                createExplanations(allDiag, feature.getName(), explanations);
-//                                addCountingForExplanations(explanations);
-                            } else {
-                                System.out.println("--------------> Consistent");
-                            }
+//                System.out.println("Before check false optional----------------");
+//                System.out.println(model.getNbCstrs());
+//                printConstraints(model);
 
-                            model.resetCstrs();
-                            // readd {f_opt = false}
-                            model.addClauseFalse(v);
+                Anomaly anomaly = null;
+                if (falseOptional != null || !model.isConsistent()) {
+                    anomaly = new Anomaly(feature, FALSEOPTIONAL);
+                    anomaly.addAssumption(feature, false);
+                    anomaly.addAssumption(parent, true);
+                    anomaly.setInferred(inferred);
+                    explainDuringDetection(model, anomaly);
 
-//                            System.out.println("After check false optional----------------");
-//                            System.out.println(model.getNbCstrs());
-//                            printConstraints(model);
-                        }
-                    }
-                    model.resetCstrs();
+//                    System.out.println("All diagnoses:---------------------------");
+//                    printAllDiagnoses(allDiag);
+                } else {
+                    System.out.println("--------------> Consistent");
                 }
+
+                model.resetCstrs();
+                return anomaly;
             }
         }
-
-//        addCountingForExplanations(explanations);
+        return null;
     }
 
-    private void findFalseOptionals2(ArrayList<String> falseoptionals,
-                                     Map<String, ArrayList<String>> explanations) throws FeatureModelException {
-        for (int i = 1; i < featureModel.getNumOfFeatures(); i++) {
-            Feature feature = featureModel.getFeature(i);
-
-            // Feature nay phai la optional - not mandatory
-            if (featureModel.isOptionalFeature(feature)) {
-
-                ArrayList<Feature> parents = featureModel.getMandatoryParents(feature);
-
-                if (parents.size() > 0) { // co tham gia vao ve phai cua a requires constraint
-
-                    BoolVar v = model.getVarWithName(feature.getName()); // TODO: need try catch
-
-                    // add {f_opt = false}
-                    model.addClauseFalse(v);
-
-                    boolean haveMandatory = false;
-                    for (Feature parent : parents) {
-
-                        if (featureModel.isMandatoryFeature(parent)) { // trong mot so truong hop no co the bat cau
-
-                            BoolVar p = model.getVarWithName(parent.getName());
-                            // add {f_p = true}
-                            model.addClauseTrue(p);
-                            haveMandatory = true;
-                            break;
-                        }
-                    }
-
-//                            System.out.println("Before check false optional----------------");
-//                            System.out.println(model.getNbCstrs());
-//                            printConstraints(model);
-
-                    if (haveMandatory) {
-                        model.getSolver().reset();
-                        if (!model.getSolver().solve()) {
-                            if (!isExistInArrayList(falseoptionals, feature.getName())) {
-                                falseoptionals.add(feature.getName());
-                                feature.setAnomalyType(FALSEOPTIONAL);
-                            }
-
-                            List<List<Constraint>> allDiag = calculateAllDiagnoses();
-
-//                                System.out.println("All diagnoses:---------------------------");
-//                                printAllDiagnoses(allDiag);
+    // derive whether {f_opt = false} together with {f_p = true} is inconsistent from the backbone
+    // return null if the backbone couldn't decide it
+    private Boolean isFalseOptionalByBackbone(Feature feature, Feature parent) {
+        if (backbone == null) return null;
 
-                            if (!explanations.containsKey(feature.getName())) {
-                                explanations.put(feature.getName(), new ArrayList<>());
-                            }
-
-                            createExplanations(allDiag, feature.getName(), explanations);
-                        } else {
-                            System.out.println("--------------> Consistent");
-                        }
-
-                        model.resetCstrs();
-                        // readd {f_opt = false}
-                        model.addClauseFalse(v);
-
-//                            System.out.println("After check false optional----------------");
-//                            System.out.println(model.getNbCstrs());
-//                            printConstraints(model);
-//                        }
-                    }
-                    model.resetCstrs();
-                }
-            }
+        if (backbone.isTrue(feature.getName()) || backbone.isFalse(parent.getName())) {
+            return true;
         }
+        // there is a solution with {f_opt = false}, and f_p is true in all solutions
+        if (backbone.isTrue(parent.getName())
+                || backbone.hasSolution(feature.getName(), parent.getName())) {
+            return false;
+        }
+        return null;
     }
 
     // CHECK CONDITIONALLY DEAD
-    private void checkConditionallyDead() {
+    private void checkConditionallyDead() throws FeatureModelException {
         // Find all conditionally deads
         ArrayList<String> conditionallydeads = new ArrayList<>();
         Map<String, ArrayList<String>> explanations = new LinkedHashMap<>();
@@ -419,64 +1070,89 @@ public class AnalysisOperator {
     }
 
     private void findConditionallyDead(ArrayList<String> conditionallydeads,
-                                       Map<String, ArrayList<String>> explanations) {
-        for (int i = 1; i < featureModel.getNumOfFeatures(); i++) {
-            Feature fi = featureModel.getFeature(i);
+                                       Map<String, ArrayList<String>> explanations) throws FeatureModelException {
+        // solutions with many true features cover more pairs
+        if (witnessTracker != null) witnessTracker.setPreferTrue(true);
+        Map<Feature, Anomaly> results;
+        try {
+            results = runChecks(CONDITIONALLYDEAD, this::checkConditionallyDeadFeature);
+        } finally {
+            if (witnessTracker != null) witnessTracker.setPreferTrue(false);
+        }
 
-            // a feature is not DEAD and have to be optional
-            if (!fi.isAnomalyType(DEAD) && featureModel.isOptionalFeature(fi)) {
+        results.forEach((fi, anomaly) -> {
+            conditionallydeads.add(fi.toString());
+            fi.setAnomalyType(CONDITIONALLYDEAD);
 
-                for (int j = 1; j < featureModel.getNumOfFeatures(); j++) {
-                    if (j != i) {
-                        BoolVar vi = model.getVarWithName(fi.getName());
+            addAnomaly(anomaly, explanations);
+        });
+    }
 
-                        Feature fj = featureModel.getFeature(j);
-                        if (fj.isAnomalyType(DEAD)) continue;
+    // check {fi = true} together with {fj = true} for each other feature fj on the given model
+    // return the anomaly of the first inconsistent pair, null if there is no such pair
+    private Anomaly checkConditionallyDeadFeature(ChocoModel model, Feature fi) {
+        // a feature is not DEAD and have to be optional
+        if (fi.isAnomalyType(DEAD) || !featureModel.isOptionalFeature(fi)) return null;
 
-                        BoolVar vj = model.getVarWithName(fj.getName());
+        BoolVar vi = model.getVarWithName(fi.getName());
+        // the first stopped check, the feature is undecided if no pair is inconsistent
+        CheckLimitException stopped = null;
+        for (int j = 1; j < featureModel.getNumOfFeatures(); j++) {
+            Feature fj = featureModel.getFeature(j);
+            if (fj == fi || fj.isAnomalyType(DEAD)) continue;
 
-                        // add {fi = true}
-                        model.addClauseTrue(vi);
-                        // add {fj = true}
-                        model.addClauseTrue(vj);
+            // a pair which is true together in a witness is co-selectable
+            if (witnessTracker != null && witnessTracker.isCoveredPair(fi.getName(), fj.getName())) continue;
 
-//                        System.out.println("Before the checking----------------");
-//                        System.out.println(model.getNbCstrs());
-//                        printConstraints(model);
+            BoolVar vj = model.getVarWithName(fj.getName());
 
-                        model.getSolver().reset();
-                        if (!model.getSolver().solve()) {
-                            System.out.println("------------> inConsistent: " + fi);
+            // add {fi = true}
+            model.addAssumption(vi, true);
+            // add {fj = true}
+            model.addAssumption(vj, true);
 
-                            if (!isExistInArrayList(conditionallydeads, fi.toString())) { // neu chua moi them vao
-                                conditionallydeads.add(fi.toString());
-                                fi.setAnomalyType(CONDITIONALLYDEAD);
+//            System.out.println("Before the checking----------------");
+//            System.out.println(model.getNbCstrs());
+//            printConstraints(model);
 
-                                List<List<Constraint>> allDiag = calculateAllDiagnoses();
+            boolean consistent;
+            try {
+                consistent = model.isConsistent();
+            } catch (CheckLimitException e) {
+                model.resetCstrs();
+                if (stopped == null) stopped = e;
+                continue;
+            }
 
-//                                System.out.println("All diagnoses:---------------------------");
-//                                printAllDiagnoses(allDiag);
+            Anomaly anomaly = null;
+            if (!consistent) {
+                System.out.println("------------> inConsistent: " + fi);
 
-                                explanations.put(fi.getName(), new ArrayList<>());
-                                createExplanations(allDiag, fi.getName(), explanations);
-                            }
-                        } else {
-                            System.out.println("------------> Consistent");
-                        }
+                anomaly = new Anomaly(fi, CONDITIONALLYDEAD);
+                anomaly.addAssumption(fi, true);
+                anomaly.addAssumption(fj, true);
+                explainDuringDetection(model, anomaly);
 
-                        model.resetCstrs();
+//                System.out.println("All diagnoses:---------------------------");
+//                printAllDiagnoses(allDiag);
+            } else {
+                System.out.println("------------> Consistent");
+            }
 
-//                        System.out.println("Before the checking----------------");
-//                        System.out.println(model.getNbCstrs());
-//                        printConstraints(model);
-                    }
-                }
+            model.resetCstrs();
+
+            if (anomaly != null) {
+                return anomaly;
             }
         }
+        if (stopped != null) {
+            throw stopped;
+        }
+        return null;
     }
 
     // CHECK FULL MANDATORY
-    private void checkFullMandatory() {
+    private void checkFullMandatory() throws FeatureModelException {
         // Find all full mandatory
         ArrayList<String> fullmandatorys = new ArrayList<>();
         Map<String, ArrayList<String>> explanations = new LinkedHashMap<>();
@@ -485,115 +1161,410 @@ public class AnalysisOperator {
 
         // show results
         showAnalysis("Full mandatory feature", fullmandatorys);
+        showInferredAnomalies(FULLMANDATORY);
         showExplanations(explanations);
     }
 
     private void findFullMandatory(ArrayList<String> fullmandatorys,
-                                   Map<String, ArrayList<String>> explanations) {
-        for (int i = 1; i < featureModel.getNumOfFeatures(); i++) {
-            Feature feature = featureModel.getFeature(i);
-            BoolVar v = model.getVarWithName(feature.getName()); // TODO: need try catch
+                                   Map<String, ArrayList<String>> explanations) throws FeatureModelException {
+        Map<Feature, Anomaly> results = runChecks(FULLMANDATORY, this::checkFullMandatoryFeature);
+        groupByRootCause(results.values());
 
-            // add {fi = false}
-            model.addClauseFalse(v);
+        results.forEach((feature, anomaly) -> {
+            fullmandatorys.add(feature.getName());
+            feature.setAnomalyType(FULLMANDATORY);
 
-//            System.out.println("Before check the dead features----------------");
-//            System.out.println(model.getNbCstrs());
-//            printConstraints(model);
+            addAnomaly(anomaly, explanations);
+        });
+    }
 
-            model.getSolver().reset();
-            if (!model.getSolver().solve()) {
-                fullmandatorys.add(feature.getName());
-                feature.setAnomalyType(FULLMANDATORY);
+    // check {fi = false} on the given model
+    // return the anomaly if the feature is full mandatory, null otherwise
+    private Anomaly checkFullMandatoryFeature(ChocoModel model, Feature feature) {
+        // a feature which is inferred to be true is full mandatory
+        boolean inferred = inference != null && inference.isTrue(feature.getName());
+        if (!inferred) {
+            if (inference != null && inference.isFalse(feature.getName())) {
+                // a dead feature is not full mandatory
+                return null;
+            }
+            if (backbone != null) {
+                // a feature is full mandatory iff it is true in the backbone
+                if (!backbone.isTrue(feature.getName())) return null;
+            } else if (witnessTracker != null && witnessTracker.isSeenFalse(feature.getName())) {
+                // a feature which is false in a witness is not full mandatory
+                return null;
+            }
+        }
 
-                List<List<Constraint>> allDiag = calculateAllDiagnoses();
+        BoolVar v = model.getVarWithName(feature.getName()); // TODO: need try catch
 
-//                System.out.println("All diagnoses:---------------------------");
-//                printAllDiagnoses(allDiag);
+        // add {fi = false}
+        model.addAssumption(v, false);
 
-                explanations.put(feature.getName(), new ArrayList<>());
-                createExplanations(allDiag, feature.getName(), explanations);
-            } else {
-                System.out.println("--------------> Consistent");
-            }
+//        System.out.println("Before check the dead features----------------");
+//        System.out.println(model.getNbCstrs());
+//        printConstraints(model);
 
-            model.resetCstrs();
+        Anomaly anomaly = null;
+        if (inferred || backbone != null || !model.isConsistent()) {
+            anomaly = new Anomaly(feature, FULLMANDATORY);
+            anomaly.addAssumption(feature, false);
+            anomaly.setInferred(inferred);
+            explainDuringDetection(model, anomaly);
 
-//            System.out.println("After check the dead features----------------");
-//            System.out.println(model.getNbCstrs());
-//            printConstraints(model);
+//            System.out.println("All diagnoses:---------------------------");
+//            printAllDiagnoses(allDiag);
+        } else {
+            System.out.println("--------------> Consistent");
         }
+
+        model.resetCstrs();
+
+//        System.out.println("After check the dead features----------------");
+//        System.out.println(model.getNbCstrs());
+//        printConstraints(model);
+
+        return anomaly;
     }
 
     // CHECK REDUNDANCIES
-    private void checkRedundancies() {
+    private void checkRedundancies() throws FeatureModelException {
         System.out.println("Check Redundancies");
+        long start = System.nanoTime();
+
+        // the cross-tree constraints first, so that they are removed before the tree relationships
+        List<Relationship> relationships = new ArrayList<>(featureModel.getConstraints());
+        if (treeRedundancies) {
+            relationships.addAll(featureModel.getRelationships());
+        }
+        RedundancyDetector detector = new RedundancyDetector(relationships);
+
+        Set<Relationship> redundant = new HashSet<>();
+        if (redundancyMode == RedundancyDetector.Mode.NON_REDUNDANT_SUBSET) {
+            detector.prepare(model);
+            redundant.addAll(relationships);
+            redundant.removeAll(detector.findNonRedundantSubset(model));
+            detector.getUndecided().forEach((r, e) -> addUndecided(getRedundancyTitle(r), e));
+        } else {
+            redundant.addAll(findRedundancies(detector));
+        }
+        model.resetCstrs();
+
         ArrayList<String> redundancies = new ArrayList<>();
-        // chay FMCORE de tim ra minimal core
-        FMCore(redundancies);
+        ArrayList<String> redundantRelationships = new ArrayList<>();
+        for (Relationship r : featureModel.getConstraints()) {
+            if (redundant.contains(r)) redundancies.add(r.getConfRule());
+        }
+        for (Relationship r : featureModel.getRelationships()) {
+            if (redundant.contains(r)) redundantRelationships.add(r.getConfRule());
+        }
 
-//        System.out.println("After FMCore----------------");
-//        System.out.println(model.getNbCstrs());
-//        printConstraints(model);
+        addStatistics("Redundancies: " + redundant.size() + " of " + relationships.size()
+                + " relationships and constraints, " + detector.getNumOfChecks() + " checks, in "
+                + (System.nanoTime() - start) / 1000000.0 + " ms");
 
         // show results
         showAnalysis("Redundant constraint", redundancies);
+        if (treeRedundancies) {
+            showAnalysis("Redundant relationship", redundantRelationships);
+        }
     }
 
-    private void FMCore(ArrayList<String> redundancies) {
-//        System.out.println("Original constraints----------------");
-//        System.out.println(model.getNbCstrs());
-//        printConstraints(model);
+    // run the independent checks of the redundancies on all workers
+    private List<Relationship> findRedundancies(RedundancyDetector detector) throws FeatureModelException {
+        List<Relationship> redundancies = new ArrayList<>();
 
-        // duyet qua tung constraint
-        ArrayList<Relationship> constraints = featureModel.getConstraints();
-        for (Relationship constraint : constraints) {
-            String cstr = constraint.getConstraints().get(0);
+        if (executor == null) {
+            detector.prepare(model);
+            for (Relationship r : detector.getRelationships()) {
+                try {
+                    if (detector.isRedundant(model, r)) {
+                        redundancies.add(r);
+                    }
+                } catch (CheckLimitException e) {
+                    addUndecided(getRedundancyTitle(r), e);
+                }
+            }
+            return redundancies;
+        }
 
-            System.out.println("CHECK " + cstr.toUpperCase());
+        for (ChocoModel m : models) {
+            detector.prepare(m);
+        }
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (Relationship r : detector.getRelationships()) {
+            futures.add(executor.submit(() -> {
+                ChocoModel m = models.take();
+                try {
+                    return detector.isRedundant(m, r);
+                } finally {
+                    models.put(m);
+                }
+            }));
+        }
 
-            Constraint choco_cstr = model.getCstr(cstr);
+        // merge the results in the order of the checks
+        for (int i = 0; i < futures.size(); i++) {
+            Relationship r = detector.getRelationships().get(i);
+            try {
+                if (getResult(futures.get(i))) {
+                    redundancies.add(r);
+                }
+            } catch (CheckLimitException e) {
+                addUndecided(getRedundancyTitle(r), e);
+            }
+        }
+        return redundancies;
+    }
 
-            System.out.println("-------------------------------------------");
-            System.out.println(choco_cstr);
-            System.out.println("-------------------------------------------");
+    private String getRedundancyTitle(Relationship r) {
+        return (featureModel.getConstraints().contains(r) ? "Redundant constraint " : "Redundant relationship ")
+                + r.getConfRule();
+    }
 
-            if (choco_cstr != null) {
-                // loai ra khoi CF
-                model.unpost(choco_cstr);
+    // HELPER FUNCTIONS FOR ALL ANALYSES
+    /**
+     * A check of a single feature on a given {@link ChocoModel}.
+     * It returns the anomaly of the feature, or null if the feature is not anomalous.
+     */
+    private interface FeatureCheck {
+        Anomaly check(ChocoModel model, Feature feature) throws FeatureModelException;
+    }
 
-                List<Constraint> not_cstr = model.postNotConstraint(constraint);
-                System.out.println("NOT NOT CONSTRAINT-------------------------------------------");
-                System.out.println(not_cstr);
-                System.out.println("-------------------------------------------");
+    private void startWorkers() throws FeatureModelException {
+        startDiagnosisWorkers();
+        if (numOfThreads <= 1) return;
+
+        // the models are created here, since creating a model
+        // registers its constraints in the shared symbol table
+        models = new ArrayBlockingQueue<>(numOfThreads);
+        models.add(model);
+        for (int i = 1; i < numOfThreads; i++) {
+            ChocoModel m = new ChocoModel(featureModel, model.isIncremental(), model.getGroupEncoding(), model.getSymbolTable());
+            m.setBackend(createBackend(m));
+            m.setWitnessTracker(witnessTracker);
+            m.setSearchProfile(searchProfile);
+            checkers.put(m, new ConsistencyChecker(m.getBackend(), cacheSize));
+            models.add(m);
+        }
+        executor = Executors.newFixedThreadPool(numOfThreads);
+    }
 
-//                System.out.println("After post NOT constraint----------------");
-//                System.out.println(model.getNbCstrs());
-//                printConstraints(model);
+    private void startDiagnosisWorkers() throws FeatureModelException {
+        if (numOfDiagnosisThreads <= 1) return;
+        if (!model.isIncremental()) throw new FeatureModelException("The parallel FastDiag requires a model in the incremental mode!");
+
+        diagnosisWorkers = new ArrayBlockingQueue<>(numOfDiagnosisThreads);
+        for (int i = 0; i < numOfDiagnosisThreads; i++) {
+            ChocoModel m = new ChocoModel(featureModel, true, model.getGroupEncoding(), model.getSymbolTable());
+            m.setBackend(createBackend(m));
+            m.setSearchProfile(searchProfile);
+            ConsistencyChecker checker = new ConsistencyChecker(m.getBackend(), cacheSize);
+            checkers.put(m, checker);
+            diagnosisWorkers.add(new ParallelFastDiag.Worker(m, checker));
+        }
+        diagnosisExecutor = Executors.newFixedThreadPool(numOfDiagnosisThreads);
+    }
 
-                // if consistent(CF - {ci} U {not ci})
-                model.getSolver().reset();
-                if (model.getSolver().solve()) {
-                    // bo vao lai
-                    System.out.println("----------------------- Consistent");
-                    model.post(choco_cstr);
-                } else {
-                    redundancies.add(constraint.getConfRule());
-                    System.out.println("----------------------- inConsistent");
+    private SolverBackend createBackend(ChocoModel model) throws FeatureModelException {
+        SolverBackend backend;
+        if (backendType == SolverBackend.Type.SAT) {
+            try {
+                backend = new SatBackend(model);
+            } catch (IllegalArgumentException e) {
+                throw new FeatureModelException(e.getMessage(), e);
+            }
+        } else {
+            backend = new ChocoBackend(model);
+        }
+        backend = tieredChecks ? new TieredBackend(backend) : backend;
+        backend.setLimits(checkLimits.isUnlimited() ? null : checkLimits);
+        return backend;
+    }
+
+    private void addCacheStatistics() {
+        if (cacheSize == 0) return;
+
+        long hits = 0, misses = 0, evictions = 0;
+        for (ConsistencyChecker checker : checkers.values()) {
+            hits += checker.getNumOfHits();
+            misses += checker.getNumOfMisses();
+            evictions += checker.getNumOfEvictions();
+        }
+        addStatistics("Cache hits: " + hits + ", misses: " + misses + ", evictions: " + evictions);
+    }
+
+    private void addTierStatistics() {
+        if (!tieredChecks) return;
+
+        long failures = 0, solutions = 0, searches = 0;
+        for (ChocoModel m : checkers.keySet()) {
+            if (m.getBackend() instanceof TieredBackend) {
+                TieredBackend backend = (TieredBackend) m.getBackend();
+                failures += backend.getNumOfPropagationFailures();
+                solutions += backend.getNumOfPropagationSolutions();
+                searches += backend.getNumOfSearches();
+            }
+        }
+        addStatistics("Checks settled by the propagation: " + failures + " inconsistent, "
+                + solutions + " consistent, full searches: " + searches);
+    }
+
+    private void addStrategyTimings() {
+        for (Map.Entry<DiagnosisStrategy.Type, DiagnosisStrategySelector.Timing> entry
+                : strategySelector.getTimings().entrySet()) {
+            DiagnosisStrategySelector.Timing timing = entry.getValue();
+            addStatistics(String.format("Diagnosis strategy %s: %d anomalies, %.3f ms per anomaly",
+                    entry.getKey(), timing.getCount(), timing.getAverageTime() / 1e6));
+        }
+    }
+
+    private void resetStatistics() {
+        numOfSpeculativeChecks = 0;
+        numOfSpeculativeHits = 0;
+        numOfFastDiagCalls = 0;
+        numOfReusedLabels = 0;
+        numOfClosedNodes = 0;
+        numOfPrunedNodes = 0;
+        numOfConflicts = 0;
+        numOfReusedConflicts = 0;
+        numOfTruncatedEnumerations = 0;
+        numOfGroupedAnomalies = 0;
+        numOfRootCauses = 0;
+    }
+
+    private synchronized void addHSTreeStatistics(HSTree tree) {
+        numOfFastDiagCalls += tree.getNumOfFastDiagCalls();
+        numOfReusedLabels += tree.getNumOfReusedLabels();
+        numOfClosedNodes += tree.getNumOfClosedNodes();
+        numOfPrunedNodes += tree.getNumOfPrunedNodes();
+    }
+
+    private synchronized void addConflictStatistics(DiagnosisEnumerator enumerator) {
+        numOfConflicts += enumerator.getNumOfConflicts();
+        numOfReusedConflicts += enumerator.getNumOfReusedConflicts();
+    }
+
+    private synchronized void addTruncatedEnumeration() {
+        numOfTruncatedEnumerations++;
+    }
+
+    private synchronized void addSpeculationStatistics(ParallelFastDiag fastDiag) {
+        numOfSpeculativeChecks += fastDiag.getNumOfSpeculativeChecks();
+        numOfSpeculativeHits += fastDiag.getNumOfSpeculativeHits();
+    }
+
+    private void stopWorkers() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        models = null;
+        if (diagnosisExecutor != null) {
+            diagnosisExecutor.shutdownNow();
+            diagnosisExecutor = null;
+        }
+        diagnosisWorkers = null;
+    }
+
+    /**
+     * Run the given check for each feature except the root feature,
+     * sequentially on the model or in parallel on the models of the workers.
+     * A feature whose check is stopped by a limit is undecided.
+     * The checks use the search profile of the anomaly type.
+     *
+     * @param type - the anomaly type of the check
+     * @param check - a {@link FeatureCheck}
+     * @return the anomalies of the features in the order of features
+     * @throws FeatureModelException when the check fails
+     */
+    private Map<Feature, Anomaly> runChecks(Feature.AnomalyType type, FeatureCheck check) throws FeatureModelException {
+        setSearchProfiles(getSearchProfile(type));
+        try {
+            return runChecks(type, check, new LinkedHashMap<>());
+        } finally {
+            setSearchProfiles(searchProfile);
+        }
+    }
+
+    private Map<Feature, Anomaly> runChecks(Feature.AnomalyType type, FeatureCheck check,
+                                            Map<Feature, Anomaly> results) throws FeatureModelException {
+
+        if (executor == null) {
+            for (int i = 1; i < featureModel.getNumOfFeatures(); i++) {
+                Feature feature = featureModel.getFeature(i);
+                Anomaly anomaly = runCheck(type, check, model, feature);
+                if (anomaly != null) {
+                    results.put(feature, anomaly);
                 }
+            }
+            return results;
+        }
 
-                for (Constraint c: not_cstr) {
-                    model.unpost(c);
+        List<Future<Anomaly>> futures = new ArrayList<>();
+        for (int i = 1; i < featureModel.getNumOfFeatures(); i++) {
+            Feature feature = featureModel.getFeature(i);
+            futures.add(executor.submit(() -> {
+                ChocoModel m = models.take();
+                try {
+                    return runCheck(type, check, m, feature);
+                } finally {
+                    models.put(m);
                 }
+            }));
+        }
 
-                System.out.println("After repost the constraint----------------");
-                System.out.println(model.getNbCstrs());
-                printConstraints(model);
+        // merge the results in the order of features
+        for (int i = 1; i < featureModel.getNumOfFeatures(); i++) {
+            Anomaly anomaly = getResult(futures.get(i - 1));
+            if (anomaly != null) {
+                results.put(featureModel.getFeature(i), anomaly);
             }
         }
+        return results;
+    }
+
+    // set the search of the model and of the models of the workers
+    private void setSearchProfiles(SearchProfile searchProfile) {
+        if (executor == null) {
+            model.setSearchProfile(searchProfile);
+            return;
+        }
+        for (ChocoModel m : models) {
+            m.setSearchProfile(searchProfile);
+        }
+    }
+
+    // return null if the check of the feature is stopped by a limit
+    private Anomaly runCheck(Feature.AnomalyType type, FeatureCheck check, ChocoModel model, Feature feature) throws FeatureModelException {
+        try {
+            return check.check(model, feature);
+        } catch (CheckLimitException e) {
+            model.resetCstrs();
+            addUndecided(getTitle(type) + " " + feature.getName(), e);
+            return null;
+        }
+    }
+
+    // wait for the result of a task of the workers
+    private <T> T getResult(Future<T> future) throws FeatureModelException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FeatureModelException("The analysis is interrupted!", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FeatureModelException) {
+                throw (FeatureModelException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new FeatureModelException(e.getCause().getMessage(), e.getCause());
+        }
     }
 
-    // HELPER FUNCTIONS FOR ALL ANALYSES
     private void showAnalysis(String title, ArrayList<String> features) {
         if (features.size() > 0) {
 
@@ -603,7 +1574,7 @@ public class AnalysisOperator {
             }
             st += " (" + features.size() + "): ";
 
-            if (title.equals("Redundant constraint")) {
+            if (title.startsWith("Redundant")) {
                 controller.addResult(st, Color.RED);
 
                 for (String s: features) {
@@ -618,6 +1589,60 @@ public class AnalysisOperator {
         }
     }
 
+    // list the items whose checks are stopped by a limit, so they can be checked again with larger limits
+    private void showUndecided() {
+        List<String> items = getUndecided();
+        if (items.isEmpty()) return;
+
+        controller.addResult("? Undecided checks (" + items.size() + "), the limits of the checks are reached:", Color.ORANGE);
+        for (String item : items) {
+            controller.addResult("\t" + item, Color.BLACK);
+        }
+    }
+
+    private void addUndecided(String item, CheckLimitException e) {
+        undecided.add(item + " (" + e.getReason() + ")");
+    }
+
+    private String getTitle(Anomaly anomaly) {
+        return getTitle(anomaly.getType()).toLowerCase() + " " + anomaly.getFeature().getName();
+    }
+
+    private String getTitle(Feature.AnomalyType type) {
+        switch (type) {
+            case DEAD:
+                return "Dead feature";
+            case FALSEOPTIONAL:
+                return "False optional feature";
+            case CONDITIONALLYDEAD:
+                return "Conditionally dead feature";
+            default:
+                return "Full mandatory feature";
+        }
+    }
+
+    // say which anomalies of the given type are inferred from the structure and which are solved
+    private void showInferredAnomalies(Feature.AnomalyType type) {
+        if (inference == null) return;
+
+        ArrayList<String> inferred = new ArrayList<>();
+        ArrayList<String> solved = new ArrayList<>();
+        for (Anomaly anomaly : anomalies) {
+            if (anomaly.getType() == type) {
+                (anomaly.isInferred() ? inferred : solved).add(anomaly.getFeature().getName());
+            }
+        }
+
+        if (inferred.size() > 0) {
+            controller.addResult("\tInferred from the structure (" + inferred.size() + "): "
+                    + createStringFromArrayWithSeparator(inferred, ","), Color.BLACK);
+            if (solved.size() > 0) {
+                controller.addResult("\tSolved (" + solved.size() + "): "
+                        + createStringFromArrayWithSeparator(solved, ","), Color.BLACK);
+            }
+        }
+    }
+
     private void showExplanations(Map<String, ArrayList<String>> explanations) {
 
         explanations.forEach((key, value) -> {
@@ -632,6 +1657,184 @@ public class AnalysisOperator {
         });
     }
 
+    // EXPLANATIONS OF THE ANOMALIES
+    /**
+     * @return the anomalies found by the last run in the order of the detection
+     */
+    public List<Anomaly> getAnomalies() {
+        return Collections.unmodifiableList(anomalies);
+    }
+
+    /**
+     * Compute the diagnoses of the given anomaly, unless they are already computed.
+     *
+     * @param anomaly - an anomaly found by the last run
+     * @return the explanations of the anomaly, one for each diagnosis
+     */
+    public List<String> explain(Anomaly anomaly) {
+        if (anomaly == null) throw new NullPointerException("The anomaly have to be not null!");
+
+        if (!anomaly.isExplained()) {
+            synchronized (modelLock) {
+                if (!anomaly.isExplained()) {
+                    computeDiagnoses(model, anomaly);
+                }
+            }
+        }
+
+        Map<String, ArrayList<String>> explanations = new LinkedHashMap<>();
+        createExplanations(anomaly, explanations);
+        return explanations.get(anomaly.getFeature().getName());
+    }
+
+    /**
+     * Compute the diagnoses of the given anomalies, unless they are already computed.
+     *
+     * @param anomalies - anomalies found by the last run
+     * @return the explanations of the anomalies in the given order
+     */
+    public Map<Anomaly, List<String>> explainAll(Collection<Anomaly> anomalies) {
+        Map<Anomaly, List<String>> explanations = new LinkedHashMap<>();
+        for (Anomaly anomaly : anomalies) {
+            explanations.put(anomaly, explain(anomaly));
+        }
+        return explanations;
+    }
+
+    /**
+     * Compute the diagnoses of all anomalies of the last run by a background thread,
+     * in the order of the detection. The anomalies which are explained meanwhile
+     * by {@link #explain(Anomaly)} are skipped. The next run cancels the remaining anomalies.
+     *
+     * @return a future which completes when all anomalies are explained
+     */
+    public Future<?> explainInBackground() {
+        if (explanationExecutor == null) {
+            explanationExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "explanations");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        List<Anomaly> anomalies = this.anomalies;
+        return explanationExecutor.submit(() -> {
+            for (Anomaly anomaly : anomalies) {
+                if (Thread.currentThread().isInterrupted()) return;
+                explain(anomaly);
+            }
+        });
+    }
+
+    /**
+     * Show the explanations of the given anomaly, computing them if necessary.
+     *
+     * @param anomaly - an anomaly found by the last run
+     */
+    public void showExplanations(Anomaly anomaly) {
+        explain(anomaly);
+
+        Map<String, ArrayList<String>> explanations = new LinkedHashMap<>();
+        createExplanations(anomaly, explanations);
+        showExplanations(explanations);
+    }
+
+    private void stopExplanations() {
+        if (explanationExecutor != null) {
+            explanationExecutor.shutdownNow();
+            explanationExecutor = null;
+        }
+    }
+
+    // compute the diagnoses of the anomaly under the assumptions of the check in the eager mode,
+    // the grouped anomalies are explained after the grouping
+    private void explainDuringDetection(ChocoModel model, Anomaly anomaly) {
+        if (explanationMode == ExplanationMode.EAGER && !isGrouped(anomaly)) {
+            anomaly.setDiagnoses(calculateAllDiagnoses(model, getTitle(anomaly)));
+        }
+    }
+
+    private boolean isGrouped(Anomaly anomaly) {
+        return rootCauses != null
+                && (anomaly.getType() == DEAD || anomaly.getType() == FULLMANDATORY);
+    }
+
+    // compute the diagnoses of the anomaly, or of its root cause, on the given model
+    private void computeDiagnoses(ChocoModel model, Anomaly anomaly) {
+        Anomaly cause = anomaly.getCause();
+        if (cause != null) {
+            if (!cause.isExplained()) {
+                computeDiagnoses(model, cause);
+            }
+            anomaly.setDiagnoses(cause.getDiagnoses());
+            return;
+        }
+
+        for (Map.Entry<String, Boolean> assumption : anomaly.getAssumptions().entrySet()) {
+            model.addAssumption(model.getVarWithName(assumption.getKey()), assumption.getValue());
+        }
+        try {
+            anomaly.setDiagnoses(calculateAllDiagnoses(model, getTitle(anomaly)));
+        } finally {
+            model.resetCstrs();
+        }
+    }
+
+    // cluster the anomalies by their root causes and, in the eager mode,
+    // compute the diagnoses of the roots, in parallel if there are workers
+    private void groupByRootCause(Collection<Anomaly> anomalies) throws FeatureModelException {
+        if (rootCauses == null) return;
+
+        List<Anomaly> roots = rootCauses.group(anomalies);
+        numOfGroupedAnomalies += anomalies.size();
+        numOfRootCauses += roots.size();
+
+        if (explanationMode != ExplanationMode.EAGER) return;
+
+        if (executor == null) {
+            for (Anomaly root : roots) {
+                computeDiagnoses(model, root);
+            }
+        } else {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Anomaly root : roots) {
+                futures.add(executor.submit(() -> {
+                    ChocoModel m = models.take();
+                    try {
+                        computeDiagnoses(m, root);
+                    } finally {
+                        models.put(m);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                getResult(future);
+            }
+        }
+
+        for (Anomaly anomaly : anomalies) {
+            if (anomaly.getCause() != null) {
+                anomaly.setDiagnoses(anomaly.getCause().getDiagnoses());
+            }
+        }
+    }
+
+    private void addAnomaly(Anomaly anomaly, Map<String, ArrayList<String>> explanations) {
+        anomalies.add(anomaly);
+        createExplanations(anomaly, explanations);
+    }
+
+    private void createExplanations(Anomaly anomaly, Map<String, ArrayList<String>> explanations) {
+        String name = anomaly.getFeature().getName();
+        explanations.put(name, new ArrayList<>());
+        if (!anomaly.isExplained()) return;
+
+        createExplanations(anomaly.getDiagnoses(), name, explanations);
+        if (anomaly.getCause() != null) {
+            explanations.get(name).add("Root cause: " + anomaly.getCause().getFeature().getName());
+        }
+    }
+
     private void createExplanations(List<List<Constraint>> allDiag,
                                     String anomaly,
                                     Map<String, ArrayList<String>> explanations) {
@@ -646,13 +1849,33 @@ public class AnalysisOperator {
         }
 
         addCountingForExplanations(ex);
+
+        if (allDiag instanceof DiagnosisEnumerator.Result) {
+            DiagnosisEnumerator.Status status = ((DiagnosisEnumerator.Result) allDiag).getStatus();
+            if (status != DiagnosisEnumerator.Status.COMPLETE) {
+                ex.add(getTruncationNote(status));
+            }
+        }
+    }
+
+    private String getTruncationNote(DiagnosisEnumerator.Status status) {
+        switch (status) {
+            case TRUNCATED_BY_COUNT:
+                return "Truncated: only the first " + maxDiagnoses + " diagnoses are shown";
+            case TRUNCATED_BY_CARDINALITY:
+                return "Truncated: diagnoses with more than " + maxCardinality + " constraints are not shown";
+            default:
+                return "Truncated: the time limit of " + diagnosisTimeLimit + " ms is reached";
+        }
     }
 
     private String createDiagnosis(List<Constraint> diag) {
         StringBuilder s = new StringBuilder("[");
+        // a relationship with several constraints is shown once
+        Set<Relationship> shown = new HashSet<>();
         for (Constraint cstr: diag) {
-            Relationship r = featureModel.getRelationship(cstr.toString());
-            if (r != null) {
+            Relationship r = model.getRelationship(cstr);
+            if (r != null && shown.add(r)) {
                 s.append(r.getConfRule()).append(",");
             }
         }
@@ -675,7 +1898,34 @@ public class AnalysisOperator {
         explanations.addAll(temp);
     }
 
-    private List<List<Constraint>> calculateAllDiagnoses() {
+    // the constraints of each relationship in the order of their first constraints
+    private List<List<Constraint>> groupByRelationship(ChocoModel model, List<Constraint> c) {
+        Map<Relationship, List<Constraint>> groups = new LinkedHashMap<>();
+        List<List<Constraint>> ungrouped = new ArrayList<>();
+        for (Constraint cstr : c) {
+            Relationship r = model.getRelationship(cstr);
+            if (r != null) {
+                groups.computeIfAbsent(r, k -> new ArrayList<>()).add(cstr);
+            } else {
+                ungrouped.add(Collections.singletonList(cstr));
+            }
+        }
+        List<List<Constraint>> result = new ArrayList<>(groups.values());
+        result.addAll(ungrouped);
+        return result;
+    }
+
+    // the diagnoses of the anomaly, or null if a check is stopped by a limit
+    private List<List<Constraint>> calculateAllDiagnoses(ChocoModel model, String anomaly) {
+        try {
+            return calculateAllDiagnoses(model);
+        } catch (CheckLimitException e) {
+            addUndecided("Explanations of " + anomaly, e);
+            return null;
+        }
+    }
+
+    private List<List<Constraint>> calculateAllDiagnoses(ChocoModel model) {
         List<Constraint> c = new ArrayList<>(model.getCF());
         // reverse order before call FastDiag
         Collections.reverse(c);
@@ -684,7 +1934,7 @@ public class AnalysisOperator {
 //        System.out.println(model.getNbCstrs());
 //        printConstraints(model);
 
-        List<Constraint> ac = Arrays.asList(model.getCstrs());
+        List<Constraint> ac = model.getAC();
         // reverse order before call FastDiag
         Collections.reverse(ac);
 
@@ -693,15 +1943,62 @@ public class AnalysisOperator {
 //        printConstraints(model);
 
         // run the fastDiag to find diagnoses
-        List<List<Constraint>> allDiag = new ArrayList<>();
-
-        List<Constraint> diag = FastDiag.fastDiag(c, ac, model);
-
-//        System.out.println("After first fastDiag----------------");
-//        System.out.println(model.getNbCstrs());
-//        printConstraints(model);
+        FastDiagV4 fastDiag;
+        if (diagnosisExecutor != null && parallelExpansion) {
+            fastDiag = new LevelParallelFastDiag(model, checkers.get(model), diagnosisExecutor, diagnosisWorkers);
+        } else if (diagnosisExecutor != null) {
+            fastDiag = new ParallelFastDiag(model, checkers.get(model), diagnosisExecutor, diagnosisWorkers, lookAhead);
+        } else {
+            fastDiag = new FastDiagV4(checkers.get(model));
+        }
 
-        FastDiag.calculateAllDiagnoses(diag, c, ac, model, allDiag);
+        DiagnosisStrategySelector.Statistics statistics = DiagnosisStrategySelector.computeStatistics(model, c);
+        DiagnosisStrategy.Type type = automaticStrategy ? strategySelector.select(statistics) : diagnosisStrategy;
+
+        List<List<Constraint>> allDiag;
+        if (isBoundedEnumeration()) {
+            DiagnosisEnumerator enumerator = new DiagnosisEnumerator(fastDiag);
+            enumerator.setMaxDiagnoses(maxDiagnoses);
+            enumerator.setMaxCardinality(maxCardinality);
+            enumerator.setTimeLimit(diagnosisTimeLimit);
+            DiagnosisEnumerator.Result result;
+            if (type == DiagnosisStrategy.Type.QUICKXPLAIN) {
+                result = enumerator.findGroupDiagnoses(groupByRelationship(model, c), ac);
+                addConflictStatistics(enumerator);
+            } else {
+                result = enumerator.findDiagnoses(c, ac);
+            }
+            if (!result.isComplete()) {
+                addTruncatedEnumeration();
+            }
+            allDiag = result;
+        } else {
+            long time = System.nanoTime();
+            switch (type) {
+                case FASTDIAG:
+                    allDiag = new FastDiag(checkers.get(model)).findAllDiagnoses(c, ac);
+                    break;
+                case FASTDIAG_V3:
+                    allDiag = new FastDiagV3(model, checkers.get(model)).findAllDiagnoses(c, ac);
+                    break;
+                case HS_TREE:
+                    HSTree tree = new HSTree(fastDiag);
+                    allDiag = tree.findAllDiagnoses(c, ac);
+                    addHSTreeStatistics(tree);
+                    break;
+                case QUICKXPLAIN:
+                    DiagnosisEnumerator enumerator = new DiagnosisEnumerator(fastDiag);
+                    allDiag = enumerator.findGroupDiagnoses(groupByRelationship(model, c), ac);
+                    addConflictStatistics(enumerator);
+                    break;
+                default:
+                    allDiag = fastDiag.findAllDiagnoses(c, ac);
+            }
+            strategySelector.record(statistics, type, System.nanoTime() - time);
+        }
+        if (fastDiag instanceof ParallelFastDiag) {
+            addSpeculationStatistics((ParallelFastDiag) fastDiag);
+        }
 
 //        System.out.println("After calculating all diagnoses----------------");
 //        System.out.println(model.getNbCstrs());
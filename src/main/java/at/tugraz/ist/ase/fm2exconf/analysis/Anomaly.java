@@ -0,0 +1,115 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.Feature;
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An anomaly of a feature found by the {@link AnalysisOperator}.
+ *
+ * The anomaly keeps the assumptions of the inconsistent check, e.g. {f = true} for a dead feature,
+ * so that its diagnoses can be computed later, when its explanations are requested.
+ * The diagnoses are cached once computed.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class Anomaly {
+
+    private Feature feature;
+    private Feature.AnomalyType type;
+
+    // the values of the features assumed by the check, in the order of the check
+    private Map<String, Boolean> assumptions = new LinkedHashMap<>();
+
+    // true if the anomaly is inferred from the structure of the feature model, false if solved
+    private boolean inferred = false;
+
+    // the root of the cluster of the anomaly, null if the anomaly is a root
+    private Anomaly cause;
+
+    // null until the anomaly is explained
+    private volatile List<List<Constraint>> diagnoses;
+
+    public Anomaly(Feature feature, Feature.AnomalyType type) {
+        this.feature = feature;
+        this.type = type;
+    }
+
+    public Feature getFeature() {
+        return feature;
+    }
+
+    public Feature.AnomalyType getType() {
+        return type;
+    }
+
+    void addAssumption(Feature feature, boolean value) {
+        assumptions.put(feature.getName(), value);
+    }
+
+    /**
+     * @return the values of the features assumed by the check, in the order of the check
+     */
+    public Map<String, Boolean> getAssumptions() {
+        return Collections.unmodifiableMap(assumptions);
+    }
+
+    /**
+     * @return true if the anomaly is inferred from the structure of the feature model,
+     * see {@link StructuralInference}, false if it is found by the solver
+     */
+    public boolean isInferred() {
+        return inferred;
+    }
+
+    void setInferred(boolean inferred) {
+        this.inferred = inferred;
+    }
+
+    /**
+     * @return the root cause of the anomaly, whose diagnoses are shared by the anomaly,
+     * or null if the anomaly has its own diagnoses, see {@link RootCauseGrouping}
+     */
+    public Anomaly getCause() {
+        return cause;
+    }
+
+    void setCause(Anomaly cause) {
+        this.cause = cause;
+    }
+
+    /**
+     * @return true if the diagnoses of the anomaly are computed
+     */
+    public boolean isExplained() {
+        return diagnoses != null;
+    }
+
+    /**
+     * @return the diagnoses of the anomaly, or null if they aren't computed yet
+     */
+    public List<List<Constraint>> getDiagnoses() {
+        return diagnoses;
+    }
+
+    void setDiagnoses(List<List<Constraint>> diagnoses) {
+        this.diagnoses = diagnoses;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + feature.getName();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.variables.BoolVar;
+
+import java.util.*;
+
+/**
+ * Computes the backbone of a {@link ChocoModel}, i.e. the features which have
+ * the same value in all configurations. A feature which is always false is dead,
+ * and a feature which is always true is full mandatory.
+ *
+ * The backbone is computed with the iterative algorithm: solve once,
+ * then try to flip the value of each remaining candidate. A new solution drops
+ * all candidates whose values differ, and a failed flip proves a backbone literal.
+ * So the number of solver calls is at most n + 1, and usually much smaller
+ * than the number of per-feature checks.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class Backbone {
+
+    private ChocoModel model;
+    // index of features in the breadth-first order
+    private Map<String, Integer> indexes;
+
+    // features which are true/false in all solutions
+    private BitSet trueFeatures;
+    private BitSet falseFeatures;
+    // the true features of the solutions found during the computation
+    private List<BitSet> solutions;
+
+    private int numOfSolverCalls = 0;
+
+    // the features with inferred values, which aren't flipped
+    private StructuralInference inference;
+    // maps the features to the features of a reduced model
+    private FeatureModelReduction reduction;
+
+    public Backbone(ChocoModel model) {
+        this.model = model;
+
+        BoolVar[] featureVars = model.getFeatureVars();
+        indexes = new HashMap<>();
+        for (int i = 0; i < featureVars.length; i++) {
+            indexes.put(featureVars[i].getName(), i);
+        }
+        trueFeatures = new BitSet(featureVars.length);
+        falseFeatures = new BitSet(featureVars.length);
+        solutions = new ArrayList<>();
+    }
+
+    /**
+     * Skip the flips of the features whose values are inferred by the given {@link StructuralInference},
+     * since they are in the backbone anyway.
+     *
+     * @param inference - a {@link StructuralInference} of the feature model of the model
+     */
+    public void setInference(StructuralInference inference) {
+        this.inference = inference;
+    }
+
+    /**
+     * Answer the queries about the features of the original feature model
+     * by their representatives, when the model is a reduced model, see {@link FeatureModelReduction}.
+     *
+     * @param reduction - the reduction of the feature model to the feature model of the model
+     */
+    public void setReduction(FeatureModelReduction reduction) {
+        this.reduction = reduction;
+    }
+
+    /**
+     * Compute the backbone of the initial set of constraints of the model.
+     * The model is reset after each check.
+     *
+     * @return false if the model is inconsistent, true otherwise
+     */
+    public boolean compute() {
+        BoolVar[] featureVars = model.getFeatureVars();
+
+        model.resetCstrs();
+        numOfSolverCalls++;
+        if (!model.isConsistent()) {
+            return false;
+        }
+        BitSet first = model.getSolution();
+        solutions.add(first);
+
+        // the candidates take the values of the first solution
+        trueFeatures = (BitSet) first.clone();
+        falseFeatures = new BitSet(featureVars.length);
+        falseFeatures.set(0, featureVars.length);
+        falseFeatures.andNot(first);
+
+        for (int i = 0; i < featureVars.length; i++) {
+            boolean value = trueFeatures.get(i);
+            if (!value && !falseFeatures.get(i)) continue; // dropped by a solution
+            if (inference != null && inference.isDecided(featureVars[i].getName())) continue;
+
+            // try to flip the candidate
+            model.addAssumption(featureVars[i], !value);
+            numOfSolverCalls++;
+            if (model.isConsistent()) {
+                // drop all candidates which differ in the new solution
+                BitSet solution = model.getSolution();
+                solutions.add(solution);
+                trueFeatures.and(solution);
+                falseFeatures.andNot(solution);
+            }
+            model.resetCstrs();
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the feature is true in all solutions, i.e. it is full mandatory
+     */
+    public boolean isTrue(String feature) {
+        return trueFeatures.get(index(feature));
+    }
+
+    /**
+     * @return true if the feature is false in all solutions, i.e. it is dead
+     */
+    public boolean isFalse(String feature) {
+        return falseFeatures.get(index(feature));
+    }
+
+    /**
+     * Check whether a solution found during the computation has
+     * the first feature false and the second feature true.
+     *
+     * @return true if such a solution is found
+     */
+    public boolean hasSolution(String falseFeature, String trueFeature) {
+        int f = index(falseFeature);
+        int t = index(trueFeature);
+        for (BitSet solution : solutions) {
+            if (!solution.get(f) && solution.get(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int index(String feature) {
+        return indexes.get(reduction != null ? reduction.getRepresentative(feature) : feature);
+    }
+
+    public int getNumOfTrueFeatures() {
+        return trueFeatures.cardinality();
+    }
+
+    public int getNumOfFalseFeatures() {
+        return falseFeatures.cardinality();
+    }
+
+    public int getNumOfSolutions() {
+        return solutions.size();
+    }
+
+    public int getNumOfSolverCalls() {
+        return numOfSolverCalls;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+/**
+ * Thrown by a {@link SolverBackend} when a consistency check reaches one of its {@link CheckLimits},
+ * so the check is neither consistent nor inconsistent. The checked item is undecided,
+ * and the result of the check is not cached.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class CheckLimitException extends RuntimeException {
+
+    private String reason;
+
+    /**
+     * @param reason - the reached limit, e.g. "the node limit of 1000 is reached"
+     */
+    public CheckLimitException(String reason) {
+        super("The check is stopped, " + reason + "!");
+        this.reason = reason;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
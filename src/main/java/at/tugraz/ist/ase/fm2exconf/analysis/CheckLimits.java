@@ -0,0 +1,182 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The resource limits of the consistency checks of an analysis, which are shared by the
+ * {@link SolverBackend}s of all models of the analysis.
+ *
+ * Each check is limited by the time, the number of search nodes, of fails and of backtracks.
+ * The Choco backend stops its search by a stop criterion on these measures, the SAT backend
+ * counts the decisions as nodes and the conflicts as fails and backtracks. Besides, all checks
+ * together are limited by the budget of the analysis, see {@link #startBudget()}.
+ * A check which reaches a limit throws a {@link CheckLimitException}, i.e. its result is unknown.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class CheckLimits {
+
+    // 0 means no limit
+    private volatile long timeLimit = 0;
+    private volatile long nodeLimit = 0;
+    private volatile long failLimit = 0;
+    private volatile long backtrackLimit = 0;
+    private volatile long budget = 0;
+
+    // the end of the budget in System.nanoTime(), 0 means no budget
+    private volatile long deadline = 0;
+
+    private AtomicLong numOfStoppedChecks = new AtomicLong();
+
+    /**
+     * @param timeLimit - the time limit of a check in milliseconds, 0 means no limit
+     */
+    public void setTimeLimit(long timeLimit) {
+        if (timeLimit < 0) throw new IllegalArgumentException("The time limit have to be at least 0!");
+        this.timeLimit = timeLimit;
+    }
+
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * @param nodeLimit - the maximum number of search nodes of a check, 0 means no limit
+     */
+    public void setNodeLimit(long nodeLimit) {
+        if (nodeLimit < 0) throw new IllegalArgumentException("The node limit have to be at least 0!");
+        this.nodeLimit = nodeLimit;
+    }
+
+    public long getNodeLimit() {
+        return nodeLimit;
+    }
+
+    /**
+     * @param failLimit - the maximum number of fails of a check, 0 means no limit
+     */
+    public void setFailLimit(long failLimit) {
+        if (failLimit < 0) throw new IllegalArgumentException("The fail limit have to be at least 0!");
+        this.failLimit = failLimit;
+    }
+
+    public long getFailLimit() {
+        return failLimit;
+    }
+
+    /**
+     * @param backtrackLimit - the maximum number of backtracks of a check, 0 means no limit
+     */
+    public void setBacktrackLimit(long backtrackLimit) {
+        if (backtrackLimit < 0) throw new IllegalArgumentException("The backtrack limit have to be at least 0!");
+        this.backtrackLimit = backtrackLimit;
+    }
+
+    public long getBacktrackLimit() {
+        return backtrackLimit;
+    }
+
+    /**
+     * @param budget - the time of all checks of an analysis in milliseconds, 0 means no limit
+     */
+    public void setBudget(long budget) {
+        if (budget < 0) throw new IllegalArgumentException("The budget have to be at least 0!");
+        this.budget = budget;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return true if no limit is set
+     */
+    public boolean isUnlimited() {
+        return timeLimit == 0 && nodeLimit == 0 && failLimit == 0 && backtrackLimit == 0 && budget == 0;
+    }
+
+    /**
+     * Start the budget of an analysis.
+     */
+    public void startBudget() {
+        deadline = budget > 0 ? System.nanoTime() + budget * 1000000 : 0;
+        numOfStoppedChecks.set(0);
+    }
+
+    /**
+     * End the budget of an analysis, the later checks are only limited one by one.
+     */
+    public void endBudget() {
+        deadline = 0;
+    }
+
+    /**
+     * @return true if the budget of the analysis is used up
+     */
+    public boolean isBudgetExhausted() {
+        long deadline = this.deadline;
+        return deadline != 0 && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * Start a check.
+     *
+     * @return the deadline of the check in System.nanoTime(), 0 means no deadline
+     * @throws CheckLimitException when the budget of the analysis is used up
+     */
+    long startCheck() throws CheckLimitException {
+        long now = System.nanoTime();
+        long deadline = this.deadline;
+        if (deadline != 0 && now - deadline >= 0) {
+            throw stop("the analysis budget of " + budget + " ms is used up");
+        }
+
+        long checkDeadline = timeLimit > 0 ? now + timeLimit * 1000000 : 0;
+        if (deadline != 0 && (checkDeadline == 0 || deadline - checkDeadline < 0)) {
+            checkDeadline = deadline;
+        }
+        return checkDeadline;
+    }
+
+    /**
+     * @param nodes - the number of search nodes of the check
+     * @param fails - the number of fails of the check
+     * @param backtracks - the number of backtracks of the check
+     * @param checkDeadline - the deadline of the check, see {@link #startCheck()}
+     * @return the reached limit, or null if no limit is reached
+     */
+    String getReachedLimit(long nodes, long fails, long backtracks, long checkDeadline) {
+        if (nodeLimit > 0 && nodes >= nodeLimit) return "the node limit of " + nodeLimit + " is reached";
+        if (failLimit > 0 && fails >= failLimit) return "the fail limit of " + failLimit + " is reached";
+        if (backtrackLimit > 0 && backtracks >= backtrackLimit) return "the backtrack limit of " + backtrackLimit + " is reached";
+        if (checkDeadline != 0 && System.nanoTime() - checkDeadline >= 0) {
+            return isBudgetExhausted() ? "the analysis budget of " + budget + " ms is used up"
+                    : "the time limit of " + timeLimit + " ms is reached";
+        }
+        return null;
+    }
+
+    /**
+     * @param reason - the reached limit
+     * @return the exception of a stopped check
+     */
+    CheckLimitException stop(String reason) {
+        numOfStoppedChecks.incrementAndGet();
+        return new CheckLimitException(reason);
+    }
+
+    /**
+     * @return the number of checks stopped by a limit since the start of the analysis
+     */
+    public long getNumOfStoppedChecks() {
+        return numOfStoppedChecks.get();
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.util.ESat;
+import org.chocosolver.util.criteria.Criterion;
+
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * A {@link SolverBackend} using the Choco solver, version 4.10.2, of the {@link ChocoModel} itself.
+ *
+ * In the incremental mode, a check assumes the selectors of the checked clauses in a new world
+ * of the environment, otherwise all constraints are unposted and the checked constraints are posted.
+ * The search of a check is stopped by a stop criterion of the solver on the {@link CheckLimits}.
+ * If the {@link SearchProfile} of the model has restarts, the search of a check is restarted
+ * by the Luby sequence on its fails, the limits count the nodes, fails and backtracks of all restarts.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class ChocoBackend implements SolverBackend {
+
+    private ChocoModel model;
+
+    // records the solutions of the checks of all constraints
+    private WitnessTracker witnessTracker;
+    // the true features of the last solution with a witness
+    private BitSet solution;
+
+    private CheckLimits limits;
+    // stops the search when a limit is reached, it is added to the solver for each check
+    private Criterion limitCriterion;
+    // the deadline of the current check, and the limit which stopped it
+    private long checkDeadline;
+    private String reachedLimit;
+
+    // stops the search of a restart when its fails reach the cutoff
+    private Criterion restartCriterion;
+    private long restartCutoff;
+    private boolean restarted;
+    // the nodes, fails and backtracks of the previous restarts of the current check
+    private long nodeOffset;
+    private long failOffset;
+    private long backtrackOffset;
+
+    public ChocoBackend(ChocoModel model) {
+        this.model = model;
+        restartCriterion = () -> {
+            restarted = model.getSolver().getFailCount() >= restartCutoff;
+            return restarted;
+        };
+    }
+
+    @Override
+    public boolean isConsistent(Collection<Constraint> constraints, boolean witness) {
+        model.getSolver().reset();
+        if (!model.isIncremental()) {
+            model.unpost(model.getCstrs());
+            for (Constraint c : constraints) {
+                model.post(c);
+            }
+            return solve(witness);
+        }
+
+        // assume the selectors in a new world,
+        // which is restored after the check, also if the check is stopped
+        boolean consistent;
+        model.getEnvironment().worldPush();
+        try {
+            for (Constraint c : constraints) {
+                model.getSelector(c).setToTrue(Cause.Null);
+            }
+            consistent = solve(witness);
+        } catch (ContradictionException e) {
+            consistent = false;
+        } finally {
+            model.getSolver().reset();
+            model.getEnvironment().worldPop();
+        }
+        return consistent;
+    }
+
+    /**
+     * Run the initial propagation of the solver in a new world of the environment,
+     * which is restored after the check, see {@link org.chocosolver.solver.Solver#propagate()}.
+     */
+    @Override
+    public ESat propagate(Collection<Constraint> constraints, boolean witness) {
+        model.getSolver().reset();
+        if (!model.isIncremental()) {
+            model.unpost(model.getCstrs());
+            for (Constraint c : constraints) {
+                model.post(c);
+            }
+        }
+
+        ESat result;
+        model.getEnvironment().worldPush();
+        try {
+            if (model.isIncremental()) {
+                for (Constraint c : constraints) {
+                    model.getSelector(c).setToTrue(Cause.Null);
+                }
+            }
+            model.getSolver().propagate();
+
+            result = ESat.TRUE;
+            for (BoolVar v : model.getFeatureVars()) {
+                if (!v.isInstantiated()) {
+                    result = ESat.UNDEFINED;
+                    break;
+                }
+            }
+            if (result == ESat.TRUE && witness) {
+                recordSolution();
+            }
+        } catch (ContradictionException e) {
+            result = ESat.FALSE;
+        }
+        model.getSolver().reset();
+        model.getEnvironment().worldPop();
+        return result;
+    }
+
+    /**
+     * Solve the model. The solution is a witness only if the checked constraints
+     * include all constraints of the model, i.e. they are not a subset used by a diagnosis.
+     *
+     * @param witness - true if the solution should be kept and recorded by the {@link WitnessTracker}
+     * @return true if a solution is found, false otherwise
+     * @throws CheckLimitException when the search is stopped by a limit
+     */
+    private boolean solve(boolean witness) throws CheckLimitException {
+        Solver solver = model.getSolver();
+        boolean restarts = model.getSearchProfile().isRestarts();
+        if (limits == null && !restarts) {
+            return keepSolution(solver.solve(), witness);
+        }
+
+        if (limits != null) {
+            checkDeadline = limits.startCheck();
+            solver.addStopCriterion(limitCriterion);
+        }
+        reachedLimit = null;
+        nodeOffset = failOffset = backtrackOffset = 0;
+        boolean consistent;
+        try {
+            consistent = restarts ? solveWithRestarts(solver) : solver.solve();
+        } finally {
+            if (limits != null) {
+                solver.removeStopCriterion(limitCriterion);
+            }
+        }
+        if (!consistent && reachedLimit != null) {
+            throw limits.stop(reachedLimit);
+        }
+        return keepSolution(consistent, witness);
+    }
+
+    // restart the search when the fails of a restart reach the next cutoff of the Luby sequence,
+    // the reset of the solver restores the world of the assumed selectors,
+    // the next restart differs by the dom/wdeg weights, see SearchProfile
+    private boolean solveWithRestarts(Solver solver) {
+        solver.addStopCriterion(restartCriterion);
+        try {
+            for (int i = 0; ; i++) {
+                restartCutoff = (long) (SatSolver.luby(2, i) * SearchProfile.DEFAULT_RESTART_SCALE);
+                restarted = false;
+                if (solver.solve()) {
+                    return true;
+                }
+                if (!restarted || reachedLimit != null) {
+                    return false;
+                }
+
+                nodeOffset += solver.getNodeCount();
+                failOffset += solver.getFailCount();
+                backtrackOffset += solver.getBackTrackCount();
+                solver.reset();
+            }
+        } finally {
+            solver.removeStopCriterion(restartCriterion);
+        }
+    }
+
+    // keep the solution of a check with a witness, and the phases of the search profile
+    private boolean keepSolution(boolean consistent, boolean witness) {
+        if (consistent) {
+            model.savePhases();
+            if (witness) {
+                recordSolution();
+            }
+        }
+        return consistent;
+    }
+
+    // keep the values of the feature variables as the last solution
+    private void recordSolution() {
+        BoolVar[] featureVars = model.getFeatureVars();
+        solution = new BitSet(featureVars.length);
+        for (int i = 0; i < featureVars.length; i++) {
+            if (featureVars[i].getValue() == 1) {
+                solution.set(i);
+            }
+        }
+
+        if (witnessTracker != null) {
+            witnessTracker.record(solution);
+        }
+    }
+
+    @Override
+    public BitSet getSolution() {
+        return solution;
+    }
+
+    /**
+     * The tracker also selects the values of the search, so that later solves prefer
+     * the values not yet covered. Without a tracker, the search of the profile is restored.
+     */
+    @Override
+    public void setWitnessTracker(WitnessTracker witnessTracker) {
+        this.witnessTracker = witnessTracker;
+        model.setFeatureSearch(witnessTracker);
+    }
+
+    @Override
+    public void setLimits(CheckLimits limits) {
+        this.limits = limits;
+        limitCriterion = limits == null ? null : () -> {
+            Solver solver = model.getSolver();
+            reachedLimit = limits.getReachedLimit(nodeOffset + solver.getNodeCount(),
+                    failOffset + solver.getFailCount(), backtrackOffset + solver.getBackTrackCount(), checkDeadline);
+            return reachedLimit != null;
+        };
+    }
+
+    @Override
+    public void reset() {
+        model.getSolver().reset();
+        if (!model.isIncremental()) { // the guarded clauses stay posted
+            model.unpost(model.getCstrs());
+        }
+    }
+}
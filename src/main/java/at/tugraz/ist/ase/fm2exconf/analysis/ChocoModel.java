@@ -8,29 +8,72 @@
 
 package at.tugraz.ist.ase.fm2exconf.analysis;
 
+import at.tugraz.ist.ase.fm2exconf.core.Feature;
 import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
 import at.tugraz.ist.ase.fm2exconf.core.Relationship;
 import org.apache.commons.collections4.ListUtils;
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.constraints.nary.cnf.ILogical;
 import org.chocosolver.solver.constraints.nary.cnf.LogOp;
+import org.chocosolver.solver.constraints.nary.cnf.LogicTreeToolBox;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.search.strategy.selectors.values.IntDomainMin;
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.search.strategy.selectors.variables.DomOverWDeg;
+import org.chocosolver.solver.search.strategy.selectors.variables.InputOrder;
 import org.chocosolver.solver.variables.BoolVar;
-import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.solver.variables.IntVar;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 
 /**
  * An extension class of {@link Model} of ChocoSolver library.
  * It performs the consistency checking and the configuration determination
  * on the basic of a {@link FeatureModel}.
  *
+ * In the incremental mode, each clause of the model is guarded by a selector literal
+ * {not s \/ clause} and stays posted for the whole analysis. A consistency check
+ * then assumes the selectors of the checked clauses in a new world of the environment,
+ * instead of unposting and reposting all constraints of the model.
+ *
+ * The consistency checks are delegated to a {@link SolverBackend},
+ * which is a {@link ChocoBackend} by default.
+ *
+ * The ALTERNATIVE and OR relationships are encoded as chosen by {@link GroupEncoding}.
+ * Each encoding keeps the constraints of a relationship together,
+ * see {@link #setConstraintsToRelationship(int, int, Relationship)}.
+ *
+ * The features and the constraints of the relationships are looked up by
+ * a {@link SymbolTable}, which can be shared by the models of the same feature model.
+ *
  * @author Viet-Man Le (vietman.le@ist.tugraz.at)
  */
 public class ChocoModel extends Model {
 
+    /**
+     * The encoding of the ALTERNATIVE and OR relationships.
+     */
+    public enum GroupEncoding {
+        PAIRWISE, // one iff for each child, quadratic in the size of an alternative group
+        LADDER, // clauses over auxiliary ladder variables, linear in the size of the group
+        NATIVE // one sum or max constraint of ChocoSolver, requires the non-incremental mode
+    }
+
     private FeatureModel featureModel;
+    private SymbolTable symbols;
+    // the feature variables in the breadth-first order, i.e. by the ids of the features
+    private BoolVar[] featureVars;
+    // the id of each feature variable
+    private Map<BoolVar, Integer> featureIds;
+    // the id of each feature variable by the id of the variable in the model, -1 for the other variables,
+    // which is used by the value selectors on each branching decision
+    private int[] featureIdsByVar;
+    private int firstFeatureVar;
+    // the constraints of each relationship
+    private Map<Relationship, List<Constraint>> relationshipCstrs;
+    // the negation of each relationship, created on the first request
+    private Map<Relationship, List<Constraint>> notCstrs;
     // a set of feature model constraints,
     // without the constraint for the root feature
     // {f0 = true}
@@ -40,6 +83,37 @@ public class ChocoModel extends Model {
     // {f0 = true}
     private List<Constraint> ac;
 
+    // the search of the checks with the Choco backend
+    private SearchProfile searchProfile = SearchProfile.DEFAULT;
+    // the witness tracker which selects the values of the search, null if the profile selects the values
+    private WitnessTracker searchTracker;
+    // the true features of the last solution, for the phase saving
+    private BitSet phases;
+
+    // true if clauses are guarded by selector literals
+    private boolean incremental;
+    private GroupEncoding groupEncoding;
+    // number of auxiliary variables of the ladder encoding
+    private int numOfAuxVars = 0;
+    // the selector literal of each guarded clause
+    private Map<Constraint, BoolVar> selectors;
+    // the literals of each guarded clause, without the selector
+    private Map<Constraint, BoolVar[]> clauseLiterals;
+    // the guarded unit clauses {fi = true} and {fi = false},
+    // created once for each literal
+    private Map<BoolVar, Constraint> trueLiterals;
+    private Map<BoolVar, Constraint> falseLiterals;
+    // the keys of the clauses of CF and of the guarded unit clauses,
+    // which identify the corresponding constraints of other models
+    private Map<Constraint, Integer> keys;
+    // the unit clauses assumed for the current check
+    private List<Constraint> assumptions;
+
+    // the solver which checks the consistency
+    private SolverBackend backend;
+    // records the solutions of the checks of all constraints
+    private WitnessTracker witnessTracker;
+
     /**
      * A constructor
      * On the basic of a given {@link FeatureModel}, it creates
@@ -51,11 +125,81 @@ public class ChocoModel extends Model {
      * @throws IllegalArgumentException when couldn't find the corresponding variable on the model
      */
     public ChocoModel(FeatureModel fm) throws NullPointerException, IllegalArgumentException {
+        this(fm, false);
+    }
+
+    /**
+     * A constructor
+     * On the basic of a given {@link FeatureModel}, it creates
+     * corresponding variables and constraints for the model.
+     *
+     * @param fm - a {@link FeatureModel}
+     * @param incremental - true if the clauses should be guarded by selector literals
+     *
+     * @throws NullPointerException when the input is null
+     * @throws IllegalArgumentException when couldn't find the corresponding variable on the model
+     */
+    public ChocoModel(FeatureModel fm, boolean incremental) throws NullPointerException, IllegalArgumentException {
+        this(fm, incremental, GroupEncoding.PAIRWISE);
+    }
+
+    /**
+     * A constructor
+     * On the basic of a given {@link FeatureModel}, it creates
+     * corresponding variables and constraints for the model.
+     *
+     * @param fm - a {@link FeatureModel}
+     * @param incremental - true if the clauses should be guarded by selector literals
+     * @param groupEncoding - the encoding of the ALTERNATIVE and OR relationships
+     *
+     * @throws NullPointerException when the input is null
+     * @throws IllegalArgumentException when couldn't find the corresponding variable on the model,
+     * or when the native encoding is used in the incremental mode
+     */
+    public ChocoModel(FeatureModel fm, boolean incremental, GroupEncoding groupEncoding) throws NullPointerException, IllegalArgumentException {
+        this(fm, incremental, groupEncoding, fm == null ? null : new SymbolTable(fm));
+    }
+
+    /**
+     * A constructor
+     * On the basic of a given {@link FeatureModel}, it creates
+     * corresponding variables and constraints for the model.
+     *
+     * @param fm - a {@link FeatureModel}
+     * @param incremental - true if the clauses should be guarded by selector literals
+     * @param groupEncoding - the encoding of the ALTERNATIVE and OR relationships
+     * @param symbols - the {@link SymbolTable} of the feature model, shared with the other models
+     *
+     * @throws NullPointerException when the input is null
+     * @throws IllegalArgumentException when couldn't find the corresponding variable on the model,
+     * when the native encoding is used in the incremental mode,
+     * or when the symbol table belongs to another feature model
+     */
+    public ChocoModel(FeatureModel fm, boolean incremental, GroupEncoding groupEncoding, SymbolTable symbols) throws NullPointerException, IllegalArgumentException {
         if (fm == null) throw new NullPointerException("The feature model have to be not null!");
+        if (groupEncoding == null) throw new NullPointerException("The group encoding have to be not null!");
+        if (symbols == null) throw new NullPointerException("The symbol table have to be not null!");
+        if (symbols.getFeatureModel() != fm)
+            throw new IllegalArgumentException("The symbol table have to belong to the feature model!");
+        if (incremental && groupEncoding == GroupEncoding.NATIVE)
+            throw new IllegalArgumentException("The native encoding requires a model in the non-incremental mode!");
 
         this.featureModel = fm;
+        this.symbols = symbols;
+        this.incremental = incremental;
+        this.groupEncoding = groupEncoding;
         setName(fm.getName());
 
+        selectors = new HashMap<>();
+        clauseLiterals = new HashMap<>();
+        trueLiterals = new HashMap<>();
+        falseLiterals = new HashMap<>();
+        keys = new HashMap<>();
+        assumptions = new ArrayList<>();
+        featureIds = new IdentityHashMap<>();
+        relationshipCstrs = new IdentityHashMap<>();
+        notCstrs = new IdentityHashMap<>();
+
         createVariables();
         createConstraints();
 
@@ -63,10 +207,210 @@ public class ChocoModel extends Model {
         cf.addAll(Arrays.asList(this.getCstrs()));
 
         // {f0 = true}
-        addClauseTrue(getVarWithName(featureModel.getName()));
+        if (incremental) {
+            for (int i = 0; i < cf.size(); i++) {
+                keys.put(cf.get(i), i);
+            }
+
+            ac = new ArrayList<Constraint>(cf);
+            ac.add(getLiteral(getVarWithName(featureModel.getName()), true));
+
+            // branch on the feature variables only,
+            // the selectors are fixed by propagation once all features are instantiated
+            applySearch();
+        } else {
+            addClauseTrue(getVarWithName(featureModel.getName()));
 
-        ac = new ArrayList<Constraint>();
-        ac.addAll(Arrays.asList(this.getCstrs()));
+            ac = new ArrayList<Constraint>();
+            ac.addAll(Arrays.asList(this.getCstrs()));
+        }
+
+        backend = new ChocoBackend(this);
+    }
+
+    /**
+     * @return true if the model runs in the incremental mode
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * @return the {@link SymbolTable} of the feature model
+     */
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    /**
+     * @return the encoding of the ALTERNATIVE and OR relationships
+     */
+    public GroupEncoding getGroupEncoding() {
+        return groupEncoding;
+    }
+
+    /**
+     * @return the feature variables in the breadth-first order of features
+     */
+    public BoolVar[] getFeatureVars() {
+        return featureVars;
+    }
+
+    /**
+     * @return the {@link SolverBackend} which checks the consistency
+     */
+    public SolverBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Set the {@link SolverBackend} which checks the consistency.
+     * The {@link WitnessTracker} of the model is passed to the backend.
+     *
+     * @param backend - a {@link SolverBackend}
+     */
+    public void setBackend(SolverBackend backend) {
+        if (backend == null) throw new NullPointerException("The backend have to be not null!");
+
+        this.backend = backend;
+        backend.setWitnessTracker(witnessTracker);
+    }
+
+    /**
+     * Set a {@link WitnessTracker} which records the solution of each consistent
+     * check of {@link #isConsistent()}. The tracker also decides the preferred values
+     * of the search, so that later solves prefer the values not yet covered.
+     *
+     * @param witnessTracker - a {@link WitnessTracker} or null
+     */
+    public void setWitnessTracker(WitnessTracker witnessTracker) {
+        this.witnessTracker = witnessTracker;
+        backend.setWitnessTracker(witnessTracker);
+    }
+
+    /**
+     * Return the last solution found by {@link #isConsistent()}
+     * in the form of the indexes of the true features in the breadth-first order.
+     *
+     * @return a {@link BitSet} of the true features, or null if there is no solution yet
+     */
+    public BitSet getSolution() {
+        return backend.getSolution();
+    }
+
+    /**
+     * Branch on the feature variables in the order of the {@link SearchProfile}
+     * preferring the values which are not yet covered by the witnesses of the given tracker,
+     * see {@link #setSearchProfile(SearchProfile)}.
+     *
+     * @param witnessTracker - a {@link WitnessTracker}, null to use only the value order of the profile
+     */
+    void setFeatureSearch(WitnessTracker witnessTracker) {
+        searchTracker = witnessTracker;
+        applySearch();
+    }
+
+    /**
+     * Set the search of the checks with the Choco backend. With a {@link WitnessTracker},
+     * a feature which is not yet true in a witness is tried true first, and the values
+     * of the other features follow the value order of the profile.
+     * The restarts are run by the {@link ChocoBackend}.
+     *
+     * @param searchProfile - a {@link SearchProfile}
+     */
+    public void setSearchProfile(SearchProfile searchProfile) {
+        if (searchProfile == null) throw new NullPointerException("The search profile have to be not null!");
+        if (searchProfile.equals(this.searchProfile)) return;
+
+        this.searchProfile = searchProfile;
+        applySearch();
+    }
+
+    public SearchProfile getSearchProfile() {
+        return searchProfile;
+    }
+
+    // branch on the feature variables only
+    private void applySearch() {
+        IntValueSelector valueSelector = searchProfile.getValueOrder() == SearchProfile.ValueOrder.PHASE_SAVING
+                ? this::selectPhase : new IntDomainMin();
+        if (searchTracker != null) {
+            IntValueSelector profileSelector = valueSelector;
+            valueSelector = var -> selectWitnessValue(var, profileSelector);
+        }
+
+        switch (searchProfile.getVariableOrder()) {
+            case BF:
+                getSolver().setSearch(Search.intVarSearch(new InputOrder<>(this), valueSelector, featureVars));
+                break;
+            case DF:
+                getSolver().setSearch(Search.intVarSearch(new InputOrder<>(this), valueSelector, getDepthFirstFeatureVars()));
+                break;
+            default:
+                getSolver().setSearch(Search.lastConflict(new DomOverWDeg(featureVars, 0, valueSelector)));
+        }
+    }
+
+    // the feature variables in the depth-first order of the feature tree,
+    // the features which are not reached from the root follow in the breadth-first order
+    private BoolVar[] getDepthFirstFeatureVars() {
+        BoolVar[] vars = new BoolVar[featureVars.length];
+        boolean[] visited = new boolean[featureVars.length];
+        int n = 0;
+
+        Deque<Feature> stack = new ArrayDeque<>();
+        stack.push(featureModel.getFeature(0));
+        while (!stack.isEmpty()) {
+            Feature feature = stack.pop();
+            int id = symbols.getId(feature.getName());
+            if (visited[id]) continue;
+            visited[id] = true;
+            vars[n++] = featureVars[id];
+
+            List<Feature> children = featureModel.getRightSideOfRelationships(feature);
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+        for (int id = 0; id < featureVars.length; id++) {
+            if (!visited[id]) vars[n++] = featureVars[id];
+        }
+        return vars;
+    }
+
+    // true for a feature which is not yet true in a witness, otherwise the value of the profile
+    private int selectWitnessValue(IntVar var, IntValueSelector profileSelector) {
+        int id = getFeatureId(var);
+        if (id >= 0 && searchTracker.isPreferredTrue(id)) {
+            return var.getUB();
+        }
+        return profileSelector.selectValue(var);
+    }
+
+    // the value of a feature in the last solution, false if there is no solution yet
+    private int selectPhase(IntVar var) {
+        int id = getFeatureId(var);
+        BitSet phases = this.phases;
+        if (id >= 0 && phases != null && phases.get(id)) {
+            return var.getUB();
+        }
+        return var.getLB();
+    }
+
+    /**
+     * Save the values of the feature variables in the current solution for the phase saving.
+     * It is called by the {@link ChocoBackend} after each consistent check.
+     */
+    void savePhases() {
+        if (searchProfile.getValueOrder() != SearchProfile.ValueOrder.PHASE_SAVING) return;
+
+        BitSet solution = new BitSet(featureVars.length);
+        for (int i = 0; i < featureVars.length; i++) {
+            if (featureVars[i].getValue() == 1) {
+                solution.set(i);
+            }
+        }
+        phases = solution;
     }
 
     /**
@@ -85,9 +429,117 @@ public class ChocoModel extends Model {
      * @return the set of background knowledge in the form of List<Constraint>
      */
     public List<Constraint> getB() {
-        List<Constraint> AC = Arrays.asList(this.getCstrs());
+        return ListUtils.subtract(getAC(), cf);
+    }
 
-        return ListUtils.subtract(AC, cf);
+    /**
+     * Return the set of all constraints of the current check,
+     * i.e. the initial set which includes the constraint {f0 = true}
+     * and the assumptions added by {@link #addAssumption(BoolVar, boolean)}.
+     *
+     * @return the set of all constraints in the form of List<Constraint>
+     */
+    public List<Constraint> getAC() {
+        if (incremental) {
+            List<Constraint> constraints = new ArrayList<>(ac);
+            constraints.addAll(assumptions);
+            return constraints;
+        }
+        return new ArrayList<>(Arrays.asList(this.getCstrs()));
+    }
+
+    /**
+     * Add the unit clause {var = value} to the current check.
+     * In the incremental mode, the guarded unit clause is only assumed,
+     * otherwise the clause is posted to the model.
+     * The clause is removed by {@link #resetCstrs()}.
+     *
+     * @param var - a variable of the model
+     * @param value - the value assumed for the variable
+     */
+    public void addAssumption(BoolVar var, boolean value) {
+        if (incremental) {
+            assumptions.add(getLiteral(var, value));
+        } else if (value) {
+            addClauseTrue(var);
+        } else {
+            addClauseFalse(var);
+        }
+    }
+
+    /**
+     * Check the consistency of the current check,
+     * i.e. of the constraints returned by {@link #getAC()}.
+     *
+     * @return true if the constraints are consistent, false otherwise
+     */
+    public boolean isConsistent() {
+        return backend.isConsistent(getAC(), true);
+    }
+
+    /**
+     * Check the consistency of a given set of constraints of the model.
+     * In the incremental mode, the check assumes the selectors of the given constraints,
+     * otherwise all constraints are unposted and the given constraints are posted.
+     *
+     * @param constraints - a set of constraints of the model
+     * @return true if the constraints are consistent, false otherwise
+     */
+    public boolean isConsistent(Collection<Constraint> constraints) {
+        return backend.isConsistent(constraints, false);
+    }
+
+    /**
+     * @param c - a guarded clause of the model in the incremental mode
+     * @return the selector literal of the clause
+     */
+    BoolVar getSelector(Constraint c) {
+        return selectors.get(c);
+    }
+
+    /**
+     * @param c - a guarded clause of the model in the incremental mode
+     * @return the literals of the clause, without the selector literal
+     * @throws IllegalArgumentException when the constraint is not a guarded clause of the model
+     */
+    BoolVar[] getClause(Constraint c) throws IllegalArgumentException {
+        BoolVar[] clause = clauseLiterals.get(c);
+        if (clause == null)
+            throw new IllegalArgumentException("The constraint " + c + " is not a guarded clause of the model!");
+        return clause;
+    }
+
+    /**
+     * Return the key of a constraint of the model in the incremental mode.
+     * The key identifies the corresponding constraint of another model
+     * of the same feature model, see {@link #getCstrWithKey(int)}.
+     * The key of a clause of CF is its position in CF, the key of
+     * a guarded unit clause {fi = value} is negative.
+     *
+     * @param c - a clause of CF or a guarded unit clause of the model
+     * @return the key of the constraint
+     * @throws IllegalArgumentException when the constraint has no key
+     */
+    int getCstrKey(Constraint c) throws IllegalArgumentException {
+        Integer key = keys.get(c);
+        if (key == null)
+            throw new IllegalArgumentException("The constraint " + c + " has no key in the model!");
+        return key;
+    }
+
+    /**
+     * Return the constraint of the model with a given key,
+     * a guarded unit clause is created on the first request.
+     *
+     * @param key - a key returned by {@link #getCstrKey(Constraint)} of a model of the same feature model
+     * @return the constraint with the key
+     */
+    Constraint getCstrWithKey(int key) {
+        if (key >= 0) {
+            return cf.get(key);
+        }
+        int literal = -key - 1;
+        return getLiteral(featureVars[literal / 2], literal % 2 == 1);
     }
 
     /**
@@ -96,6 +548,10 @@ public class ChocoModel extends Model {
      */
     public void resetCstrs() {
         getSolver().reset(); // reset the solver
+        if (incremental) { // the guarded clauses stay posted
+            assumptions.clear();
+            return;
+        }
         unpost(getCstrs()); // remove all actual constraints
         for (int j=0; j< ac.size(); j++) // reset the initial set of constraints
         {
@@ -108,13 +564,31 @@ public class ChocoModel extends Model {
      * corresponding variables for the model.
      */
     private void createVariables() {
-        BoolVar[] x = new BoolVar[featureModel.getNumOfFeatures()];
+        featureVars = new BoolVar[featureModel.getNumOfFeatures()];
         for (int i = 0; i < featureModel.getNumOfFeatures(); i++)
         {
-            x[i] = this.boolVar(featureModel.getFeature(i).getName());
+            featureVars[i] = this.boolVar(featureModel.getFeature(i).getName());
+            featureIds.put(featureVars[i], i);
+        }
+
+        int lastFeatureVar = firstFeatureVar = featureVars[0].getId();
+        for (BoolVar var : featureVars) {
+            firstFeatureVar = Math.min(firstFeatureVar, var.getId());
+            lastFeatureVar = Math.max(lastFeatureVar, var.getId());
+        }
+        featureIdsByVar = new int[lastFeatureVar - firstFeatureVar + 1];
+        Arrays.fill(featureIdsByVar, -1);
+        for (int i = 0; i < featureVars.length; i++) {
+            featureIdsByVar[featureVars[i].getId() - firstFeatureVar] = i;
         }
     }
 
+    // the id of a feature variable, -1 if the variable is not a feature variable
+    private int getFeatureId(IntVar var) {
+        int i = var.getId() - firstFeatureVar;
+        return i >= 0 && i < featureIdsByVar.length ? featureIdsByVar[i] : -1;
+    }
+
     /**
      * On the basic of a given {@link FeatureModel}, this function creates
      * corresponding constraints for the model.
@@ -132,29 +606,45 @@ public class ChocoModel extends Model {
                 case MANDATORY:
                     rightVar = getVarWithName(relationship.getRightSide().get(0));
                     // leftVar <=> rightVar
-                    addClauses(LogOp.ifOnlyIf(leftVar, rightVar));
+                    addRule(LogOp.ifOnlyIf(leftVar, rightVar));
 
                     newNumCstrs = this.getNbCstrs();
                     break;
                 case OPTIONAL:
                     rightVar = getVarWithName(relationship.getRightSide().get(0));
                     // leftVar => rightVar
-                    this.addClauses(LogOp.implies(leftVar, rightVar));
+                    addRule(LogOp.implies(leftVar, rightVar));
 
                     newNumCstrs = this.getNbCstrs();
                     break;
                 case OR:
-                    // LogOp of rule {A \/ B \/ ... \/ C}
-                    LogOp rightLogOp = getRightSideOfOrRelationship(relationship.getRightSide());
-                    // leftVar <=> rightLogOp
-                    this.addClauses(LogOp.ifOnlyIf(leftVar, rightLogOp));
+                    if (groupEncoding == GroupEncoding.NATIVE) {
+                        // leftVar = max(A, B, ..., C)
+                        max(leftVar, getVarsWithNames(relationship.getRightSide())).post();
+                    } else {
+                        // the CNF of this rule is linear in the size of the group
+                        // LogOp of rule {A \/ B \/ ... \/ C}
+                        LogOp rightLogOp = getRightSideOfOrRelationship(relationship.getRightSide());
+                        // leftVar <=> rightLogOp
+                        addRule(LogOp.ifOnlyIf(leftVar, rightLogOp));
+                    }
 
                     newNumCstrs = this.getNbCstrs();
                     break;
                 case ALTERNATIVE:
-                    // LogOp of an ALTERNATIVE relationship
-                    LogOp op = getLogOpOfAlternativeRelationship(relationship);
-                    this.addClauses(op);
+                    switch (groupEncoding) {
+                        case NATIVE:
+                            // A + B + ... + C = leftVar
+                            sum(getVarsWithNames(relationship.getRightSide()), "=", leftVar).post();
+                            break;
+                        case LADDER:
+                            addRule(getLadderOfAlternativeRelationship(relationship));
+                            break;
+                        default:
+                            // LogOp of an ALTERNATIVE relationship
+                            LogOp op = getLogOpOfAlternativeRelationship(relationship);
+                            addRule(op);
+                    }
 
                     newNumCstrs = this.getNbCstrs();
                     break;
@@ -173,11 +663,11 @@ public class ChocoModel extends Model {
             switch (relationship.getType())
             {
                 case REQUIRES:
-                    this.addClauses(LogOp.implies(leftVar, rightVar));
+                    addRule(LogOp.implies(leftVar, rightVar));
                     newNumCstrs = this.getNbCstrs();
                     break;
                 case EXCLUDES:
-                    this.addClauses(LogOp.or(LogOp.nor(leftVar), LogOp.nor(rightVar)));
+                    addRule(LogOp.or(LogOp.nor(leftVar), LogOp.nor(rightVar)));
                     newNumCstrs = this.getNbCstrs();
                     break;
             }
@@ -187,14 +677,17 @@ public class ChocoModel extends Model {
     }
 
     /**
-     * Given a constraint of {@link FeatureModel}, this function convert it into
+     * Given a relationship or a constraint of {@link FeatureModel}, this function convert it into
      * a negative constraint and post the new constraint to the model.
      *
      * ChocoSolver could convert one input constraint into multiple rules
      * in the form that ChocoSolver could process. Thus, the output of this function
      * have to be a list of {@link Constraint}.
      *
-     * @param constraint - a constraint of {@link FeatureModel}
+     * The negation of an ALTERNATIVE relationship is linear in the number of children,
+     * it uses auxiliary variables which occur only in the negation.
+     *
+     * @param constraint - a relationship or a constraint of {@link FeatureModel}
      * @return a list of ChocoSolver constraints that represent the given constraint
      * @throws IllegalArgumentException when couldn't find the corresponding variable in the model
      */
@@ -202,34 +695,194 @@ public class ChocoModel extends Model {
         int old_NbCstrs = this.getNbCstrs();
 
         BoolVar leftVar = getVarWithName(constraint.getLeftSide());
-        BoolVar rightVar = getVarWithName(constraint.getRightSide().get(0));
+        BoolVar[] rightVars = getVarsWithNames(constraint.getRightSide());
 
         // create a negative constraint on the basic of the type of the given constraint
         // and add to the model
         switch (constraint.getType())
         {
             case REQUIRES:
-                this.addClauses(LogOp.and(leftVar, LogOp.nor(rightVar)));
+            case OPTIONAL:
+                addRule(LogOp.and(leftVar, LogOp.nor(rightVars[0])));
                 break;
             case EXCLUDES:
-                this.addClauses(LogOp.and(leftVar, rightVar));
+                addRule(LogOp.and(leftVar, rightVars[0]));
+                break;
+            case MANDATORY:
+                // leftVar xor rightVar
+                addRule(LogOp.and(LogOp.or(leftVar, rightVars[0]), LogOp.or(leftVar.not(), rightVars[0].not())));
+                break;
+            case OR:
+                addRule(getNotOfOrRelationship(leftVar, rightVars));
+                break;
+            case ALTERNATIVE:
+                addRule(getNotOfAlternativeRelationship(leftVar, rightVars));
                 break;
         }
 
         // take the created constraints
         List<Constraint> constraints = new ArrayList<>();
-        int num = this.getNbCstrs() - old_NbCstrs;
-        for (int i = 0; i < num; i++)
-            constraints.add(this.getCstrs()[old_NbCstrs + i]);
+        Constraint[] cstrs = this.getCstrs();
+        for (int i = old_NbCstrs; i < cstrs.length; i++)
+            constraints.add(cstrs[i]);
 
         // return the created constraints
         return constraints;
     }
 
     /**
-     * Add back the created constraints to the {@link Relationship}.
-     * It means that the {@link Relationship} holds references to the constraint in the ChocoSolver model.
+     * Return the negation of a relationship, see {@link #postNotConstraint(Relationship)},
+     * which is created once on the first request. The negation is removed by {@link #resetCstrs()}
+     * in the non-incremental mode, and is only checked when it is given to {@link #isConsistent(Collection)}.
+     *
+     * @param relationship - a relationship or a constraint of {@link FeatureModel}
+     * @return a list of ChocoSolver constraints that represent the negation
+     * @throws IllegalArgumentException when couldn't find the corresponding variable in the model
+     */
+    public List<Constraint> getNotCstrs(Relationship relationship) throws IllegalArgumentException {
+        List<Constraint> constraints = notCstrs.get(relationship);
+        if (constraints == null) {
+            constraints = Collections.unmodifiableList(postNotConstraint(relationship));
+            notCstrs.put(relationship, constraints);
+        }
+        return constraints;
+    }
+
+    /**
+     * Create a {@link LogOp} that represent the negation of an OR relationship.
+     * The form of rule is {(P \/ C1 \/ ... \/ Cn) /\ (not P \/ not C1) /\ ... /\ (not P \/ not Cn)},
+     * i.e. P xor (C1 \/ ... \/ Cn).
+     */
+    private LogOp getNotOfOrRelationship(BoolVar parentVar, BoolVar[] childVars) {
+        LogOp some = LogOp.or(parentVar);
+        LogOp op = LogOp.and(some);
+        for (BoolVar childVar : childVars) {
+            some.addChild(childVar);
+            op.addChild(LogOp.or(parentVar.not(), childVar.not()));
+        }
+        return op;
+    }
+
+    /**
+     * Create a {@link LogOp} that represent the negation of an ALTERNATIVE relationship.
+     * The relationship is violated either if P xor (C1 \/ ... \/ Cn), which is selected
+     * by the auxiliary variable M, or if at least two children are true, which is selected by T.
+     * The form of rule is {(M \/ T) /\ (the negation of the OR relationship guarded by M) /\
+     *                      (T => D2 \/ ... \/ Dn) /\ (Di => Si-1) /\ (Di => Ci) /\ (Si => Si-1 \/ Ci)},
+     * where Si implies that one of C1, ..., Ci is true, S1 is C1,
+     * and Di implies that Ci and one of the previous children are true.
+     */
+    private LogOp getNotOfAlternativeRelationship(BoolVar parentVar, BoolVar[] childVars) {
+        int n = childVars.length;
+
+        BoolVar mismatch = boolVar("#a" + numOfAuxVars++); // M
+        // {M => P \/ C1 \/ ... \/ Cn}
+        LogOp some = LogOp.or(mismatch.not(), parentVar);
+        LogOp op = LogOp.and(some);
+        for (BoolVar childVar : childVars) {
+            some.addChild(childVar);
+            // {M => not P \/ not Ci}
+            op.addChild(LogOp.or(mismatch.not(), parentVar.not(), childVar.not()));
+        }
+        if (n < 2) {
+            op.addChild(LogOp.or(mismatch));
+            return op;
+        }
+
+        BoolVar twoOrMore = boolVar("#a" + numOfAuxVars++); // T
+        op.addChild(LogOp.or(mismatch, twoOrMore));
+        LogOp pairs = LogOp.or(twoOrMore.not());
+        BoolVar previous = childVars[0]; // S1
+        for (int i = 1; i < n; i++) {
+            BoolVar pair = boolVar("#a" + numOfAuxVars++); // Di
+            op.addChild(LogOp.or(pair.not(), previous));
+            op.addChild(LogOp.or(pair.not(), childVars[i]));
+            pairs.addChild(pair);
+            if (i == n - 1) break;
+
+            BoolVar current = boolVar("#a" + numOfAuxVars++); // Si
+            op.addChild(LogOp.or(current.not(), previous, childVars[i]));
+            previous = current;
+        }
+        op.addChild(pairs);
+        return op;
+    }
+
+    /**
+     * Add a rule to the model. In the incremental mode, each clause of the rule
+     * is guarded by a new selector literal {not s \/ clause}.
+     *
+     * @param op - a {@link LogOp} that represent the rule
+     */
+    private void addRule(LogOp op) {
+        if (!incremental) {
+            addClauses(op);
+            return;
+        }
+
+        ILogical cnf = LogicTreeToolBox.toCNF(op, this);
+        ILogical[] clauses;
+        if (!cnf.isLit() && ((LogOp) cnf).is(LogOp.Operator.AND)) {
+            clauses = ((LogOp) cnf).getChildren();
+        } else {
+            clauses = new ILogical[]{cnf};
+        }
+
+        for (ILogical clause : clauses) {
+            BoolVar selector = boolVar("#s" + selectors.size());
+            BoolVar[] literals = clause.isLit()
+                    ? new BoolVar[]{(BoolVar) clause}
+                    : ((LogOp) clause).flattenBoolVar();
+
+            int oldNumCstrs = this.getNbCstrs();
+            // {not s \/ clause}
+            addClauses(LogOp.or(clause, selector.not()));
+
+            Constraint[] constraints = this.getCstrs();
+            for (int i = oldNumCstrs; i < constraints.length; i++) {
+                selectors.put(constraints[i], selector);
+                clauseLiterals.put(constraints[i], literals);
+            }
+        }
+    }
+
+    /**
+     * Return the guarded unit clause {var = value}, which is created on the first request.
+     *
+     * @param var - a variable of the model
+     * @param value - the value of the variable
+     * @return the guarded unit clause
+     */
+    private Constraint getLiteral(BoolVar var, boolean value) {
+        Map<BoolVar, Constraint> literals = value ? trueLiterals : falseLiterals;
+        Constraint literal = literals.get(var);
+        if (literal == null) {
+            int oldNumCstrs = this.getNbCstrs();
+            addRule(LogOp.and(value ? var : var.not()));
+            literal = this.getCstrs()[oldNumCstrs];
+            literals.put(var, literal);
+            keys.put(literal, -(2 * getFeatureIndex(var) + (value ? 1 : 0)) - 1);
+        }
+        return literal;
+    }
+
+    /**
+     * @return the index of a feature variable in the breadth-first order
+     */
+    private int getFeatureIndex(BoolVar var) {
+        Integer id = featureIds.get(var);
+        if (id == null)
+            throw new IllegalArgumentException("The variable " + var.getName() + " is not a feature variable!");
+        return id;
+    }
+
+    /**
+     * Map the created constraints to the {@link Relationship}.
+     * The model keeps the constraints of the relationship, see {@link #getCstrs(Relationship)},
+     * and the {@link SymbolTable} maps each constraint back to the relationship.
      * This allows us to reuse the constraints without recreating.
+     * The relationship only keeps a reference to the constraints, their texts are created
+     * on request by {@link Relationship#getConstraints()}, so the models don't print their constraints.
      *
      * @param oldNumCstrs - the number of old constraints
      * @param newNumCstrs - the number of all constraints
@@ -237,11 +890,34 @@ public class ChocoModel extends Model {
      */
     private void setConstraintsToRelationship(int oldNumCstrs, int newNumCstrs, Relationship relationship) {
         Constraint[] constraints = this.getCstrs();
-        for (int i = 0; i < constraints.length; i++) {
-            if (oldNumCstrs != newNumCstrs && i >= oldNumCstrs && i < newNumCstrs) {
-                relationship.setConstraint(constraints[i].toString());
-            }
+        List<Constraint> created = new ArrayList<>(newNumCstrs - oldNumCstrs);
+        for (int i = oldNumCstrs; i < newNumCstrs; i++) {
+            created.add(constraints[i]);
+            symbols.addConstraint(constraints[i], relationship);
         }
+        relationshipCstrs.put(relationship, created);
+        relationship.setConstraintSource(created);
+    }
+
+    /**
+     * @param relationship - a relationship or a constraint of the feature model
+     * @return the constraints of the model which represent the relationship
+     * @throws IllegalArgumentException when the relationship doesn't belong to the feature model
+     */
+    public List<Constraint> getCstrs(Relationship relationship) throws IllegalArgumentException {
+        List<Constraint> constraints = relationshipCstrs.get(relationship);
+        if (constraints == null)
+            throw new IllegalArgumentException("The relationship " + relationship.getConfRule() + " is not exist in the feature model!");
+        return Collections.unmodifiableList(constraints);
+    }
+
+    /**
+     * @param c - a constraint of a model of the feature model
+     * @return the {@link Relationship} of the constraint, or null if the constraint
+     * doesn't belong to a relationship
+     */
+    public Relationship getRelationship(Constraint c) {
+        return symbols.getRelationship(c);
     }
 
     /**
@@ -268,6 +944,50 @@ public class ChocoModel extends Model {
         return op;
     }
 
+    /**
+     * Create a {@link LogOp} that represent to an ALTERNATIVE relationship
+     * in the ladder encoding, which is linear in the number of children.
+     * The auxiliary variable Si is true iff one of C1, ..., Ci is true, and S1 is C1.
+     * The form of rule is {(C1 => P) /\ ... /\ (Cn => P) /\ (P => Sn-1 \/ Cn) /\
+     *                      (Si-1 => not Ci) for 1 < i <= n /\
+     *                      (Ci => Si) /\ (Si-1 => Si) /\ (Si => Si-1 \/ Ci) for 1 < i < n}
+     *
+     * Since the auxiliary variables are defined by the children, they are fixed by
+     * the propagation once the children are fixed.
+     *
+     * @param relationship - a {@link Relationship} of {@link FeatureModel}
+     * @return A {@link LogOp} that represent to an ALTERNATIVE relationship
+     * @throws IllegalArgumentException when couldn't find the corresponding variable in the model
+     */
+    private LogOp getLadderOfAlternativeRelationship(Relationship relationship) throws IllegalArgumentException {
+        BoolVar parentVar = getVarWithName(relationship.getLeftSide());
+        BoolVar[] childVars = getVarsWithNames(relationship.getRightSide());
+        int n = childVars.length;
+
+        LogOp op = LogOp.and(); // an LogOp of AND operators
+        // {Ci => P}
+        for (BoolVar childVar : childVars) {
+            op.addChild(LogOp.implies(childVar, parentVar));
+        }
+
+        BoolVar previous = childVars[0]; // S1
+        for (int i = 1; i < n; i++) {
+            // {Si-1 => not Ci}
+            op.addChild(LogOp.or(previous.not(), childVars[i].not()));
+            if (i == n - 1) break;
+
+            BoolVar current = boolVar("#a" + numOfAuxVars++); // Si
+            op.addChild(LogOp.implies(childVars[i], current));
+            op.addChild(LogOp.implies(previous, current));
+            op.addChild(LogOp.or(current.not(), previous, childVars[i]));
+            previous = current;
+        }
+        // {P => Sn-1 \/ Cn}
+        op.addChild(n > 1 ? LogOp.or(parentVar.not(), previous, childVars[n - 1])
+                : LogOp.implies(parentVar, previous));
+        return op;
+    }
+
     /**
      * Create a {@link LogOp} that represent the rule {(not C2 /\ ... /\ not Cn /\ P)}.
      * This is the right side of the rule {C1 <=> (not C2 /\ ... /\ not Cn /\ P)}
@@ -316,31 +1036,19 @@ public class ChocoModel extends Model {
      * @throws IllegalArgumentException when couldn't find the variable in the model
      */
     public BoolVar getVarWithName(String name) throws IllegalArgumentException {
-        Variable var = null;
-        for (Variable v : this.getVars()) {
-            if (v.getName().equals(name)) {
-                var = v;
-                break;
-            }
-        }
-        if (var == null)
-            throw new IllegalArgumentException("The feature " + name + " is not exist in the feature model!");
-        return (BoolVar) var;
+        return featureVars[symbols.getId(name)];
     }
 
     /**
-     * Return a {@link Constraint} in the model based on the text-based rule of that constraint.
-     *
-     * @param cstr - the text-based rule of a constraint
-     * @return a {@link Constraint} or null
-     * @throws IllegalArgumentException when couldn't find the constraint in the model
+     * @param names - feature names
+     * @return the corresponding ChocoSolver variables in the model
+     * @throws IllegalArgumentException when couldn't find a variable in the model
      */
-    public Constraint getCstr(String cstr) throws IllegalArgumentException {
-        Constraint[] constraints = this.getCstrs();
-        for (int i = 0; i < constraints.length; i++) {
-            if (constraints[i].toString().equals(cstr))
-                return constraints[i];
+    private BoolVar[] getVarsWithNames(List<String> names) throws IllegalArgumentException {
+        BoolVar[] vars = new BoolVar[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            vars[i] = getVarWithName(names.get(i));
         }
-        throw new IllegalArgumentException("The constraint " + cstr + " is not exist in the feature model!");
+        return vars;
     }
 }
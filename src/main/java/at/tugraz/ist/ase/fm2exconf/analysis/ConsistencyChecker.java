@@ -10,39 +10,100 @@ package at.tugraz.ist.ase.fm2exconf.analysis;
 
 import org.chocosolver.solver.constraints.Constraint;
 
-import java.util.Collection;
+import java.util.*;
 
 /**
- * A consistency checker implementation using the Choco solver, version 4.10.2.
+ * A consistency checker implementation using a {@link SolverBackend},
+ * e.g. the Choco solver, version 4.10.2, or an embedded SAT solver.
+ *
+ * The results of the checks are memoized in a bounded cache with LRU eviction,
+ * since the diagnosis algorithms check the same constraint sets many times.
+ * A constraint set is identified by a bitset over the ids of its constraints,
+ * so the order of the constraints doesn't matter. The ids of the constraints which
+ * no cached set contains anymore, e.g. the assumptions posted anew for each check
+ * of a non-incremental model, are dropped once the ids outgrow the cached sets.
+ * A check stopped by a limit
+ * of the backend, see {@link CheckLimits}, is not cached and throws a {@link CheckLimitException}.
  *
  * @author Viet-Man Le (vietman.le@ist.tugraz.at)
  */
 public class ConsistencyChecker {
 
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+    // the number of ids below which they are not compacted
+    private static final int MIN_COMPACTION_IDS = 1024;
+
     /**
-     * An internal models
+     * An internal solver
      */
-    private ChocoModel model;
+    private SolverBackend backend;
+
+    // the dense id of each checked constraint
+    private Map<Constraint, Integer> ids = new HashMap<>();
+    // the results of the checks in the access order
+    private Map<BitSet, Boolean> cache;
+    private int cacheSize;
+    // the number of ids after the last compaction
+    private int compactedIds = 0;
+
+    private long numOfHits = 0;
+    private long numOfMisses = 0;
+    private long numOfEvictions = 0;
 
-    public ConsistencyChecker(ChocoModel diagModel) {
-        this.model = diagModel;
+    public ConsistencyChecker(SolverBackend backend) {
+        this(backend, DEFAULT_CACHE_SIZE);
     }
 
-    public boolean isConsistent(Collection<Constraint> constraints) { //, boolean reuseModel) {
+    /**
+     * @param backend - a {@link SolverBackend}
+     * @param cacheSize - the maximum number of cached results, 0 disables the cache
+     */
+    public ConsistencyChecker(SolverBackend backend, int cacheSize) {
+        if (cacheSize < 0) throw new IllegalArgumentException("The cache size have to be at least 0!");
 
-        reset();
-        for (Constraint c : constraints) {
-            model.post(c);
+        this.backend = backend;
+        this.cacheSize = cacheSize;
+        cache = new LinkedHashMap<BitSet, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BitSet, Boolean> eldest) {
+                if (size() > ConsistencyChecker.this.cacheSize) {
+                    numOfEvictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isConsistent(Collection<Constraint> constraints) throws CheckLimitException { //, boolean reuseModel) {
+        BitSet key = null;
+        if (cacheSize > 0) {
+            key = getFingerprint(constraints);
+            Boolean cached = cache.get(key);
+            if (cached != null) {
+                numOfHits++;
+                return cached;
+            }
+            numOfMisses++;
         }
 
         // Call solve()
         try {
             // System.out.println("Start solve..");
 
-            boolean isFeasible = model.getSolver().solve();
+            boolean isFeasible = backend.isConsistent(constraints, false);
             // System.out.println("Solution: " + isFeasible);
 
+            if (key != null) {
+                cache.put(key, isFeasible);
+                if (ids.size() > 2 * Math.max(compactedIds, MIN_COMPACTION_IDS)) {
+                    compactIds();
+                }
+            }
             return isFeasible;
+        } catch (CheckLimitException e) {
+            // the result is unknown, not inconsistent
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             System.out.println("Exception here, " + e.getMessage());
@@ -50,12 +111,75 @@ public class ConsistencyChecker {
         }
     }
 
+    /**
+     * @return a bitset over the ids of the given constraints
+     */
+    private BitSet getFingerprint(Collection<Constraint> constraints) {
+        BitSet key = new BitSet(ids.size());
+        for (Constraint c : constraints) {
+            Integer id = ids.get(c);
+            if (id == null) {
+                id = ids.size();
+                ids.put(c, id);
+            }
+            key.set(id);
+        }
+        return key;
+    }
+
+    /**
+     * Drop the ids which no cached set contains, and renumber the remaining ids densely.
+     * The cached sets are rewritten in their access order, so the LRU order is kept.
+     */
+    private void compactIds() {
+        BitSet used = new BitSet(ids.size());
+        for (BitSet key : cache.keySet()) {
+            used.or(key);
+        }
+
+        int[] newIds = new int[ids.size()];
+        int next = 0;
+        for (int id = used.nextSetBit(0); id >= 0; id = used.nextSetBit(id + 1)) {
+            newIds[id] = next++;
+        }
+
+        ids.entrySet().removeIf(e -> !used.get(e.getValue()));
+        ids.replaceAll((c, id) -> newIds[id]);
+
+        Map<BitSet, Boolean> entries = new LinkedHashMap<>();
+        for (Map.Entry<BitSet, Boolean> e : cache.entrySet()) {
+            BitSet key = new BitSet(next);
+            BitSet old = e.getKey();
+            for (int id = old.nextSetBit(0); id >= 0; id = old.nextSetBit(id + 1)) {
+                key.set(newIds[id]);
+            }
+            entries.put(key, e.getValue());
+        }
+        cache.clear();
+        cache.putAll(entries);
+        compactedIds = ids.size();
+    }
+
+    public long getNumOfHits() {
+        return numOfHits;
+    }
+
+    public long getNumOfMisses() {
+        return numOfMisses;
+    }
+
+    public long getNumOfEvictions() {
+        return numOfEvictions;
+    }
+
     public void reset() {
-        model.getSolver().reset();
-        model.unpost(model.getCstrs());
+        backend.reset();
     }
 
     public void dispose() {
-        this.model = null;
+        this.backend = null;
+        cache.clear();
+        ids.clear();
+        compactedIds = 0;
     }
 }
@@ -0,0 +1,300 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The class enumerates the diagnoses one at a time in the order of increasing cardinality,
+ * with limits on the number of diagnoses, the maximum cardinality and the time.
+ *
+ * The diagnoses are the hitting sets of the minimal conflicts, so they are enumerated
+ * with a HS-tree of Reiter built breadth-first, whose nodes are labeled by the conflicts
+ * computed with {@link QuickXplain}. The node with the path H is a diagnosis if AC - H is consistent,
+ * and all diagnoses with k constraints are found at the level k of the tree.
+ * A known conflict disjoint from the path is reused as the label, the nodes with duplicate paths
+ * are closed, and the supersets of the found diagnoses are pruned.
+ *
+ * The elements of the diagnoses are either single constraints, see {@link #findDiagnoses(List, List)},
+ * or groups of constraints, e.g. the constraints of each relationship, see {@link #findGroupDiagnoses(List, List)}.
+ * The groups are fewer than the constraints, so the tree is smaller, and the diagnoses
+ * are minimal in terms of the relationships instead of their clauses.
+ *
+ * Each diagnosis is passed to a callback as soon as it is found. The result tells
+ * whether the enumeration is complete or truncated by one of the limits.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class DiagnosisEnumerator {
+
+    /**
+     * The state of an enumeration.
+     */
+    public enum Status {
+        COMPLETE, // all diagnoses are found
+        TRUNCATED_BY_COUNT, // the maximum number of diagnoses is reached
+        TRUNCATED_BY_CARDINALITY, // the diagnoses with more than the maximum cardinality are not enumerated
+        TRUNCATED_BY_TIME // the time limit is reached
+    }
+
+    /**
+     * The diagnoses found by an enumeration in the order of increasing cardinality,
+     * together with the {@link Status} of the enumeration.
+     */
+    public static class Result extends ArrayList<List<Constraint>> {
+        private Status status = Status.COMPLETE;
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return true if all diagnoses are found
+         */
+        public boolean isComplete() {
+            return status == Status.COMPLETE;
+        }
+    }
+
+    // provides the ids and the consistency checks of the constraints
+    private FastDiagV4 fastDiag;
+    // the ids of the constraints of each element, null if each element is a single constraint
+    private List<BitSet> groups;
+
+    // 0 means no limit
+    private int maxDiagnoses = 0;
+    private int maxCardinality = 0;
+    private long timeLimit = 0;
+
+    private long numOfConflicts = 0;
+    private long numOfReusedConflicts = 0;
+
+    /**
+     * @param fastDiag - a {@link FastDiagV4}, whose ids and consistency checks are used
+     */
+    public DiagnosisEnumerator(FastDiagV4 fastDiag) {
+        this.fastDiag = fastDiag;
+    }
+
+    /**
+     * @param maxDiagnoses - the maximum number of diagnoses, 0 means no limit
+     */
+    public void setMaxDiagnoses(int maxDiagnoses) {
+        if (maxDiagnoses < 0) throw new IllegalArgumentException("The maximum number of diagnoses have to be at least 0!");
+        this.maxDiagnoses = maxDiagnoses;
+    }
+
+    /**
+     * @param maxCardinality - the maximum number of constraints of a diagnosis, 0 means no limit
+     */
+    public void setMaxCardinality(int maxCardinality) {
+        if (maxCardinality < 0) throw new IllegalArgumentException("The maximum cardinality have to be at least 0!");
+        this.maxCardinality = maxCardinality;
+    }
+
+    /**
+     * The time limit is checked before each node of the tree is expanded, so the consistency checks
+     * and the conflict computation of a node aren't interrupted.
+     *
+     * @param timeLimit - the time limit in milliseconds, 0 means no limit
+     */
+    public void setTimeLimit(long timeLimit) {
+        if (timeLimit < 0) throw new IllegalArgumentException("The time limit have to be at least 0!");
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Find the diagnoses of C.
+     *
+     * @param C - the constraints which could be diagnosed, a subset of AC
+     * @param AC - all constraints
+     * @return the diagnoses in the order of increasing cardinality
+     */
+    public Result findDiagnoses(List<Constraint> C, List<Constraint> AC) {
+        return findDiagnoses(C, AC, diag -> {});
+    }
+
+    /**
+     * Find the diagnoses of C and pass each of them to the callback as soon as it is found.
+     *
+     * @param C - the constraints which could be diagnosed, a subset of AC
+     * @param AC - all constraints
+     * @param callback - receives the diagnoses in the order of increasing cardinality
+     * @return the diagnoses in the order of increasing cardinality
+     */
+    public Result findDiagnoses(List<Constraint> C, List<Constraint> AC, Consumer<List<Constraint>> callback) {
+        fastDiag.index(C, AC);
+        groups = null;
+        BitSet c = fastDiag.toBitSet(C);
+        BitSet b = FastDiagV4.difference(fastDiag.toBitSet(AC), c);
+        return enumerate(b, c, callback);
+    }
+
+    /**
+     * Find the diagnoses of the groups of constraints, each group is removed as a whole.
+     *
+     * @param groups - the disjoint groups of constraints which could be diagnosed, each a subset of AC
+     * @param AC - all constraints
+     * @return the diagnoses in the order of increasing cardinality, each diagnosis contains
+     * all constraints of its groups
+     */
+    public Result findGroupDiagnoses(List<List<Constraint>> groups, List<Constraint> AC) {
+        return findGroupDiagnoses(groups, AC, diag -> {});
+    }
+
+    /**
+     * Find the diagnoses of the groups of constraints and pass each of them to the callback
+     * as soon as it is found.
+     *
+     * @param groups - the disjoint groups of constraints which could be diagnosed, each a subset of AC
+     * @param AC - all constraints
+     * @param callback - receives the diagnoses in the order of increasing cardinality
+     * @return the diagnoses in the order of increasing cardinality, each diagnosis contains
+     * all constraints of its groups
+     */
+    public Result findGroupDiagnoses(List<List<Constraint>> groups, List<Constraint> AC, Consumer<List<Constraint>> callback) {
+        List<Constraint> C = new ArrayList<>();
+        for (List<Constraint> group : groups) {
+            C.addAll(group);
+        }
+        fastDiag.index(C, AC);
+
+        // the background is AC without the constraints of the groups,
+        // the id of a group is its position
+        this.groups = new ArrayList<>(groups.size());
+        BitSet b = fastDiag.toBitSet(AC);
+        for (List<Constraint> group : groups) {
+            BitSet ids = fastDiag.toBitSet(group);
+            b.andNot(ids);
+            this.groups.add(ids);
+        }
+        BitSet c = new BitSet(groups.size());
+        c.set(0, groups.size());
+        return enumerate(b, c, callback);
+    }
+
+    // b - the ids of the background constraints, c - the ids of the elements
+    private Result enumerate(BitSet b, BitSet c, Consumer<List<Constraint>> callback) {
+        long deadline = timeLimit > 0 ? System.nanoTime() + timeLimit * 1000000L : Long.MAX_VALUE;
+        Result result = new Result();
+
+        // there is no diagnosis if the background is inconsistent
+        if (!fastDiag.isConsistent(b)) {
+            return result;
+        }
+
+        // B is fixed, the conflicts consist of elements
+        QuickXplain quickXplain = new QuickXplain(elements -> isConsistent(b, elements));
+
+        SetTrie conflicts = new SetTrie();
+        SetTrie diagnoses = new SetTrie();
+        Set<BitSet> paths = new HashSet<>();
+
+        // the paths of the open nodes in the breadth-first order
+        Deque<BitSet> nodes = new ArrayDeque<>();
+        nodes.add(new BitSet());
+        while (!nodes.isEmpty()) {
+            BitSet path = nodes.peek();
+            if (maxCardinality > 0 && path.cardinality() > maxCardinality) {
+                if (hasExpandableNodes(nodes, diagnoses)) {
+                    result.status = Status.TRUNCATED_BY_CARDINALITY;
+                }
+                return result;
+            }
+            if (System.nanoTime() > deadline) {
+                if (hasExpandableNodes(nodes, diagnoses)) {
+                    result.status = Status.TRUNCATED_BY_TIME;
+                }
+                return result;
+            }
+            nodes.remove();
+
+            // a superset of a diagnosis is not minimal
+            if (diagnoses.containsSubsetOf(path)) continue;
+
+            BitSet rest = FastDiagV4.difference(c, path);
+            BitSet conflict = conflicts.findSubsetOf(rest);
+            if (conflict != null) {
+                numOfReusedConflicts++;
+            } else {
+                // consistent(AC - H), H is a diagnosis
+                if (isConsistent(b, rest)) {
+                    diagnoses.add(path);
+                    List<Constraint> diag = fastDiag.toConstraints(toIds(path).stream().toArray());
+                    result.add(diag);
+                    callback.accept(diag);
+
+                    if (maxDiagnoses > 0 && result.size() >= maxDiagnoses) {
+                        if (hasExpandableNodes(nodes, diagnoses)) {
+                            result.status = Status.TRUNCATED_BY_COUNT;
+                        }
+                        return result;
+                    }
+                    continue;
+                }
+
+                numOfConflicts++;
+                conflict = quickXplain.explain(new BitSet(), rest);
+                conflicts.add(conflict);
+            }
+
+            for (int id = conflict.nextSetBit(0); id >= 0; id = conflict.nextSetBit(id + 1)) {
+                BitSet childPath = (BitSet) path.clone();
+                childPath.set(id);
+                if (paths.add(childPath)) {
+                    nodes.add(childPath);
+                }
+            }
+        }
+        return result;
+    }
+
+    // true if an open node isn't a superset of a found diagnosis, i.e. it could lead to more diagnoses
+    private static boolean hasExpandableNodes(Deque<BitSet> nodes, SetTrie diagnoses) {
+        for (BitSet path : nodes) {
+            if (!diagnoses.containsSubsetOf(path)) return true;
+        }
+        return false;
+    }
+
+    // consistent(B ∪ elements)
+    private boolean isConsistent(BitSet b, BitSet elements) {
+        BitSet checked = toIds(elements);
+        checked.or(b);
+        return fastDiag.isConsistent(checked);
+    }
+
+    // the ids of the constraints of the elements
+    private BitSet toIds(BitSet elements) {
+        if (groups == null) return (BitSet) elements.clone();
+
+        BitSet ids = new BitSet();
+        for (int e = elements.nextSetBit(0); e >= 0; e = elements.nextSetBit(e + 1)) {
+            ids.or(groups.get(e));
+        }
+        return ids;
+    }
+
+    /**
+     * @return the number of conflicts computed by QuickXplain
+     */
+    public long getNumOfConflicts() {
+        return numOfConflicts;
+    }
+
+    /**
+     * @return the number of nodes labeled by a known conflict
+     */
+    public long getNumOfReusedConflicts() {
+        return numOfReusedConflicts;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An index of the diagnoses found so far, which answers the minimality and duplicate checks
+ * of the diagnosis algorithms through a {@link SetTrie}. The constraints get dense ids on first sight.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class DiagnosisIndex {
+
+    private Map<Constraint, Integer> ids = new HashMap<>();
+    private SetTrie trie = new SetTrie();
+
+    /**
+     * @param diag - a diagnosis
+     * @return false if the diagnosis is already in the index, true otherwise
+     */
+    public boolean add(Collection<Constraint> diag) {
+        return trie.add(toBitSet(diag));
+    }
+
+    /**
+     * @return true if the diagnosis is in the index
+     */
+    public boolean contains(Collection<Constraint> diag) {
+        return trie.contains(toBitSet(diag));
+    }
+
+    /**
+     * @return true if no diagnosis in the index is a subset of the given diagnosis
+     */
+    public boolean isMinimal(Collection<Constraint> diag) {
+        return !trie.containsSubsetOf(toBitSet(diag));
+    }
+
+    public int size() {
+        return trie.size();
+    }
+
+    private BitSet toBitSet(Collection<Constraint> diag) {
+        BitSet set = new BitSet(ids.size());
+        for (Constraint c : diag) {
+            Integer id = ids.get(c);
+            if (id == null) {
+                id = ids.size();
+                ids.put(c, id);
+            }
+            set.set(id);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.util.List;
+
+/**
+ * An algorithm which finds all diagnoses of an anomaly.
+ *
+ * The implementations are {@link FastDiag}, {@link FastDiagV3}, {@link FastDiagV4} and {@link HSTree},
+ * which find the diagnoses of the constraints, and the conflict-directed search of
+ * {@link DiagnosisEnumerator#findGroupDiagnoses(List, List)}, which finds the diagnoses of the relationships.
+ * A strategy is chosen for each anomaly by a {@link DiagnosisStrategySelector}.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public interface DiagnosisStrategy {
+
+    enum Type {
+        FASTDIAG, // the FastDiag tree on lists of constraints, see FastDiag
+        FASTDIAG_V3, // the MSS-based FastDiag on sets of constraints, see FastDiagV3
+        FASTDIAG_V4, // the FastDiag tree on the ids of the constraints, see FastDiagV4
+        HS_TREE, // the pruned HS-tree labeled by FastDiag, see HSTree
+        QUICKXPLAIN // the hitting sets of the QuickXplain conflicts of the relationships
+    }
+
+    /**
+     * Find all diagnoses of C.
+     *
+     * @param C - the constraints which could be diagnosed, a subset of AC
+     * @param AC - all constraints
+     * @return all diagnoses
+     */
+    List<List<Constraint>> findAllDiagnoses(List<Constraint> C, List<Constraint> AC);
+}
@@ -0,0 +1,278 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.Relationship;
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.util.*;
+
+/**
+ * Selects a {@link DiagnosisStrategy} for each anomaly from cheap statistics of the anomaly
+ * and from the timings of the strategies on the previous anomalies with similar statistics.
+ *
+ * The statistics are the number of the constraints of C, the size of their CNF, i.e. the number
+ * of the literals of the clauses, and the sizes of the groups of constraints of the relationships,
+ * see {@link Statistics}. Anomalies are similar if their statistics fall into the same bucket,
+ * i.e. they have the same orders of magnitude of the constraints and of the CNF size and
+ * the same rounded average group size. Each candidate strategy is tried once in a bucket,
+ * afterwards the candidate with the lowest average time in the bucket is selected.
+ * Before the timings of a bucket are known, {@link DiagnosisStrategy.Type#FASTDIAG_V4} is selected
+ * if it is a candidate.
+ *
+ * The candidates have to find the same diagnoses, so that the results don't depend on the selection.
+ * These are {@link DiagnosisStrategy.Type#FASTDIAG} and {@link DiagnosisStrategy.Type#FASTDIAG_V4} by default.
+ * {@link DiagnosisStrategy.Type#FASTDIAG_V3}, {@link DiagnosisStrategy.Type#HS_TREE} and
+ * {@link DiagnosisStrategy.Type#QUICKXPLAIN} find other sets of diagnoses, e.g. FastDiagV3 doesn't split
+ * a node with a single constraint, so they could only be the single candidate, which still records its timings.
+ *
+ * The timings are recorded for all strategies, also if a strategy is set explicitly,
+ * and are exposed by {@link #getTimings()}, so the default strategy can be chosen by measurements.
+ * The selector is thread-safe.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class DiagnosisStrategySelector {
+
+    /**
+     * The statistics of an anomaly, which are computed before its diagnoses.
+     */
+    public static class Statistics {
+        private final int numOfConstraints;
+        private final int cnfSize;
+        private final int numOfGroups;
+        private final int maxGroupSize;
+
+        public Statistics(int numOfConstraints, int cnfSize, int numOfGroups, int maxGroupSize) {
+            this.numOfConstraints = numOfConstraints;
+            this.cnfSize = cnfSize;
+            this.numOfGroups = numOfGroups;
+            this.maxGroupSize = maxGroupSize;
+        }
+
+        /**
+         * @return the number of the constraints of C
+         */
+        public int getNumOfConstraints() {
+            return numOfConstraints;
+        }
+
+        /**
+         * @return the number of the literals of the clauses of C
+         */
+        public int getCnfSize() {
+            return cnfSize;
+        }
+
+        /**
+         * @return the number of the relationships of C, each constraint without a relationship is a group too
+         */
+        public int getNumOfGroups() {
+            return numOfGroups;
+        }
+
+        public int getMaxGroupSize() {
+            return maxGroupSize;
+        }
+
+        public double getAverageGroupSize() {
+            return numOfGroups == 0 ? 0 : (double) numOfConstraints / numOfGroups;
+        }
+
+        // the bucket of the similar anomalies
+        String getBucket() {
+            return log2(numOfConstraints) + ":" + log2(cnfSize) + ":" + Math.round(getAverageGroupSize());
+        }
+
+        private static int log2(int n) {
+            return 32 - Integer.numberOfLeadingZeros(n);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("constraints: %d, CNF size: %d, groups: %d, max group size: %d",
+                    numOfConstraints, cnfSize, numOfGroups, maxGroupSize);
+        }
+    }
+
+    /**
+     * The timings of a strategy.
+     */
+    public static class Timing {
+        private long count = 0;
+        private long totalTime = 0;
+
+        private void add(long time) {
+            count++;
+            totalTime += time;
+        }
+
+        /**
+         * @return the number of the diagnosed anomalies
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the total time in nanoseconds
+         */
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        /**
+         * @return the average time in nanoseconds
+         */
+        public double getAverageTime() {
+            return count == 0 ? 0 : (double) totalTime / count;
+        }
+    }
+
+    private List<DiagnosisStrategy.Type> candidates;
+
+    // the timings of each bucket
+    private Map<String, Map<DiagnosisStrategy.Type, Timing>> timings = new HashMap<>();
+    // the timings of all anomalies
+    private Map<DiagnosisStrategy.Type, Timing> totals = new EnumMap<>(DiagnosisStrategy.Type.class);
+
+    /**
+     * The candidates are the FastDiag trees which find the same diagnoses,
+     * i.e. {@link DiagnosisStrategy.Type#FASTDIAG} and {@link DiagnosisStrategy.Type#FASTDIAG_V4}.
+     */
+    public DiagnosisStrategySelector() {
+        candidates = new ArrayList<>(EnumSet.of(DiagnosisStrategy.Type.FASTDIAG, DiagnosisStrategy.Type.FASTDIAG_V4));
+    }
+
+    /**
+     * Set the strategies which could be selected. {@link DiagnosisStrategy.Type#FASTDIAG_V3},
+     * {@link DiagnosisStrategy.Type#HS_TREE} and {@link DiagnosisStrategy.Type#QUICKXPLAIN}, which finds
+     * the diagnoses of the relationships instead of the constraints, could only be the single candidate.
+     *
+     * @param candidates - the candidate strategies
+     * @throws IllegalArgumentException when the candidates are empty, or when they mix strategies
+     * which find different diagnoses
+     */
+    public synchronized void setCandidates(Collection<DiagnosisStrategy.Type> candidates) throws IllegalArgumentException {
+        if (candidates == null) throw new NullPointerException("The candidates have to be not null!");
+        if (candidates.isEmpty()) throw new IllegalArgumentException("The candidates have to be not empty!");
+
+        EnumSet<DiagnosisStrategy.Type> types = EnumSet.copyOf(candidates);
+        if (types.size() > 1 && (types.contains(DiagnosisStrategy.Type.FASTDIAG_V3)
+                || types.contains(DiagnosisStrategy.Type.HS_TREE)
+                || types.contains(DiagnosisStrategy.Type.QUICKXPLAIN)))
+            throw new IllegalArgumentException("The candidates have to find the same diagnoses, "
+                    + "FASTDIAG_V3, HS_TREE and QUICKXPLAIN can't be mixed with other strategies!");
+        this.candidates = new ArrayList<>(types);
+    }
+
+    public synchronized List<DiagnosisStrategy.Type> getCandidates() {
+        return Collections.unmodifiableList(new ArrayList<>(candidates));
+    }
+
+    /**
+     * Compute the statistics of the constraints C of an anomaly.
+     * In the incremental mode, the CNF size is the number of the literals of the clauses,
+     * otherwise each constraint counts as one literal.
+     *
+     * @param model - the model of the anomaly
+     * @param C - the constraints which could be diagnosed
+     * @return the statistics
+     */
+    public static Statistics computeStatistics(ChocoModel model, List<Constraint> C) {
+        int cnfSize = 0;
+        int ungrouped = 0;
+        Map<Relationship, Integer> groups = new HashMap<>();
+        for (Constraint c : C) {
+            cnfSize += model.isIncremental() ? model.getClause(c).length : 1;
+
+            Relationship relationship = model.getRelationship(c);
+            if (relationship == null) {
+                ungrouped++;
+            } else {
+                groups.merge(relationship, 1, Integer::sum);
+            }
+        }
+
+        int maxGroupSize = ungrouped > 0 ? 1 : 0;
+        for (int size : groups.values()) {
+            maxGroupSize = Math.max(maxGroupSize, size);
+        }
+        return new Statistics(C.size(), cnfSize, groups.size() + ungrouped, maxGroupSize);
+    }
+
+    /**
+     * Select the strategy of an anomaly. A candidate without a timing in the bucket
+     * of the anomaly is selected first, otherwise the candidate with the lowest average time.
+     *
+     * @param statistics - the statistics of the anomaly
+     * @return the selected strategy
+     */
+    public synchronized DiagnosisStrategy.Type select(Statistics statistics) {
+        Map<DiagnosisStrategy.Type, Timing> bucket = timings.get(statistics.getBucket());
+        if (bucket == null) {
+            return getDefault();
+        }
+
+        DiagnosisStrategy.Type best = null;
+        for (DiagnosisStrategy.Type type : candidates) {
+            Timing timing = bucket.get(type);
+            if (timing == null) {
+                return type;
+            }
+            if (best == null || timing.getAverageTime() < bucket.get(best).getAverageTime()) {
+                best = type;
+            }
+        }
+        return best;
+    }
+
+    // the strategy of an anomaly without timings
+    private DiagnosisStrategy.Type getDefault() {
+        if (candidates.contains(DiagnosisStrategy.Type.FASTDIAG_V4)) {
+            return DiagnosisStrategy.Type.FASTDIAG_V4;
+        }
+        return candidates.get(0);
+    }
+
+    /**
+     * Record the time of a strategy on an anomaly.
+     *
+     * @param statistics - the statistics of the anomaly
+     * @param type - the strategy
+     * @param time - the time in nanoseconds
+     */
+    public synchronized void record(Statistics statistics, DiagnosisStrategy.Type type, long time) {
+        timings.computeIfAbsent(statistics.getBucket(), k -> new EnumMap<>(DiagnosisStrategy.Type.class))
+                .computeIfAbsent(type, k -> new Timing()).add(time);
+        totals.computeIfAbsent(type, k -> new Timing()).add(time);
+    }
+
+    /**
+     * @return the timings of each strategy over all anomalies
+     */
+    public synchronized Map<DiagnosisStrategy.Type, Timing> getTimings() {
+        Map<DiagnosisStrategy.Type, Timing> copy = new EnumMap<>(DiagnosisStrategy.Type.class);
+        for (Map.Entry<DiagnosisStrategy.Type, Timing> entry : totals.entrySet()) {
+            Timing timing = new Timing();
+            timing.count = entry.getValue().count;
+            timing.totalTime = entry.getValue().totalTime;
+            copy.put(entry.getKey(), timing);
+        }
+        return copy;
+    }
+
+    /**
+     * Forget all timings.
+     */
+    public synchronized void clearTimings() {
+        timings.clear();
+        totals.clear();
+    }
+}
@@ -8,7 +8,6 @@
 
 package at.tugraz.ist.ase.fm2exconf.analysis;
 
-import org.chocosolver.solver.Model;
 import org.chocosolver.solver.constraints.Constraint;
 
 import java.util.ArrayList;
@@ -32,30 +31,55 @@ import java.util.List;
 
 /**
  * The class implements the FastDiag algorithm.
+ * The static methods take the consistency checker as an argument, an instance
+ * is a {@link DiagnosisStrategy} with its own consistency checker.
  *
  * @author Muslum Atas (muesluem.atas@ist.tugraz.at)
  * @author Viet-Man Le (vietman.le@ist.tugraz.at)
  */
-public class FastDiag {
+public class FastDiag implements DiagnosisStrategy {
 
-    public static List<Constraint> fastDiag(List<Constraint> c, List<Constraint> ac, Model model)
+    private ConsistencyChecker checker;
+
+    public FastDiag(ConsistencyChecker checker) {
+        if (checker == null) throw new NullPointerException("The consistency checker have to be not null!");
+        this.checker = checker;
+    }
+
+    /**
+     * Find all diagnoses of C, starting from the first diagnosis found by FastDiag,
+     * see {@link #calculateAllDiagnoses(List, List, List, ConsistencyChecker, List)}.
+     *
+     * @param C - the constraints which could be diagnosed, a subset of AC
+     * @param AC - all constraints
+     * @return all diagnoses
+     */
+    @Override
+    public List<List<Constraint>> findAllDiagnoses(List<Constraint> C, List<Constraint> AC) {
+        List<Constraint> c = new ArrayList<Constraint>(C);
+        List<Constraint> ac = new ArrayList<Constraint>(AC);
+        List<Constraint> firstDiag = fastDiag(new ArrayList<Constraint>(c), new ArrayList<Constraint>(ac), checker);
+        return calculateAllDiagnoses(firstDiag, c, ac, checker, new ArrayList<List<Constraint>>());
+    }
+
+    public static List<Constraint> fastDiag(List<Constraint> c, List<Constraint> ac, ConsistencyChecker checker)
     {
         List<Constraint> acOriginal = new ArrayList<Constraint>(); acOriginal.addAll(ac);
         //if isEmpty(C) or inconsistent(AC - C) return Φ
         if (c.isEmpty()
-            || (ac.containsAll(c) && isConsistent(ac, model))
-            || (!isConsistent(subConstrsSets(acOriginal,c), model))) {
+            || (ac.containsAll(c) && isConsistent(ac, checker))
+            || (!isConsistent(subConstrsSets(acOriginal,c), checker))) {
             return Collections.<Constraint>emptyList();
         } else{ //else return FD(Φ, C, AC)
             List<Constraint> emptyList = new ArrayList<Constraint>();
-            return fd(emptyList,c, ac, model);}
+            return fd(emptyList,c, ac, checker);}
     }
     // func FD(D, C = {c1..cq}, AC) : diagnosis  Δ
-    private static List<Constraint> fd(List<Constraint> d, List<Constraint> c, List<Constraint> ac, Model model){
+    private static List<Constraint> fd(List<Constraint> d, List<Constraint> c, List<Constraint> ac, ConsistencyChecker checker){
         List<Constraint> diagnosis = new ArrayList<Constraint>();
         int cSize=c.size();
         // if D != Φ and consistent(AC) return Φ;
-        if( !d.isEmpty() && isConsistent(ac, model))
+        if( !d.isEmpty() && isConsistent(ac, checker))
             return Collections.<Constraint>emptyList();
         // if singleton(C) return C;
         if(cSize==1)
@@ -73,26 +97,20 @@ public class FastDiag {
         List<Constraint> acTemp = new ArrayList<Constraint>();
         acTemp.addAll(ac);
 
-        List<Constraint> d1 = fd(c1, c2, subConstrsSets(acTemp,c1),model);
+        List<Constraint> d1 = fd(c1, c2, subConstrsSets(acTemp,c1),checker);
         diagnosis.addAll(d1);
 
         // D2 = FD(D1, C1, AC - D1);
-        List<Constraint> d2 = fd(d1, c1, subConstrsSets(prevAC,d1),model);
+        List<Constraint> d2 = fd(d1, c1, subConstrsSets(prevAC,d1),checker);
         for (int i=0; i<d2.size(); i++)
             if (!diagnosis.contains(d2.get(i)))
                 diagnosis.add(d2.get(i));
         return diagnosis;
     }
     // Check if set of constraint is consistent
-    public static boolean isConsistent(List<Constraint> constrs, Model model)
+    public static boolean isConsistent(List<Constraint> constrs, ConsistencyChecker checker)
     {
-        model.getSolver().reset();
-        model.unpost(model.getCstrs());
-        for (int i=0; i<constrs.size(); i++)
-        {
-            model.post(constrs.get(i));
-        }
-        return model.getSolver().solve();
+        return checker.isConsistent(constrs);
     }
 
     //Calculate c1-c2
@@ -103,7 +121,13 @@ public class FastDiag {
     }
 
     //Calculate diagnoses from a node depending on FastDiag (returns children (diagnoses) of a node)
-    public static List<List<Constraint>> nodeDiagnoses(List<Constraint> node, List<Constraint> c,List<Constraint> ac, Model model, List<List<Constraint>> nodeDiag, List<List<Constraint>> allDiag, List<List<Constraint>> childC)
+    public static List<List<Constraint>> nodeDiagnoses(List<Constraint> node, List<Constraint> c,List<Constraint> ac, ConsistencyChecker checker, List<List<Constraint>> nodeDiag, List<List<Constraint>> allDiag, List<List<Constraint>> childC)
+    {
+        return nodeDiagnoses(node, c, ac, checker, nodeDiag, allDiag, childC, createIndex(allDiag));
+    }
+
+    // the index holds the diagnoses of allDiag for the minimality and duplicate checks
+    private static List<List<Constraint>> nodeDiagnoses(List<Constraint> node, List<Constraint> c,List<Constraint> ac, ConsistencyChecker checker, List<List<Constraint>> nodeDiag, List<List<Constraint>> allDiag, List<List<Constraint>> childC, DiagnosisIndex index)
     {
         for (int i=0; i<node.size();i++)
         {
@@ -112,11 +136,12 @@ public class FastDiag {
             Constraint constr=node.get(i);
             cOriginal.remove(constr);
             List<Constraint> diag=new ArrayList<Constraint>();
-            diag=fastDiag(cOriginal, acOriginal,model);
-            if (!diag.isEmpty() && isMinimal(diag,allDiag) && !allDiag.containsAll(diag))
+            diag=fastDiag(cOriginal, acOriginal,checker);
+            if (!diag.isEmpty() && index.isMinimal(diag) && !index.contains(diag))
             {
                 nodeDiag.add(diag);
                 allDiag.add(diag);
+                index.add(diag);
                 childC.add(cOriginal); // saving the constraints set (c) of each child (diagnosis) to be used on the next call.
             }
         }
@@ -124,13 +149,14 @@ public class FastDiag {
     }
 
     //calculate all diagnosis starting from the first diagnosis using FastDiag
-    public static List<List<Constraint>> calculateAllDiagnoses(List<Constraint> firstDiag, List<Constraint> c, List<Constraint> ac, Model model, List<List<Constraint>> allDiag)
+    public static List<List<Constraint>> calculateAllDiagnoses(List<Constraint> firstDiag, List<Constraint> c, List<Constraint> ac, ConsistencyChecker checker, List<List<Constraint>> allDiag)
     {
         allDiag.add(firstDiag);
+        DiagnosisIndex index = createIndex(allDiag);
         List<List<Constraint>> nodeDiagnoses= new ArrayList<List<Constraint>>();
         List<List<Constraint>> childCnstnts= new ArrayList<List<Constraint>>();
 
-        nodeDiagnoses(firstDiag, c, ac, model, nodeDiagnoses, allDiag, childCnstnts);
+        nodeDiagnoses(firstDiag, c, ac, checker, nodeDiagnoses, allDiag, childCnstnts, index);
 
         while (!nodeDiagnoses.isEmpty())
         {
@@ -138,7 +164,7 @@ public class FastDiag {
             List<List<Constraint>> childConstraints= new ArrayList<List<Constraint>>();
             for (int j=0; j<nodeDiagnoses.size(); j++)
             {
-                nodeDiagnoses(nodeDiagnoses.get(j), childCnstnts.get(j), ac, model, childDiagnoses, allDiag, childConstraints);
+                nodeDiagnoses(nodeDiagnoses.get(j), childCnstnts.get(j), ac, checker, childDiagnoses, allDiag, childConstraints, index);
             }
             nodeDiagnoses=childDiagnoses;
             childCnstnts=childConstraints;
@@ -146,6 +172,14 @@ public class FastDiag {
         return allDiag;
     }
 
+    private static DiagnosisIndex createIndex(List<List<Constraint>> allDiag)
+    {
+        DiagnosisIndex index = new DiagnosisIndex();
+        for (List<Constraint> diag : allDiag)
+            index.add(diag);
+        return index;
+    }
+
     public static boolean isMinimal(List<Constraint> diag, List<List<Constraint>> allDiag)
     {
         boolean minimal=true;
@@ -38,15 +38,18 @@ import java.util.*;
  *
  * @author Viet-Man Le (vietman.le@ist.tugraz.at)
  */
-public class FastDiagV3 {
+public class FastDiagV3 implements DiagnosisStrategy {
 
     private ConsistencyChecker checker;
     private ChocoModel model;
 
     public FastDiagV3(ChocoModel model) {
-        this.model = model;
+        this(model, new ConsistencyChecker(model.getBackend()));
+    }
 
-        checker = new ConsistencyChecker(model);
+    public FastDiagV3(ChocoModel model, ConsistencyChecker checker) {
+        this.model = model;
+        this.checker = checker;
     }
 
     /**
@@ -144,11 +147,34 @@ public class FastDiagV3 {
         return SetUtils.union(Δ1, Δ2);
     }
 
+    /**
+     * Find all diagnoses of C, where the background B is AC - C.
+     *
+     * @param C - the constraints which could be diagnosed, a subset of AC
+     * @param AC - all constraints
+     * @return all diagnoses
+     */
+    @Override
+    public List<List<Constraint>> findAllDiagnoses(List<Constraint> C, List<Constraint> AC)
+    {
+        Set<Constraint> c = new LinkedHashSet<>(C);
+        Set<Constraint> b = new LinkedHashSet<>(AC);
+        b.removeAll(c);
+
+        List<List<Constraint>> allDiag = new ArrayList<>();
+        for (Set<Constraint> diag : findAllDiagnoses(findDiagnosis(c, b), c, b)) {
+            allDiag.add(new ArrayList<>(diag));
+        }
+        return allDiag;
+    }
+
     //calculate all diagnosis starting from the first diagnosis using FastDiag
     public List<Set<Constraint>> findAllDiagnoses(Set<Constraint> firstDiag, Set<Constraint> C, Set<Constraint> B)
     {
         List<Set<Constraint>> allDiag = new ArrayList<>();
         allDiag.add(firstDiag); //incrementCounter(COUNTER_ADD_OPERATOR);
+        index = new DiagnosisIndex();
+        index.add(firstDiag);
 
         diagnoses = new LinkedList<>();
         considerations = new LinkedList<>();
@@ -163,6 +189,7 @@ public class FastDiagV3 {
         diagnoses = null;
         considerations = null;
         background = null;
+        index = null;
 
         return allDiag;
     }
@@ -170,6 +197,8 @@ public class FastDiagV3 {
     Queue<Set<Constraint>> diagnoses;
     Queue<Set<Constraint>> considerations;
     Queue<Set<Constraint>> background;
+    // the diagnoses of allDiag for the minimality and duplicate checks
+    DiagnosisIndex index;
 
     private void popNode(Set<Constraint> node, Set<Constraint> C, Set<Constraint> Δ) {
         node.addAll(diagnoses.remove());
@@ -203,9 +232,10 @@ public class FastDiagV3 {
 
             Set<Constraint> diag = findDiagnosis(CwithoutAConstraint, B, ΔwithAConstraint);
 
-            if (!diag.isEmpty() && isMinimal(diag, allDiag) && !allDiag.containsAll(diag))
+            if (!diag.isEmpty() && isMinimal(diag, allDiag) && !index.contains(diag))
             {
                 allDiag.add(diag); //incrementCounter(COUNTER_ADD_OPERATOR);
+                index.add(diag);
                 pushNode(diag, CwithoutAConstraint, ΔwithAConstraint);
             }
         }
@@ -213,6 +243,10 @@ public class FastDiagV3 {
 
     private boolean isMinimal(Set<Constraint> diag, List<Set<Constraint>> allDiag)
     {
+        if (index != null) {
+            return index.isMinimal(diag);
+        }
+
         for (int i = 0; i < allDiag.size(); i++)
         {
             if (diag.containsAll(allDiag.get(i))) {
@@ -0,0 +1,297 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.util.*;
+
+/**
+ * The class implements the FastDiag algorithm on dense constraint ids.
+ *
+ * The constraints of C and AC get ids in the order of C first, then of the rest of AC,
+ * so that C, AC and the subsets of them are {@link BitSet}s, and the splits of C
+ * keep the order of C. The constraints are converted back only at the boundary,
+ * i.e. for the consistency checks and the returned diagnoses.
+ *
+ * The algorithm and the order of the returned diagnoses are the same as of {@link FastDiag}.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class FastDiagV4 implements DiagnosisStrategy {
+
+    protected static final int[] EMPTY = new int[0];
+
+    private ConsistencyChecker checker;
+
+    // the constraints indexed by their ids
+    private List<Constraint> constraints;
+    private Map<Constraint, Integer> ids;
+
+    public FastDiagV4(ConsistencyChecker checker) {
+        this.checker = checker;
+    }
+
+    /**
+     * Find a diagnosis of C, i.e. a minimal subset of C which has to be removed from AC
+     * to restore the consistency.
+     *
+     * @param C - the constraints which could be diagnosed, a subset of AC
+     * @param AC - all constraints
+     * @return a diagnosis, or an empty list if there is no diagnosis
+     */
+    public List<Constraint> findDiagnosis(List<Constraint> C, List<Constraint> AC) {
+        index(C, AC);
+        return toConstraints(fastDiag(toBitSet(C), toBitSet(AC)));
+    }
+
+    /**
+     * Find all diagnoses of C, starting from the first diagnosis found by FastDiag
+     * and expanding the tree level by level.
+     *
+     * @param C - the constraints which could be diagnosed, a subset of AC
+     * @param AC - all constraints
+     * @return all diagnoses
+     */
+    @Override
+    public List<List<Constraint>> findAllDiagnoses(List<Constraint> C, List<Constraint> AC) {
+        index(C, AC);
+        BitSet c = toBitSet(C);
+        BitSet ac = toBitSet(AC);
+
+        List<int[]> allDiag = new ArrayList<>();
+        // the diagnoses for the minimality checks
+        SetTrie allDiagSets = new SetTrie();
+
+        int[] firstDiag = fastDiag(c, ac);
+        allDiag.add(firstDiag);
+        allDiagSets.add(toBitSet(firstDiag));
+
+        // the diagnoses of the current level together with their sets C
+        List<int[]> nodes = Collections.singletonList(firstDiag);
+        List<BitSet> nodeCs = Collections.singletonList(c);
+        while (!nodes.isEmpty()) {
+            // the sets C of the children, in the order of the nodes and of their constraints
+            List<BitSet> levelCs = new ArrayList<>();
+            for (int j = 0; j < nodes.size(); j++) {
+                for (int id : nodes.get(j)) {
+                    BitSet childC = (BitSet) nodeCs.get(j).clone();
+                    childC.clear(id);
+                    levelCs.add(childC);
+                }
+            }
+            List<int[]> levelDiags = expand(levelCs, ac);
+
+            List<int[]> children = new ArrayList<>();
+            List<BitSet> childCs = new ArrayList<>();
+            for (int i = 0; i < levelCs.size(); i++) {
+                int[] diag = levelDiags.get(i);
+                if (diag.length > 0) {
+                    BitSet diagSet = toBitSet(diag);
+                    if (!allDiagSets.containsSubsetOf(diagSet)) {
+                        allDiag.add(diag);
+                        allDiagSets.add(diagSet);
+                        children.add(diag);
+                        childCs.add(levelCs.get(i));
+                    }
+                }
+            }
+            nodes = children;
+            nodeCs = childCs;
+        }
+
+        List<List<Constraint>> diagnoses = new ArrayList<>(allDiag.size());
+        for (int[] diag : allDiag) {
+            diagnoses.add(toConstraints(diag));
+        }
+        return diagnoses;
+    }
+
+    /**
+     * Compute the diagnoses of the children of one level of the tree.
+     * The diagnoses don't depend on each other, so they could be computed in any order,
+     * the minimality checks are done afterwards in the order of the children.
+     *
+     * @param childCs - the sets C of the children
+     * @param ac - all constraints
+     * @return the diagnosis of each child, in the same order
+     */
+    protected List<int[]> expand(List<BitSet> childCs, BitSet ac) {
+        List<int[]> diags = new ArrayList<>(childCs.size());
+        for (BitSet childC : childCs) {
+            diags.add(fastDiag(childC, ac));
+        }
+        return diags;
+    }
+
+    // func FastDiag(C ⊆ AC, AC = {c1..ct}) :  Δ
+    protected int[] fastDiag(BitSet c, BitSet ac) {
+        // if isEmpty(C) or inconsistent(AC - C) return Φ
+        if (c.isEmpty()
+                || (isSubset(c, ac) && isConsistent(ac))
+                || !isConsistent(difference(ac, c))) {
+            return EMPTY;
+        }
+        // else return FD(Φ, C, AC)
+        return fd(false, c, ac);
+    }
+
+    // func FD(D, C = {c1..cq}, AC) : diagnosis  Δ
+    private int[] fd(boolean hasD, BitSet c, BitSet ac) {
+        // if D != Φ and consistent(AC) return Φ;
+        if (hasD && isConsistent(ac)) {
+            return EMPTY;
+        }
+
+        // if singleton(C) return C;
+        int q = c.cardinality();
+        if (q == 1) {
+            return new int[]{c.nextSetBit(0)};
+        }
+
+        // C1 = {c1..ck}; C2 = {ck+1..cq};
+        int k = q / 2;
+        int split = c.nextSetBit(0);
+        for (int i = 0; i < k; i++) {
+            split = c.nextSetBit(split + 1);
+        }
+        BitSet c1 = (BitSet) c.clone();
+        c1.clear(split, c.length());
+        BitSet c2 = (BitSet) c.clone();
+        c2.clear(0, split);
+
+        // D1 = FD(C1, C2, AC - C1);
+        int[] d1 = fd(true, c2, difference(ac, c1));
+        // D2 = FD(D1, C1, AC - D1);
+        int[] d2 = fd(d1.length > 0, c1, difference(ac, d1));
+
+        // return(D1 ∪ D2), D1 ⊆ C2 and D2 ⊆ C1 are disjoint
+        int[] diagnosis = Arrays.copyOf(d1, d1.length + d2.length);
+        System.arraycopy(d2, 0, diagnosis, d1.length, d2.length);
+        return diagnosis;
+    }
+
+    protected boolean isConsistent(BitSet ac) {
+        return checker.isConsistent(toConstraintSet(ac));
+    }
+
+    // true if s1 ⊆ s2
+    protected static boolean isSubset(BitSet s1, BitSet s2) {
+        for (int i = s1.nextSetBit(0); i >= 0; i = s1.nextSetBit(i + 1)) {
+            if (!s2.get(i)) return false;
+        }
+        return true;
+    }
+
+    protected static BitSet difference(BitSet s1, BitSet s2) {
+        BitSet result = (BitSet) s1.clone();
+        result.andNot(s2);
+        return result;
+    }
+
+    protected static BitSet difference(BitSet s1, int[] s2) {
+        BitSet result = (BitSet) s1.clone();
+        for (int id : s2) {
+            result.clear(id);
+        }
+        return result;
+    }
+
+    // give ids to the constraints of C first, then to the rest of AC
+    protected void index(List<Constraint> C, List<Constraint> AC) {
+        constraints = new ArrayList<>(AC.size());
+        ids = new HashMap<>();
+        for (Constraint c : C) {
+            index(c);
+        }
+        for (Constraint c : AC) {
+            index(c);
+        }
+    }
+
+    /**
+     * Use the given constraints as the constraints indexed by their ids,
+     * e.g. the corresponding constraints of another model, instead of indexing C and AC.
+     */
+    void setConstraints(List<Constraint> constraints) {
+        this.constraints = constraints;
+        ids = new HashMap<>();
+        for (int i = 0; i < constraints.size(); i++) {
+            ids.put(constraints.get(i), i);
+        }
+    }
+
+    private void index(Constraint c) {
+        if (!ids.containsKey(c)) {
+            ids.put(c, constraints.size());
+            constraints.add(c);
+        }
+    }
+
+    /**
+     * @return the constraints indexed by their ids, i.e. C first, then the rest of AC
+     */
+    protected List<Constraint> getConstraints() {
+        return constraints;
+    }
+
+    protected BitSet toBitSet(List<Constraint> cstrs) {
+        BitSet set = new BitSet(constraints.size());
+        for (Constraint c : cstrs) {
+            set.set(ids.get(c));
+        }
+        return set;
+    }
+
+    protected static BitSet toBitSet(int[] cstrs) {
+        BitSet set = new BitSet();
+        for (int id : cstrs) {
+            set.set(id);
+        }
+        return set;
+    }
+
+    protected List<Constraint> toConstraints(int[] cstrs) {
+        List<Constraint> list = new ArrayList<>(cstrs.length);
+        for (int id : cstrs) {
+            list.add(constraints.get(id));
+        }
+        return list;
+    }
+
+    // a view of the constraints of a set, without copying them
+    protected Collection<Constraint> toConstraintSet(BitSet set) {
+        return new AbstractCollection<Constraint>() {
+            @Override
+            public Iterator<Constraint> iterator() {
+                return new Iterator<Constraint>() {
+                    private int next = set.nextSetBit(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    @Override
+                    public Constraint next() {
+                        if (next < 0) throw new NoSuchElementException();
+                        Constraint c = constraints.get(next);
+                        next = set.nextSetBit(next + 1);
+                        return c;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return set.cardinality();
+            }
+        };
+    }
+}
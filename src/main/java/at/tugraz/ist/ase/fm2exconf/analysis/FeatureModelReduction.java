@@ -0,0 +1,276 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModelException;
+import at.tugraz.ist.ase.fm2exconf.core.Relationship;
+
+import java.util.*;
+
+/**
+ * Reduces a {@link FeatureModel} to one feature for each class of equivalent features.
+ *
+ * The features of a mandatory chain, i.e. of an atomic set, are equivalent, and so are
+ * the features of a cycle of implications, e.g. of requires constraints. The atomic sets
+ * are merged by a union-find over the mandatory relationships, then the strongly connected
+ * components of the implications between the sets, i.e. the requires constraints and
+ * the child-parent edges, are merged too, by the algorithm of Tarjan.
+ *
+ * The reduced feature model has the first feature of each class in the breadth-first order
+ * as its representative, so the root stays the root. The relationships are rewritten to
+ * the representatives, and the ones which hold trivially, e.g. a mandatory relationship
+ * inside a class, are dropped. The features of a class have the same value in all
+ * configurations, so the results for a representative hold for all features of its class.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class FeatureModelReduction {
+
+    private FeatureModel featureModel;
+    // index of features in the breadth-first order
+    private Map<String, Integer> indexes;
+
+    // the union-find of the classes, the root of a class is its first feature
+    private int[] parents;
+
+    private FeatureModel reducedModel;
+    private int numOfClasses = 0;
+    private long time = 0;
+
+    public FeatureModelReduction(FeatureModel featureModel) {
+        this.featureModel = featureModel;
+
+        int n = featureModel.getNumOfFeatures();
+        indexes = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            indexes.put(featureModel.getFeature(i).getName(), i);
+        }
+        parents = new int[n];
+    }
+
+    /**
+     * Find the classes of equivalent features and build the reduced feature model.
+     *
+     * @throws FeatureModelException when the reduced feature model couldn't be built
+     */
+    public void reduce() throws FeatureModelException {
+        long start = System.nanoTime();
+
+        int n = parents.length;
+        for (int i = 0; i < n; i++) {
+            parents[i] = i;
+        }
+
+        // the atomic sets
+        for (Relationship r : featureModel.getRelationships()) {
+            if (r.getType() == Relationship.RelationshipType.MANDATORY) {
+                union(index(r.getLeftSide()), index(r.getRightSide().get(0)));
+            }
+        }
+
+        // the cycles of implications between the atomic sets
+        mergeComponents();
+
+        reducedModel = buildReducedModel();
+        time = System.nanoTime() - start;
+    }
+
+    private int index(String feature) {
+        return indexes.get(feature);
+    }
+
+    private int find(int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    // the smaller index becomes the root, so the root of a class is its first feature
+    private void union(int i, int j) {
+        int ri = find(i);
+        int rj = find(j);
+        if (ri < rj) {
+            parents[rj] = ri;
+        } else if (rj < ri) {
+            parents[ri] = rj;
+        }
+    }
+
+    // merge the strongly connected components of the implications between the classes
+    private void mergeComponents() {
+        int n = parents.length;
+
+        List<List<Integer>> edges = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            edges.add(new ArrayList<>());
+        }
+        for (Relationship r : featureModel.getRelationships()) {
+            switch (r.getType()) {
+                case OPTIONAL:
+                    // child => parent
+                    addEdge(edges, r.getLeftSide(), r.getRightSide().get(0));
+                    break;
+                case OR:
+                case ALTERNATIVE:
+                    // each child => parent
+                    for (String child : r.getRightSide()) {
+                        addEdge(edges, child, r.getLeftSide());
+                    }
+                    break;
+            }
+        }
+        for (Relationship r : featureModel.getConstraints()) {
+            if (r.getType() == Relationship.RelationshipType.REQUIRES) {
+                addEdge(edges, r.getLeftSide(), r.getRightSide().get(0));
+            }
+        }
+
+        // the iterative algorithm of Tarjan over the roots of the classes
+        int[] order = new int[n];
+        int[] lowLinks = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(order, -1);
+        Deque<Integer> stack = new ArrayDeque<>();
+        // the nodes of the depth-first search with the next edge to follow
+        Deque<int[]> path = new ArrayDeque<>();
+        int counter = 0;
+
+        for (int s = 0; s < n; s++) {
+            if (find(s) != s || order[s] >= 0) continue;
+
+            path.push(new int[]{s, 0});
+            order[s] = lowLinks[s] = counter++;
+            stack.push(s);
+            onStack[s] = true;
+
+            while (!path.isEmpty()) {
+                int[] top = path.peek();
+                int v = top[0];
+                if (top[1] < edges.get(v).size()) {
+                    int w = edges.get(v).get(top[1]++);
+                    if (order[w] < 0) {
+                        path.push(new int[]{w, 0});
+                        order[w] = lowLinks[w] = counter++;
+                        stack.push(w);
+                        onStack[w] = true;
+                    } else if (onStack[w]) {
+                        lowLinks[v] = Math.min(lowLinks[v], order[w]);
+                    }
+                    continue;
+                }
+
+                path.pop();
+                if (!path.isEmpty()) {
+                    int u = path.peek()[0];
+                    lowLinks[u] = Math.min(lowLinks[u], lowLinks[v]);
+                }
+                if (lowLinks[v] == order[v]) {
+                    // v is the root of a component, merge its members
+                    int w;
+                    do {
+                        w = stack.pop();
+                        onStack[w] = false;
+                        union(v, w);
+                    } while (w != v);
+                }
+            }
+        }
+    }
+
+    // add an edge between the roots of the classes of the features
+    private void addEdge(List<List<Integer>> edges, String from, String to) {
+        int f = find(index(from));
+        int t = find(index(to));
+        if (f != t) {
+            edges.get(f).add(t);
+        }
+    }
+
+    private FeatureModel buildReducedModel() throws FeatureModelException {
+        FeatureModel reduced = new FeatureModel();
+
+        numOfClasses = 0;
+        for (int i = 0; i < parents.length; i++) {
+            if (find(i) == i) {
+                reduced.addFeature(featureModel.getFeature(i).getName());
+                numOfClasses++;
+            }
+        }
+
+        for (Relationship r : featureModel.getRelationships()) {
+            String left = getRepresentative(r.getLeftSide());
+            String[] right = getRepresentatives(r.getRightSide());
+            switch (r.getType()) {
+                case MANDATORY:
+                case OPTIONAL:
+                    // trivial inside a class
+                    if (left.equals(right[0])) continue;
+                    break;
+            }
+            reduced.addRelationship(r.getType(), left, right);
+        }
+        for (Relationship r : featureModel.getConstraints()) {
+            String left = getRepresentative(r.getLeftSide());
+            String[] right = getRepresentatives(r.getRightSide());
+            // a requires constraint is trivial inside a class
+            if (r.getType() == Relationship.RelationshipType.REQUIRES && left.equals(right[0])) continue;
+
+            reduced.addConstraint(r.getType(), left, right);
+        }
+        return reduced;
+    }
+
+    private String[] getRepresentatives(List<String> features) {
+        String[] representatives = new String[features.size()];
+        for (int i = 0; i < features.size(); i++) {
+            representatives[i] = getRepresentative(features.get(i));
+        }
+        return representatives;
+    }
+
+    /**
+     * @return the name of the representative of the class of the feature in the reduced feature model
+     */
+    public String getRepresentative(String feature) {
+        return featureModel.getFeature(find(index(feature))).getName();
+    }
+
+    public FeatureModel getReducedModel() {
+        return reducedModel;
+    }
+
+    public int getNumOfClasses() {
+        return numOfClasses;
+    }
+
+    public int getNumOfRelationships() {
+        return featureModel.getNumOfRelationships() + featureModel.getNumOfConstraints();
+    }
+
+    public int getNumOfReducedRelationships() {
+        return reducedModel.getNumOfRelationships() + reducedModel.getNumOfConstraints();
+    }
+
+    /**
+     * @return the number of classes divided by the number of features
+     */
+    public double getReductionRatio() {
+        return (double) numOfClasses / parents.length;
+    }
+
+    /**
+     * @return the time of the reduction in nanoseconds
+     */
+    public long getTime() {
+        return time;
+    }
+}
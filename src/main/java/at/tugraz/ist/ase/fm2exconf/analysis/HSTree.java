@@ -0,0 +1,147 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.util.*;
+
+/**
+ * The class enumerates all diagnoses with a HS-tree, whose nodes are labeled by FastDiag.
+ *
+ * A node is identified by its path H, i.e. the constraints removed from C on the way from the root.
+ * Its label is a diagnosis of C - H, and it has a child for each constraint of its label.
+ * Each minimal diagnosis is disjoint from the path of some node, so all diagnoses are found.
+ * The tree is built breadth-first with the pruning rules of Reiter:
+ * - label reuse: a node whose path is disjoint from a known diagnosis takes this diagnosis as its label
+ * - closing: a node whose path is the path of an already generated node is not generated again
+ * - subset pruning: a node whose path is a superset of the path of a leaf, i.e. of a node
+ *   without a diagnosis, has no diagnosis either
+ * Each rule saves one FastDiag call, and the saved calls are counted for each rule.
+ *
+ * Unlike {@link FastDiagV4#findAllDiagnoses(List, List)}, the nodes with a known label are expanded too,
+ * so the enumeration is complete, while the labels of most of them cost no FastDiag call.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class HSTree implements DiagnosisStrategy {
+
+    // labels the nodes, e.g. a {@link FastDiagV4} or a {@link ParallelFastDiag}
+    private FastDiagV4 fastDiag;
+
+    private long numOfFastDiagCalls = 0;
+    private long numOfReusedLabels = 0;
+    private long numOfClosedNodes = 0;
+    private long numOfPrunedNodes = 0;
+
+    /**
+     * @param fastDiag - the FastDiag which labels the nodes
+     */
+    public HSTree(FastDiagV4 fastDiag) {
+        this.fastDiag = fastDiag;
+    }
+
+    /**
+     * Find all diagnoses of C.
+     *
+     * @param C - the constraints which could be diagnosed, a subset of AC
+     * @param AC - all constraints
+     * @return all diagnoses in the breadth-first order of the tree
+     */
+    @Override
+    public List<List<Constraint>> findAllDiagnoses(List<Constraint> C, List<Constraint> AC) {
+        fastDiag.index(C, AC);
+        BitSet c = fastDiag.toBitSet(C);
+        BitSet ac = fastDiag.toBitSet(AC);
+
+        List<int[]> allDiag = new ArrayList<>();
+        SetTrie allDiagSets = new SetTrie();
+        // the paths of all generated nodes
+        Set<BitSet> paths = new HashSet<>();
+        // the paths of the leaves without a diagnosis
+        SetTrie leafPaths = new SetTrie();
+
+        // the paths of the nodes of the current level
+        List<BitSet> nodes = Collections.singletonList(new BitSet());
+        while (!nodes.isEmpty()) {
+            List<BitSet> children = new ArrayList<>();
+
+            for (BitSet path : nodes) {
+                if (leafPaths.containsSubsetOf(path)) {
+                    numOfPrunedNodes++;
+                    continue;
+                }
+
+                BitSet rest = FastDiagV4.difference(c, path);
+                int[] label;
+                BitSet known = allDiagSets.findSubsetOf(rest);
+                if (known != null) {
+                    numOfReusedLabels++;
+                    label = known.stream().toArray();
+                } else {
+                    numOfFastDiagCalls++;
+                    label = fastDiag.fastDiag(rest, ac);
+                    if (label.length == 0) {
+                        leafPaths.add(path);
+                        continue;
+                    }
+                    // no known diagnosis is disjoint from the path,
+                    // so the label is a new minimal diagnosis
+                    allDiag.add(label);
+                    allDiagSets.add(FastDiagV4.toBitSet(label));
+                }
+
+                for (int id : label) {
+                    BitSet childPath = (BitSet) path.clone();
+                    childPath.set(id);
+                    if (paths.add(childPath)) {
+                        children.add(childPath);
+                    } else {
+                        numOfClosedNodes++;
+                    }
+                }
+            }
+            nodes = children;
+        }
+
+        List<List<Constraint>> diagnoses = new ArrayList<>(allDiag.size());
+        for (int[] diag : allDiag) {
+            diagnoses.add(fastDiag.toConstraints(diag));
+        }
+        return diagnoses;
+    }
+
+    /**
+     * @return the number of nodes labeled by a FastDiag call
+     */
+    public long getNumOfFastDiagCalls() {
+        return numOfFastDiagCalls;
+    }
+
+    /**
+     * @return the number of FastDiag calls saved by the label reuse
+     */
+    public long getNumOfReusedLabels() {
+        return numOfReusedLabels;
+    }
+
+    /**
+     * @return the number of FastDiag calls saved by the closing of duplicate paths
+     */
+    public long getNumOfClosedNodes() {
+        return numOfClosedNodes;
+    }
+
+    /**
+     * @return the number of FastDiag calls saved by the subset pruning
+     */
+    public long getNumOfPrunedNodes() {
+        return numOfPrunedNodes;
+    }
+}
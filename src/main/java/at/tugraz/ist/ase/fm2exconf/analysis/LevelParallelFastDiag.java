@@ -0,0 +1,104 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * The class expands each level of the diagnosis tree of {@link FastDiagV4} in parallel.
+ *
+ * The FastDiag calls of the children of one level don't depend on each other,
+ * so they are spread over the workers, each with its own {@link ChocoModel}
+ * of the same feature model. The diagnoses of the children are then merged through
+ * the minimality checks in the order of the children, so the diagnoses and their order
+ * are exactly the same as of {@link FastDiagV4}.
+ *
+ * The models have to be in the incremental mode, since the constraints are passed to the workers
+ * by their keys, see {@link ChocoModel#getCstrKey(Constraint)}.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class LevelParallelFastDiag extends FastDiagV4 {
+
+    private ChocoModel model;
+    private ExecutorService executor;
+    private BlockingQueue<ParallelFastDiag.Worker> workers;
+
+    // the keys of the constraints by their ids
+    private int[] keys;
+
+    /**
+     * @param model - a {@link ChocoModel} in the incremental mode
+     * @param checker - the {@link ConsistencyChecker} of the model, which computes the first diagnosis
+     * @param executor - an {@link ExecutorService} which runs the FastDiag calls of the children
+     * @param workers - the workers, which are taken by the FastDiag calls while running
+     * @throws IllegalArgumentException when the model is not in the incremental mode
+     */
+    public LevelParallelFastDiag(ChocoModel model, ConsistencyChecker checker,
+                                 ExecutorService executor, BlockingQueue<ParallelFastDiag.Worker> workers) throws IllegalArgumentException {
+        super(checker);
+        if (!model.isIncremental()) throw new IllegalArgumentException("The parallel FastDiag requires a model in the incremental mode!");
+
+        this.model = model;
+        this.executor = executor;
+        this.workers = workers;
+    }
+
+    @Override
+    protected void index(List<Constraint> C, List<Constraint> AC) {
+        super.index(C, AC);
+        keys = ParallelFastDiag.getKeys(model, getConstraints());
+    }
+
+    @Override
+    protected List<int[]> expand(List<BitSet> childCs, BitSet ac) {
+        if (childCs.size() <= 1) {
+            return super.expand(childCs, ac);
+        }
+
+        int[] keys = this.keys;
+        List<Future<int[]>> futures = new ArrayList<>(childCs.size());
+        for (BitSet childC : childCs) {
+            futures.add(executor.submit(() -> {
+                ParallelFastDiag.Worker worker = workers.take();
+                try {
+                    FastDiagV4 fastDiag = new FastDiagV4(worker.getChecker());
+                    fastDiag.setConstraints(worker.getCstrsWithKeys(keys));
+                    return fastDiag.fastDiag(childC, ac);
+                } finally {
+                    workers.put(worker);
+                }
+            }));
+        }
+
+        // in the order of the children
+        List<int[]> diags = new ArrayList<>(childCs.size());
+        try {
+            for (Future<int[]> future : futures) {
+                diags.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(false));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The diagnosis is interrupted!", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(false));
+            if (e.getCause() instanceof CheckLimitException) {
+                throw (CheckLimitException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+        return diags;
+    }
+}
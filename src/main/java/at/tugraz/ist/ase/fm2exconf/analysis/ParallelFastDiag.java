@@ -0,0 +1,406 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The class implements a speculative parallel FastDiag on top of {@link FastDiagV4}.
+ *
+ * Before each consistency check, the recursion looks ahead: it simulates the next calls of FD
+ * for both outcomes of each check, up to a given number of checks on each path, and starts
+ * the predicted checks on the workers. Each worker owns its own {@link ChocoModel} of the same
+ * feature model. The results are stored in a lookup table, which the recursion reads instead of
+ * calling the solver. A check which is not started yet when the recursion needs it is run
+ * by the recursion itself, and the started checks which are not predicted any more are dropped.
+ *
+ * The recursion itself is the one of {@link FastDiagV4}, so the diagnoses are exactly the same.
+ * The models have to be in the incremental mode, since the constraints are passed to the workers
+ * by their keys, see {@link ChocoModel#getCstrKey(Constraint)}.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class ParallelFastDiag extends FastDiagV4 {
+
+    public static final int DEFAULT_LOOK_AHEAD = 3;
+
+    /**
+     * A model of a worker together with its consistency checker.
+     * A worker is owned by one thread while running a check.
+     */
+    public static class Worker {
+        private ChocoModel model;
+        private ConsistencyChecker checker;
+        // the constraints of the model by their keys
+        private Map<Integer, Constraint> constraints = new HashMap<>();
+
+        public Worker(ChocoModel model, ConsistencyChecker checker) {
+            this.model = model;
+            this.checker = checker;
+        }
+
+        public ChocoModel getModel() {
+            return model;
+        }
+
+        public ConsistencyChecker getChecker() {
+            return checker;
+        }
+
+        /**
+         * @return the constraints of the model with the given keys, in the same order
+         */
+        List<Constraint> getCstrsWithKeys(int[] keys) {
+            List<Constraint> cstrs = new ArrayList<>(keys.length);
+            for (int key : keys) {
+                cstrs.add(constraints.computeIfAbsent(key, model::getCstrWithKey));
+            }
+            return cstrs;
+        }
+
+        private boolean isConsistent(int[] keys, BitSet ac) {
+            List<Constraint> checked = new ArrayList<>(ac.cardinality());
+            for (int id = ac.nextSetBit(0); id >= 0; id = ac.nextSetBit(id + 1)) {
+                checked.add(constraints.computeIfAbsent(keys[id], model::getCstrWithKey));
+            }
+            return checker.isConsistent(checked);
+        }
+    }
+
+    /**
+     * The rest of the recursion after a call of FD returns, i.e. either
+     * D2 = FD(D1, C1, AC - D1) after the call which returns D1,
+     * or return(D1 ∪ D2) after the call which returns D2.
+     */
+    private static class Continuation {
+        final BitSet c1;
+        final BitSet ac;
+        final int[] d1;
+        final Continuation next;
+
+        Continuation(BitSet c1, BitSet ac, int[] d1, Continuation next) {
+            this.c1 = c1;
+            this.ac = ac;
+            this.d1 = d1;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A check which is run by a worker or by the recursion, whichever starts it first.
+     */
+    private static class Check {
+        final AtomicBoolean started = new AtomicBoolean(false);
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+    }
+
+    private ChocoModel model;
+    private Executor executor;
+    private BlockingQueue<Worker> workers;
+    private int lookAhead;
+
+    // the keys of the constraints by their ids
+    private int[] keys;
+    // the checks of the sets of constraints of the current call of FastDiag, which are started or done,
+    // the results of the earlier calls are in the cache of the ConsistencyChecker
+    private Map<BitSet, Check> lookups = new HashMap<>();
+
+    private long numOfChecks = 0;
+    private long numOfSpeculativeChecks = 0;
+    private long numOfSpeculativeHits = 0;
+    private long numOfDroppedChecks = 0;
+
+    /**
+     * @param model - a {@link ChocoModel} in the incremental mode
+     * @param checker - the {@link ConsistencyChecker} of the model, which runs the checks needed by the recursion
+     *                before a worker starts them
+     * @param executor - an {@link Executor} which runs the speculative checks
+     * @param workers - the workers, which are taken by the speculative checks while running
+     * @param lookAhead - the maximum number of checks on a predicted path, 0 disables the speculation
+     * @throws IllegalArgumentException when the model is not in the incremental mode
+     */
+    public ParallelFastDiag(ChocoModel model, ConsistencyChecker checker,
+                            Executor executor, BlockingQueue<Worker> workers, int lookAhead) throws IllegalArgumentException {
+        super(checker);
+        if (!model.isIncremental()) throw new IllegalArgumentException("The parallel FastDiag requires a model in the incremental mode!");
+        if (lookAhead < 0) throw new IllegalArgumentException("The look-ahead have to be at least 0!");
+
+        this.model = model;
+        this.executor = executor;
+        this.workers = workers;
+        this.lookAhead = lookAhead;
+    }
+
+    @Override
+    protected void index(List<Constraint> C, List<Constraint> AC) {
+        super.index(C, AC);
+
+        // the ids of the checks in the lookup table change
+        clearLookups();
+
+        keys = getKeys(model, getConstraints());
+    }
+
+    // the keys of the given constraints of the model
+    static int[] getKeys(ChocoModel model, List<Constraint> constraints) {
+        int[] keys = new int[constraints.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = model.getCstrKey(constraints.get(i));
+        }
+        return keys;
+    }
+
+    // drop the checks which are not yet started, and forget the others
+    private void clearLookups() {
+        lookups.values().forEach(check -> check.started.set(true));
+        lookups.clear();
+    }
+
+    // func FastDiag(C ⊆ AC, AC = {c1..ct}) :  Δ
+    @Override
+    protected int[] fastDiag(BitSet c, BitSet ac) {
+        // the predictions don't reach beyond the end of a call,
+        // so the table is bounded by the checks of one call of a long enumeration
+        clearLookups();
+        if (c.isEmpty()) {
+            return EMPTY;
+        }
+
+        // start both checks at once
+        BitSet acWithoutC = difference(ac, c);
+        boolean subset = isSubset(c, ac);
+        if (subset) {
+            start(ac);
+        }
+        start(acWithoutC);
+
+        // if isEmpty(C) or inconsistent(AC - C) return Φ
+        if ((subset && isConsistent(ac)) || !isConsistent(acWithoutC)) {
+            return EMPTY;
+        }
+        // else return FD(Φ, C, AC)
+        return fd(false, c, ac, null);
+    }
+
+    // func FD(D, C = {c1..cq}, AC) : diagnosis  Δ
+    private int[] fd(boolean hasD, BitSet c, BitSet ac, Continuation k) {
+        // if D != Φ and consistent(AC) return Φ;
+        if (hasD) {
+            boolean predicted = lookups.containsKey(ac);
+            lookAhead(c, ac, k);
+            if (predicted) numOfSpeculativeHits++;
+
+            if (isConsistent(ac)) {
+                return EMPTY;
+            }
+        }
+
+        // if singleton(C) return C;
+        if (c.cardinality() == 1) {
+            return new int[]{c.nextSetBit(0)};
+        }
+
+        // C1 = {c1..ck}; C2 = {ck+1..cq};
+        BitSet[] split = split(c);
+        BitSet c1 = split[0];
+        BitSet c2 = split[1];
+
+        // D1 = FD(C1, C2, AC - C1);
+        int[] d1 = fd(true, c2, difference(ac, c1), new Continuation(c1, ac, null, k));
+        // D2 = FD(D1, C1, AC - D1);
+        int[] d2 = fd(d1.length > 0, c1, difference(ac, d1), new Continuation(null, null, d1, k));
+
+        // return(D1 ∪ D2)
+        return union(d1, d2);
+    }
+
+    /**
+     * Start the check of AC and the checks of the predicted next calls of FD,
+     * and drop the started checks which are not predicted any more.
+     */
+    private void lookAhead(BitSet c, BitSet ac, Continuation k) {
+        Set<BitSet> predicted = new HashSet<>();
+        start(ac);
+        predicted.add(ac);
+        predictCall(true, c, ac, k, 0, predicted);
+
+        Iterator<Map.Entry<BitSet, Check>> it = lookups.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<BitSet, Check> entry = it.next();
+            // a check which is already started is kept, since its result could still be used
+            if (!predicted.contains(entry.getKey()) && entry.getValue().started.compareAndSet(false, true)) {
+                it.remove();
+                numOfDroppedChecks++;
+            }
+        }
+    }
+
+    // simulate FD(D, C, AC) for both outcomes of each check
+    private void predictCall(boolean hasD, BitSet c, BitSet ac, Continuation k, int depth, Set<BitSet> predicted) {
+        if (depth >= lookAhead) return;
+
+        if (hasD) {
+            if (depth > 0) { // the check of the current call is already started
+                start(ac);
+                predicted.add(ac);
+            }
+            // consistent(AC), the call returns Φ
+            predictReturn(EMPTY, k, depth + 1, predicted);
+            // inconsistent(AC), the call goes on
+            depth++;
+        }
+
+        if (c.cardinality() == 1) {
+            predictReturn(new int[]{c.nextSetBit(0)}, k, depth, predicted);
+            return;
+        }
+
+        BitSet[] split = split(c);
+        predictCall(true, split[1], difference(ac, split[0]), new Continuation(split[0], ac, null, k), depth, predicted);
+    }
+
+    // simulate the rest of the recursion after a call of FD returns the given diagnosis
+    private void predictReturn(int[] d, Continuation k, int depth, Set<BitSet> predicted) {
+        if (k == null) return; // the end of FastDiag
+
+        if (k.d1 == null) {
+            // D2 = FD(D1, C1, AC - D1);
+            predictCall(d.length > 0, k.c1, difference(k.ac, d), new Continuation(null, null, d, k.next), depth, predicted);
+        } else {
+            // return(D1 ∪ D2)
+            predictReturn(union(k.d1, d), k.next, depth, predicted);
+        }
+    }
+
+    // start a check on a worker, if it is not yet in the lookup table
+    private void start(BitSet ac) {
+        if (lookAhead == 0 || lookups.containsKey(ac)) return;
+
+        Check check = new Check();
+        lookups.put(ac, check);
+        numOfSpeculativeChecks++;
+
+        int[] keys = this.keys;
+        executor.execute(() -> {
+            if (!check.started.compareAndSet(false, true)) return; // run by the recursion or dropped
+
+            try {
+                Worker worker = workers.take();
+                try {
+                    check.result.complete(worker.isConsistent(keys, ac));
+                } finally {
+                    workers.put(worker);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                check.result.completeExceptionally(e);
+            } catch (Throwable e) {
+                // the recursion waits for the result, so every failure completes it
+                check.result.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Return the result of the check from the lookup table. A check which is not yet started
+     * by a worker is run here, using the {@link ConsistencyChecker} of the model.
+     */
+    @Override
+    protected boolean isConsistent(BitSet ac) {
+        numOfChecks++;
+        Check check = lookups.get(ac);
+        if (check == null) {
+            check = new Check();
+            lookups.put(ac, check);
+        }
+
+        if (check.started.compareAndSet(false, true)) {
+            try {
+                boolean consistent = super.isConsistent(ac);
+                check.result.complete(consistent);
+                return consistent;
+            } catch (RuntimeException | Error e) {
+                check.result.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return check.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The diagnosis is interrupted!", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CheckLimitException) {
+                throw (CheckLimitException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    // C1 = {c1..ck}; C2 = {ck+1..cq}; with k = q/2
+    private static BitSet[] split(BitSet c) {
+        int k = c.cardinality() / 2;
+        int split = c.nextSetBit(0);
+        for (int i = 0; i < k; i++) {
+            split = c.nextSetBit(split + 1);
+        }
+        BitSet c1 = (BitSet) c.clone();
+        c1.clear(split, c.length());
+        BitSet c2 = (BitSet) c.clone();
+        c2.clear(0, split);
+        return new BitSet[]{c1, c2};
+    }
+
+    // D1 ⊆ C2 and D2 ⊆ C1 are disjoint
+    private static int[] union(int[] d1, int[] d2) {
+        int[] diagnosis = Arrays.copyOf(d1, d1.length + d2.length);
+        System.arraycopy(d2, 0, diagnosis, d1.length, d2.length);
+        return diagnosis;
+    }
+
+    /**
+     * @return the number of checks needed by the recursion
+     */
+    public long getNumOfChecks() {
+        return numOfChecks;
+    }
+
+    /**
+     * @return the number of checks started by the look-ahead
+     */
+    public long getNumOfSpeculativeChecks() {
+        return numOfSpeculativeChecks;
+    }
+
+    /**
+     * @return the number of checks of D != Φ and consistent(AC), which were already started or done
+     * before the recursion needed them
+     */
+    public long getNumOfSpeculativeHits() {
+        return numOfSpeculativeHits;
+    }
+
+    /**
+     * @return the number of started checks, which were dropped before a worker ran them
+     */
+    public long getNumOfDroppedChecks() {
+        return numOfDroppedChecks;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import java.util.BitSet;
+import java.util.function.Predicate;
+
+//QuickXplain Algorithm
+//--------------------
+//func QuickXplain(B, C = {c1..cq}) : conflict
+//if consistent(B ∪ C) return 'no conflict'
+//else if isEmpty(C) return Φ
+//else return QX(B, B, C)
+
+//func QX(B, Δ, C = {c1..cq}) : conflict
+//if Δ != Φ and inconsistent(B) return Φ;
+//if singleton(C) return C;
+//k = q/2;
+//C1 = {c1..ck}; C2 = {ck+1..cq};
+//Δ2 = QX(B ∪ C1, C1, C2);
+//Δ1 = QX(B ∪ Δ2, Δ2, C1);
+//return(Δ1 ∪ Δ2);
+
+/**
+ * The class implements the QuickXplain algorithm, which finds a minimal conflict,
+ * i.e. a minimal subset of C which is inconsistent together with the background B.
+ *
+ * The elements of B and C are given by their ids, an element is e.g. a single constraint
+ * or the group of constraints of a {@link at.tugraz.ist.ase.fm2exconf.core.Relationship},
+ * see {@link DiagnosisEnumerator#findGroupDiagnoses(java.util.List, java.util.List)}.
+ * The consistency of a set of elements is checked by the given predicate.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class QuickXplain {
+
+    // checks the consistency of a set of elements
+    private Predicate<BitSet> consistency;
+
+    private long numOfChecks = 0;
+
+    /**
+     * @param consistency - returns true if the given set of elements is consistent
+     */
+    public QuickXplain(Predicate<BitSet> consistency) {
+        if (consistency == null) throw new NullPointerException("The consistency check have to be not null!");
+        this.consistency = consistency;
+    }
+
+    /**
+     * Find a minimal conflict of C.
+     *
+     * @param b - the background, which has to be consistent
+     * @param c - the elements of the conflict
+     * @return a minimal conflict, which is empty if B is inconsistent, or null if B ∪ C is consistent
+     */
+    public BitSet findConflict(BitSet b, BitSet c) {
+        // if consistent(B ∪ C) return 'no conflict'
+        BitSet bWithC = (BitSet) b.clone();
+        bWithC.or(c);
+        if (isConsistent(bWithC)) return null;
+
+        // else if isEmpty(C) return Φ
+        if (c.isEmpty()) return new BitSet();
+
+        return explain(b, c);
+    }
+
+    /**
+     * Find a minimal conflict of C, where B is consistent and B ∪ C is known to be inconsistent.
+     */
+    BitSet explain(BitSet b, BitSet c) {
+        return qx(b, false, c);
+    }
+
+    // func QX(B, Δ, C = {c1..cq}) : conflict
+    private BitSet qx(BitSet b, boolean hasDelta, BitSet c) {
+        // if Δ != Φ and inconsistent(B) return Φ;
+        if (hasDelta && !isConsistent(b)) {
+            return new BitSet();
+        }
+
+        // if singleton(C) return C;
+        int q = c.cardinality();
+        if (q == 1) {
+            return (BitSet) c.clone();
+        }
+
+        // C1 = {c1..ck}; C2 = {ck+1..cq};
+        int k = q / 2;
+        int split = c.nextSetBit(0);
+        for (int i = 0; i < k; i++) {
+            split = c.nextSetBit(split + 1);
+        }
+        BitSet c1 = (BitSet) c.clone();
+        c1.clear(split, c.length());
+        BitSet c2 = (BitSet) c.clone();
+        c2.clear(0, split);
+
+        // Δ2 = QX(B ∪ C1, C1, C2);
+        BitSet bWithC1 = (BitSet) b.clone();
+        bWithC1.or(c1);
+        BitSet delta2 = qx(bWithC1, true, c2);
+
+        // Δ1 = QX(B ∪ Δ2, Δ2, C1);
+        BitSet bWithDelta2 = (BitSet) b.clone();
+        bWithDelta2.or(delta2);
+        BitSet delta1 = qx(bWithDelta2, !delta2.isEmpty(), c1);
+
+        // return(Δ1 ∪ Δ2);
+        delta1.or(delta2);
+        return delta1;
+    }
+
+    private boolean isConsistent(BitSet elements) {
+        numOfChecks++;
+        return consistency.test(elements);
+    }
+
+    /**
+     * @return the number of consistency checks
+     */
+    public long getNumOfChecks() {
+        return numOfChecks;
+    }
+}
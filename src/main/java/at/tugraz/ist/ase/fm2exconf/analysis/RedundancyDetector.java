@@ -0,0 +1,164 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.Relationship;
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detects the redundant relationships and constraints of a feature model.
+ *
+ * A relationship r is redundant if the other constraints of the feature model imply r,
+ * i.e. if {AC - r U not r} is inconsistent. The negations of all checked relationships
+ * are added to a model once, see {@link #prepare(ChocoModel)} and {@link ChocoModel#getNotCstrs(Relationship)},
+ * so the checks only select constraints of a fixed model. The checks of {@link #isRedundant(ChocoModel, Relationship)}
+ * are independent of each other, thus their results don't depend on the order of the checks,
+ * and they can run in parallel, each worker on its own prepared model.
+ *
+ * Two relationships which imply each other are both redundant, but can't be removed together.
+ * {@link #findNonRedundantSubset(ChocoModel)} computes in a single pass a subset, which is
+ * equivalent to all relationships and has no redundant relationship.
+ *
+ * A check stopped by a {@link CheckLimits} leaves its relationship undecided. {@link #isRedundant(ChocoModel, Relationship)}
+ * throws the {@link CheckLimitException}, while {@link #findNonRedundantSubset(ChocoModel)} keeps the relationship
+ * and reports it by {@link #getUndecided()}.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class RedundancyDetector {
+
+    public enum Mode {
+        INDEPENDENT, // each relationship is checked against all other ones
+        NON_REDUNDANT_SUBSET // the redundant relationships are removed one after another
+    }
+
+    // the checked relationships in the order of the checks
+    private List<Relationship> relationships;
+
+    // the constraints of each prepared model, without the negations
+    private Map<ChocoModel, List<Constraint>> constraints = new ConcurrentHashMap<>();
+
+    private AtomicLong numOfChecks = new AtomicLong();
+    // the kept relationships of the non-redundant subset whose checks are stopped
+    private Map<Relationship, CheckLimitException> undecided = new LinkedHashMap<>();
+
+    /**
+     * @param relationships - the relationships and the constraints to check
+     */
+    public RedundancyDetector(List<Relationship> relationships) {
+        if (relationships == null) throw new NullPointerException("The relationships have to be not null!");
+        this.relationships = new ArrayList<>(relationships);
+    }
+
+    public List<Relationship> getRelationships() {
+        return Collections.unmodifiableList(relationships);
+    }
+
+    /**
+     * Add the negations of the relationships to a model. The model is not changed by the checks.
+     * It has to be called for each model before the checks.
+     *
+     * @param model - a {@link ChocoModel} of the feature model
+     */
+    public void prepare(ChocoModel model) {
+        model.resetCstrs();
+        constraints.put(model, model.getAC());
+
+        for (Relationship r : relationships) {
+            model.getNotCstrs(r);
+        }
+
+        // the negations are only selected by the checks
+        model.resetCstrs();
+    }
+
+    /**
+     * Check if a relationship is implied by all other constraints of the feature model.
+     *
+     * @param model - a model prepared by {@link #prepare(ChocoModel)}
+     * @param relationship - one of the checked relationships
+     * @return true if the relationship is redundant
+     * @throws CheckLimitException when the check is stopped by a limit
+     */
+    public boolean isRedundant(ChocoModel model, Relationship relationship) throws CheckLimitException {
+        return isRedundant(model, relationship, constraints.get(model));
+    }
+
+    /**
+     * Remove the redundant relationships one after another in the order of the checks.
+     * Each relationship is checked against the relationships which are kept so far,
+     * so the result is a subset without redundant relationships, which is equivalent to
+     * all relationships. The result is maximal, i.e. adding back a removed relationship
+     * makes it redundant, but it depends on the order of the checks.
+     * A relationship whose check is stopped by a limit is kept, see {@link #getUndecided()}.
+     *
+     * @param model - a model prepared by {@link #prepare(ChocoModel)}
+     * @return the kept relationships in the order of the checks
+     */
+    public List<Relationship> findNonRedundantSubset(ChocoModel model) {
+        List<Constraint> kept = new ArrayList<>(constraints.get(model));
+        List<Relationship> subset = new ArrayList<>();
+        undecided.clear();
+        for (Relationship r : relationships) {
+            boolean redundant;
+            try {
+                redundant = isRedundant(model, r, kept);
+            } catch (CheckLimitException e) {
+                undecided.put(r, e);
+                redundant = false;
+            }
+            if (redundant) {
+                kept.removeAll(toSet(model.getCstrs(r)));
+            } else {
+                subset.add(r);
+            }
+        }
+        return subset;
+    }
+
+    private boolean isRedundant(ChocoModel model, Relationship relationship, List<Constraint> kept) {
+        List<Constraint> cstrs = model.getCstrs(relationship);
+        if (cstrs.isEmpty()) return false;
+
+        // AC - r U not r
+        Set<Constraint> removed = toSet(cstrs);
+        List<Constraint> checked = new ArrayList<>(kept.size());
+        for (Constraint c : kept) {
+            if (!removed.contains(c)) {
+                checked.add(c);
+            }
+        }
+        checked.addAll(model.getNotCstrs(relationship));
+
+        numOfChecks.incrementAndGet();
+        return !model.isConsistent(checked);
+    }
+
+    private static Set<Constraint> toSet(List<Constraint> constraints) {
+        Set<Constraint> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(constraints);
+        return set;
+    }
+
+    /**
+     * @return the relationships kept by the last {@link #findNonRedundantSubset(ChocoModel)}
+     * because their checks are stopped by a limit, together with the stopped checks
+     */
+    public Map<Relationship, CheckLimitException> getUndecided() {
+        return Collections.unmodifiableMap(undecided);
+    }
+
+    public long getNumOfChecks() {
+        return numOfChecks.get();
+    }
+}
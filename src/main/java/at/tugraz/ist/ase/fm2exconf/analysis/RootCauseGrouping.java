@@ -0,0 +1,115 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.Feature;
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import at.tugraz.ist.ase.fm2exconf.core.Relationship;
+
+import java.util.*;
+
+/**
+ * Groups the dead and the full mandatory features by their root causes.
+ *
+ * The relationships of the feature model give implications between features:
+ * a child implies its parent, a mandatory parent implies its child,
+ * and the left side of a requires constraint implies its right side.
+ * If f implies g and g is dead, then f is dead because of g.
+ * If g implies f and g is full mandatory, then f is full mandatory because of g.
+ *
+ * Each anomaly joins the cluster of its first cause which is detected before it,
+ * so a dead subtree or a chain of full mandatory features forms one cluster,
+ * whose root is the earliest detected member. The diagnoses are then computed
+ * only for the root and shared by all members of the cluster.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class RootCauseGrouping {
+
+    // f -> the features implied by f
+    private Map<String, List<String>> implied = new HashMap<>();
+    // f -> the features which imply f
+    private Map<String, List<String>> implying = new HashMap<>();
+
+    public RootCauseGrouping(FeatureModel featureModel) {
+        for (Relationship r : featureModel.getRelationships()) {
+            switch (r.getType()) {
+                case MANDATORY:
+                    // parent <=> child
+                    addImplication(r.getLeftSide(), r.getRightSide().get(0));
+                    addImplication(r.getRightSide().get(0), r.getLeftSide());
+                    break;
+                case OPTIONAL:
+                    // child => parent
+                    addImplication(r.getLeftSide(), r.getRightSide().get(0));
+                    break;
+                case OR:
+                case ALTERNATIVE:
+                    // each child => parent
+                    for (String child : r.getRightSide()) {
+                        addImplication(child, r.getLeftSide());
+                    }
+                    break;
+            }
+        }
+        for (Relationship r : featureModel.getConstraints()) {
+            if (r.getType() == Relationship.RelationshipType.REQUIRES) {
+                addImplication(r.getLeftSide(), r.getRightSide().get(0));
+            }
+        }
+    }
+
+    private void addImplication(String from, String to) {
+        implied.computeIfAbsent(from, k -> new ArrayList<>()).add(to);
+        implying.computeIfAbsent(to, k -> new ArrayList<>()).add(from);
+    }
+
+    /**
+     * Set the cause of each anomaly to the root of its cluster, see {@link Anomaly#getCause()}.
+     * Only the dead and full mandatory features are grouped, the other anomalies are roots.
+     *
+     * @param anomalies - the anomalies of one type in the order of the detection
+     * @return the roots of the clusters in the order of the detection
+     */
+    public List<Anomaly> group(Collection<Anomaly> anomalies) {
+        // the anomalies detected so far by their features
+        Map<String, Anomaly> detected = new HashMap<>();
+        List<Anomaly> roots = new ArrayList<>();
+
+        for (Anomaly anomaly : anomalies) {
+            Anomaly root = null;
+            for (String cause : getCauses(anomaly)) {
+                Anomaly a = detected.get(cause);
+                if (a != null && a.getType() == anomaly.getType()) {
+                    root = a.getCause() != null ? a.getCause() : a;
+                    break;
+                }
+            }
+
+            anomaly.setCause(root);
+            if (root == null) {
+                roots.add(anomaly);
+            }
+            detected.put(anomaly.getFeature().getName(), anomaly);
+        }
+        return roots;
+    }
+
+    private List<String> getCauses(Anomaly anomaly) {
+        Map<String, List<String>> causes;
+        if (anomaly.getType() == Feature.AnomalyType.DEAD) {
+            causes = implied;
+        } else if (anomaly.getType() == Feature.AnomalyType.FULLMANDATORY) {
+            causes = implying;
+        } else {
+            return Collections.emptyList();
+        }
+        return causes.getOrDefault(anomaly.getFeature().getName(), Collections.emptyList());
+    }
+}
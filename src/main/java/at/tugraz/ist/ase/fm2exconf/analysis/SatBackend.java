@@ -0,0 +1,224 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.util.ESat;
+
+import java.util.*;
+
+/**
+ * A {@link SolverBackend} using an embedded CDCL {@link SatSolver}.
+ *
+ * The feature models are propositional, so each clause of a {@link ChocoModel}
+ * in the incremental mode is translated into the CNF clause {not s \/ clause}
+ * with its own selector variable s. A check then solves under the assumptions
+ * of the selectors of the checked clauses. The learned clauses are kept
+ * across the checks.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class SatBackend implements SolverBackend {
+
+    private ChocoModel model;
+    private SatSolver solver;
+
+    // the variable of a feature is its index in the breadth-first order,
+    // the auxiliary variables of the model follow the features
+    private Map<String, Integer> indexes;
+    // the selector variable of each clause of the model,
+    // created on the first check of the clause
+    private Map<Constraint, Integer> selectors;
+
+    // records the solutions of the checks of all constraints
+    private WitnessTracker witnessTracker;
+    // the true features of the last solution with a witness
+    private BitSet solution;
+
+    private CheckLimits limits;
+
+    /**
+     * @param model - a {@link ChocoModel} in the incremental mode
+     * @throws IllegalArgumentException when the model is not in the incremental mode
+     */
+    public SatBackend(ChocoModel model) throws IllegalArgumentException {
+        if (!model.isIncremental()) throw new IllegalArgumentException("The SAT backend requires a model in the incremental mode!");
+
+        this.model = model;
+        solver = new SatSolver();
+
+        BoolVar[] featureVars = model.getFeatureVars();
+        indexes = new HashMap<>();
+        for (int i = 0; i < featureVars.length; i++) {
+            indexes.put(featureVars[i].getName(), solver.newVar());
+        }
+        selectors = new HashMap<>();
+    }
+
+    @Override
+    public boolean isConsistent(Collection<Constraint> constraints, boolean witness) {
+        int[] assumptions = getAssumptions(constraints);
+
+        int numOfFeatures = model.getFeatureVars().length;
+        if (witnessTracker != null) {
+            for (int i = 0; i < numOfFeatures; i++) {
+                solver.setPhase(i, witnessTracker.isPreferredTrue(i));
+            }
+        }
+
+        long checkDeadline = 0;
+        if (limits != null) {
+            checkDeadline = limits.startCheck();
+            solver.setLimits(limits.getNodeLimit(), getConflictLimit(), checkDeadline);
+        }
+        long decisions = solver.getNumOfDecisions();
+        long conflicts = solver.getNumOfConflicts();
+
+        boolean consistent = solver.solve(assumptions);
+        if (solver.isStopped()) {
+            conflicts = solver.getNumOfConflicts() - conflicts;
+            String reachedLimit = limits.getReachedLimit(solver.getNumOfDecisions() - decisions,
+                    conflicts, conflicts, checkDeadline);
+            throw limits.stop(reachedLimit != null ? reachedLimit : "a limit is reached");
+        }
+        if (consistent && witness) {
+            solution = new BitSet(numOfFeatures);
+            for (int i = 0; i < numOfFeatures; i++) {
+                if (solver.getModelValue(i)) {
+                    solution.set(i);
+                }
+            }
+
+            if (witnessTracker != null) {
+                witnessTracker.record(solution);
+            }
+        }
+        return consistent;
+    }
+
+    /**
+     * Run the unit propagation of the selectors of the constraints, see {@link SatSolver#propagate(int[], BitSet, BitSet)}.
+     */
+    @Override
+    public ESat propagate(Collection<Constraint> constraints, boolean witness) {
+        BitSet trueVars = new BitSet();
+        BitSet falseVars = new BitSet();
+        if (!solver.propagate(getAssumptions(constraints), trueVars, falseVars)) {
+            return ESat.FALSE;
+        }
+
+        // the feature variables are the first variables
+        int numOfFeatures = model.getFeatureVars().length;
+        BitSet fixed = (BitSet) trueVars.clone();
+        fixed.or(falseVars);
+        if (fixed.nextClearBit(0) < numOfFeatures) {
+            return ESat.UNDEFINED;
+        }
+
+        if (witness) {
+            solution = trueVars.get(0, numOfFeatures);
+            if (witnessTracker != null) {
+                witnessTracker.record(solution);
+            }
+        }
+        return ESat.TRUE;
+    }
+
+    private int[] getAssumptions(Collection<Constraint> constraints) {
+        int[] assumptions = new int[constraints.size()];
+        int k = 0;
+        for (Constraint c : constraints) {
+            assumptions[k++] = SatSolver.literal(getSelector(c), true);
+        }
+        return assumptions;
+    }
+
+    /**
+     * Return the selector variable of a clause of the model,
+     * the guarded clause is added to the solver on the first request.
+     */
+    private int getSelector(Constraint c) {
+        Integer s = selectors.get(c);
+        if (s == null) {
+            BoolVar[] clause = model.getClause(c);
+
+            s = solver.newVar();
+            int[] lits = new int[clause.length + 1];
+            lits[0] = SatSolver.literal(s, false);
+            for (int i = 0; i < clause.length; i++) {
+                lits[i + 1] = getLiteral(clause[i]);
+            }
+            solver.addClause(lits);
+
+            selectors.put(c, s);
+        }
+        return s;
+    }
+
+    private int getLiteral(BoolVar var) {
+        if (var.isNot()) {
+            return SatSolver.literal(getVar(var.not()), false);
+        }
+        return SatSolver.literal(getVar(var), true);
+    }
+
+    // an auxiliary variable, e.g. of the ladder encoding, is created on the first request
+    private int getVar(BoolVar var) {
+        return indexes.computeIfAbsent(var.getName(), k -> solver.newVar());
+    }
+
+    @Override
+    public BitSet getSolution() {
+        return solution;
+    }
+
+    /**
+     * The preferred values of the tracker become the phases of the feature variables.
+     */
+    @Override
+    public void setWitnessTracker(WitnessTracker witnessTracker) {
+        this.witnessTracker = witnessTracker;
+    }
+
+    /**
+     * The decisions of the SAT solver are the search nodes, and each conflict
+     * is a fail and a backtrack, i.e. a backjump.
+     */
+    @Override
+    public void setLimits(CheckLimits limits) {
+        this.limits = limits;
+        if (limits == null) {
+            solver.setLimits(0, 0, 0);
+        }
+    }
+
+    // the smaller of the fail and backtrack limits, 0 means no limit
+    private long getConflictLimit() {
+        long failLimit = limits.getFailLimit();
+        long backtrackLimit = limits.getBacktrackLimit();
+        if (failLimit == 0) return backtrackLimit;
+        if (backtrackLimit == 0) return failLimit;
+        return Math.min(failLimit, backtrackLimit);
+    }
+
+    /**
+     * Nothing to reset: the clauses and the learned clauses are kept, each check assumes
+     * its selectors instead of adding clauses, and the solver backtracks to the root level
+     * after each solve or propagation, also when it is stopped by a limit. The learned clauses
+     * are implied by the guarded clauses, so they hold for all later checks.
+     */
+    @Override
+    public void reset() {
+    }
+
+    public SatSolver getSolver() {
+        return solver;
+    }
+}
@@ -0,0 +1,652 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A small CDCL SAT solver with two watched literals, VSIDS branching, phase saving,
+ * first UIP clause learning and Luby restarts.
+ *
+ * The solver is incremental: clauses could be added between the solves,
+ * and each solve takes a set of assumptions, which are decided first.
+ * A solve could be limited by the number of decisions, of conflicts and by a deadline.
+ * The learned clauses are derived from the clauses only, so they are kept
+ * across the solves with different assumptions.
+ *
+ * A variable is an index from 0, the literals of a variable v are 2v (true) and 2v + 1 (false).
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class SatSolver {
+    private static final byte UNDEF = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = -1;
+
+    private static final double VAR_DECAY = 0.95;
+    private static final double CLAUSE_DECAY = 0.999;
+    private static final int RESTART_BASE = 100;
+
+    private static class Clause {
+        int[] lits;
+        boolean learnt;
+        double activity = 0;
+
+        Clause(int[] lits, boolean learnt) {
+            this.lits = lits;
+            this.learnt = learnt;
+        }
+    }
+
+    // false if the clauses are inconsistent without any assumption
+    private boolean ok = true;
+
+    private int numOfVars = 0;
+    // the value, the decision level and the reason of each variable
+    private byte[] values = new byte[0];
+    private int[] levels = new int[0];
+    private Clause[] reasons = new Clause[0];
+    // the saved phase of each variable, true for the positive literal
+    private boolean[] phases = new boolean[0];
+    private double[] activities = new double[0];
+    private boolean[] seen = new boolean[0];
+    // the clauses which watch each literal
+    private List<List<Clause>> watches = new ArrayList<>();
+
+    private List<Clause> clauses = new ArrayList<>();
+    private List<Clause> learnts = new ArrayList<>();
+
+    // the assigned literals in the order of assignment
+    private int[] trail = new int[0];
+    private int trailSize = 0;
+    // the start of each decision level on the trail
+    private int[] trailLim = new int[0];
+    private int numOfLevels = 0;
+    // the next literal to propagate
+    private int qhead = 0;
+
+    // a binary heap of the unassigned variables on their activities
+    private int[] heap = new int[0];
+    private int heapSize = 0;
+    private int[] heapIndexes = new int[0];
+
+    private double varInc = 1;
+    private double clauseInc = 1;
+    private double maxLearnts = 0;
+    // the backtrack level of the last analysed conflict
+    private int backtrackLevel;
+
+    // the values of the last model
+    private boolean[] model = new boolean[0];
+
+    private long numOfSolves = 0;
+    private long numOfConflicts = 0;
+    private long numOfDecisions = 0;
+
+    // the limits of a solve, 0 means no limit
+    private long decisionLimit = 0;
+    private long conflictLimit = 0;
+    private long deadline = 0;
+    // the counters at the start of the current solve
+    private long startDecisions;
+    private long startConflicts;
+    private int steps;
+    // true if the last solve is stopped by a limit
+    private boolean stopped = false;
+
+    /**
+     * @param var - a variable
+     * @param value - the value of the variable
+     * @return the literal {var = value}
+     */
+    public static int literal(int var, boolean value) {
+        return value ? 2 * var : 2 * var + 1;
+    }
+
+    /**
+     * Create a new variable.
+     *
+     * @return the index of the variable
+     */
+    public int newVar() {
+        int v = numOfVars++;
+        if (v >= values.length) {
+            int capacity = Math.max(16, values.length * 2);
+            values = Arrays.copyOf(values, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            reasons = Arrays.copyOf(reasons, capacity);
+            phases = Arrays.copyOf(phases, capacity);
+            activities = Arrays.copyOf(activities, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            trail = Arrays.copyOf(trail, capacity);
+            heap = Arrays.copyOf(heap, capacity);
+            heapIndexes = Arrays.copyOf(heapIndexes, capacity);
+        }
+        watches.add(new ArrayList<>());
+        watches.add(new ArrayList<>());
+        heapIndexes[v] = -1;
+        heapInsert(v);
+        return v;
+    }
+
+    public int getNumOfVars() {
+        return numOfVars;
+    }
+
+    /**
+     * Limit the next solves. A solve which reaches a limit returns false, see {@link #isStopped()}.
+     *
+     * @param decisionLimit - the maximum number of decisions of a solve, 0 means no limit
+     * @param conflictLimit - the maximum number of conflicts of a solve, 0 means no limit
+     * @param deadline - the deadline of a solve in System.nanoTime(), 0 means no deadline
+     */
+    public void setLimits(long decisionLimit, long conflictLimit, long deadline) {
+        this.decisionLimit = decisionLimit;
+        this.conflictLimit = conflictLimit;
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return true if the last solve is stopped by a limit, i.e. its result is unknown
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Set the phase of a variable, i.e. the value which is tried first when branching on it.
+     */
+    public void setPhase(int var, boolean value) {
+        phases[var] = value;
+    }
+
+    /**
+     * Add a clause. It could be called only between the solves.
+     *
+     * @param lits - the literals of the clause
+     * @return false if the clauses became inconsistent, true otherwise
+     */
+    public boolean addClause(int... lits) {
+        if (!ok) return false;
+
+        int[] sorted = lits.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            int lit = sorted[i];
+            byte value = litValue(lit);
+            if (value == TRUE || (i > 0 && lit == (sorted[i - 1] ^ 1))) {
+                return true; // satisfied or tautology
+            }
+            if (value == FALSE || (i > 0 && lit == sorted[i - 1])) {
+                continue; // false at the top level or duplicated
+            }
+            sorted[size++] = lit;
+        }
+
+        if (size == 0) {
+            ok = false;
+        } else if (size == 1) {
+            enqueue(sorted[0], null);
+            ok = propagate() == null;
+        } else {
+            Clause c = new Clause(Arrays.copyOf(sorted, size), false);
+            attach(c);
+            clauses.add(c);
+        }
+        return ok;
+    }
+
+    /**
+     * Solve the clauses under the given assumptions.
+     *
+     * @param assumptions - the literals which have to be true
+     * @return true if a model is found, false otherwise
+     */
+    public boolean solve(int... assumptions) {
+        numOfSolves++;
+        stopped = false;
+        if (!ok) return false;
+        startDecisions = numOfDecisions;
+        startConflicts = numOfConflicts;
+        steps = 0;
+        if (maxLearnts < clauses.size() / 3.0 + 1000) {
+            maxLearnts = clauses.size() / 3.0 + 1000;
+        }
+
+        int restarts = 0;
+        while (true) {
+            byte result = search((int) (luby(2, restarts++) * RESTART_BASE), assumptions);
+            if (result != UNDEF) {
+                cancelUntil(0);
+                return result == TRUE;
+            }
+            if (stopped) return false;
+        }
+    }
+
+    /**
+     * Propagate the given assumptions by unit propagation only, without any decision.
+     * The clauses and the learned clauses are kept, and the assignment is undone afterwards.
+     *
+     * @param assumptions - the literals which have to be true
+     * @param trueVars - receives the variables which are true after the propagation
+     * @param falseVars - receives the variables which are false after the propagation
+     * @return false if the propagation fails, i.e. the assumptions are inconsistent, true otherwise
+     */
+    public boolean propagate(int[] assumptions, BitSet trueVars, BitSet falseVars) {
+        if (!ok) return false;
+        if (propagate() != null) {
+            ok = false;
+            return false;
+        }
+
+        boolean consistent = true;
+        for (int p : assumptions) {
+            byte value = litValue(p);
+            if (value == FALSE) {
+                consistent = false;
+                break;
+            }
+            if (value == UNDEF) {
+                newDecisionLevel();
+                enqueue(p, null);
+                if (propagate() != null) {
+                    consistent = false;
+                    break;
+                }
+            }
+        }
+
+        if (consistent) {
+            for (int i = 0; i < trailSize; i++) {
+                int lit = trail[i];
+                ((lit & 1) == 0 ? trueVars : falseVars).set(lit >> 1);
+            }
+        }
+        cancelUntil(0);
+        return consistent;
+    }
+
+    /**
+     * @return the value of the variable in the last model
+     */
+    public boolean getModelValue(int var) {
+        return model[var];
+    }
+
+    public long getNumOfSolves() {
+        return numOfSolves;
+    }
+
+    public long getNumOfConflicts() {
+        return numOfConflicts;
+    }
+
+    public long getNumOfDecisions() {
+        return numOfDecisions;
+    }
+
+    public int getNumOfLearnts() {
+        return learnts.size();
+    }
+
+    // the clock is read every 64 steps of the search
+    private boolean isLimitReached() {
+        if (decisionLimit > 0 && numOfDecisions - startDecisions >= decisionLimit) return true;
+        if (conflictLimit > 0 && numOfConflicts - startConflicts >= conflictLimit) return true;
+        return deadline != 0 && (++steps & 63) == 0 && System.nanoTime() - deadline >= 0;
+    }
+
+    // search until a model is found, the assumptions are inconsistent,
+    // or the number of conflicts reaches the budget or a limit of the solve is reached (UNDEF)
+    private byte search(int conflictBudget, int[] assumptions) {
+        int conflicts = 0;
+        while (true) {
+            Clause conflict = propagate();
+            if (conflict != null) {
+                conflicts++;
+                numOfConflicts++;
+                if (numOfLevels == 0) {
+                    ok = false;
+                    return FALSE;
+                }
+
+                int[] learnt = analyze(conflict);
+                cancelUntil(backtrackLevel);
+                if (learnt.length == 1) {
+                    enqueue(learnt[0], null);
+                } else {
+                    Clause c = new Clause(learnt, true);
+                    attach(c);
+                    learnts.add(c);
+                    bumpClause(c);
+                    enqueue(learnt[0], c);
+                }
+                varInc /= VAR_DECAY;
+                clauseInc /= CLAUSE_DECAY;
+            } else {
+                if (conflicts >= conflictBudget) {
+                    cancelUntil(0);
+                    return UNDEF;
+                }
+                if (isLimitReached()) {
+                    stopped = true;
+                    cancelUntil(0);
+                    return UNDEF;
+                }
+                if (learnts.size() - trailSize >= maxLearnts) {
+                    reduceLearnts();
+                }
+
+                int next = -1;
+                // decide the assumptions first, one decision level for each
+                while (numOfLevels < assumptions.length) {
+                    int p = assumptions[numOfLevels];
+                    byte value = litValue(p);
+                    if (value == TRUE) {
+                        newDecisionLevel();
+                    } else if (value == FALSE) {
+                        return FALSE;
+                    } else {
+                        next = p;
+                        break;
+                    }
+                }
+
+                if (next == -1) {
+                    next = pickBranchLit();
+                    if (next == -1) { // all variables are assigned
+                        saveModel();
+                        return TRUE;
+                    }
+                    numOfDecisions++;
+                }
+                newDecisionLevel();
+                enqueue(next, null);
+            }
+        }
+    }
+
+    // propagate the assigned literals, return a conflicting clause or null
+    private Clause propagate() {
+        Clause conflict = null;
+        while (qhead < trailSize && conflict == null) {
+            int falseLit = trail[qhead++] ^ 1;
+            List<Clause> ws = watches.get(falseLit);
+
+            int i = 0, j = 0, n = ws.size();
+            while (i < n) {
+                Clause c = ws.get(i++);
+                int[] lits = c.lits;
+                // make sure that the false literal is lits[1]
+                if (lits[0] == falseLit) {
+                    lits[0] = lits[1];
+                    lits[1] = falseLit;
+                }
+                if (litValue(lits[0]) == TRUE) {
+                    ws.set(j++, c);
+                    continue;
+                }
+
+                // look for a new literal to watch
+                boolean found = false;
+                for (int k = 2; k < lits.length; k++) {
+                    if (litValue(lits[k]) != FALSE) {
+                        lits[1] = lits[k];
+                        lits[k] = falseLit;
+                        watches.get(lits[1]).add(c);
+                        found = true;
+                        break;
+                    }
+                }
+                if (found) continue;
+
+                // the clause is unit or conflicting
+                ws.set(j++, c);
+                if (litValue(lits[0]) == FALSE) {
+                    conflict = c;
+                    qhead = trailSize;
+                    while (i < n) {
+                        ws.set(j++, ws.get(i++));
+                    }
+                } else {
+                    enqueue(lits[0], c);
+                }
+            }
+            ws.subList(j, n).clear();
+        }
+        return conflict;
+    }
+
+    // analyse the conflict and return the first UIP clause,
+    // whose asserting literal is at the index 0
+    private int[] analyze(Clause conflict) {
+        List<Integer> learnt = new ArrayList<>();
+        learnt.add(-1);
+
+        int pathCount = 0;
+        int p = -1;
+        int index = trailSize - 1;
+        Clause c = conflict;
+        do {
+            if (c.learnt) bumpClause(c);
+
+            for (int k = (p == -1) ? 0 : 1; k < c.lits.length; k++) {
+                int q = c.lits[k];
+                int v = q >> 1;
+                if (!seen[v] && levels[v] > 0) {
+                    bumpVar(v);
+                    seen[v] = true;
+                    if (levels[v] >= numOfLevels) {
+                        pathCount++;
+                    } else {
+                        learnt.add(q);
+                    }
+                }
+            }
+
+            // the next literal of the current level on the trail
+            while (!seen[trail[index] >> 1]) index--;
+            p = trail[index--];
+            c = reasons[p >> 1];
+            seen[p >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        learnt.set(0, p ^ 1);
+
+        int[] lits = new int[learnt.size()];
+        backtrackLevel = 0;
+        for (int k = 0; k < lits.length; k++) {
+            lits[k] = learnt.get(k);
+            if (k > 0) {
+                seen[lits[k] >> 1] = false;
+                // the literal of the highest level is watched
+                if (levels[lits[k] >> 1] > backtrackLevel) {
+                    backtrackLevel = levels[lits[k] >> 1];
+                    int tmp = lits[1];
+                    lits[1] = lits[k];
+                    lits[k] = tmp;
+                }
+            }
+        }
+        return lits;
+    }
+
+    // remove half of the learned clauses with the lowest activities,
+    // except the binary clauses and the reasons of assigned literals
+    private void reduceLearnts() {
+        learnts.sort((c1, c2) -> Double.compare(c1.activity, c2.activity));
+        int limit = learnts.size() / 2;
+        List<Clause> kept = new ArrayList<>();
+        for (int i = 0; i < learnts.size(); i++) {
+            Clause c = learnts.get(i);
+            if (i < limit && c.lits.length > 2 && !isLocked(c)) {
+                watches.get(c.lits[0]).remove(c);
+                watches.get(c.lits[1]).remove(c);
+            } else {
+                kept.add(c);
+            }
+        }
+        learnts = kept;
+        maxLearnts *= 1.1;
+    }
+
+    private boolean isLocked(Clause c) {
+        return reasons[c.lits[0] >> 1] == c && litValue(c.lits[0]) == TRUE;
+    }
+
+    private void attach(Clause c) {
+        watches.get(c.lits[0]).add(c);
+        watches.get(c.lits[1]).add(c);
+    }
+
+    private byte litValue(int lit) {
+        byte value = values[lit >> 1];
+        return (lit & 1) == 0 ? value : (byte) -value;
+    }
+
+    private void enqueue(int lit, Clause reason) {
+        int v = lit >> 1;
+        values[v] = (lit & 1) == 0 ? TRUE : FALSE;
+        levels[v] = numOfLevels;
+        reasons[v] = reason;
+        trail[trailSize++] = lit;
+    }
+
+    private void newDecisionLevel() {
+        // the assumptions which are already true open empty levels,
+        // so the number of levels could exceed the number of variables
+        if (numOfLevels == trailLim.length) {
+            trailLim = Arrays.copyOf(trailLim, Math.max(16, trailLim.length * 2));
+        }
+        trailLim[numOfLevels++] = trailSize;
+    }
+
+    private void cancelUntil(int level) {
+        if (numOfLevels <= level) return;
+
+        for (int i = trailSize - 1; i >= trailLim[level]; i--) {
+            int v = trail[i] >> 1;
+            phases[v] = values[v] == TRUE;
+            values[v] = UNDEF;
+            reasons[v] = null;
+            if (heapIndexes[v] < 0) heapInsert(v);
+        }
+        trailSize = trailLim[level];
+        qhead = trailSize;
+        numOfLevels = level;
+    }
+
+    private int pickBranchLit() {
+        while (heapSize > 0) {
+            int v = heapRemoveMax();
+            if (values[v] == UNDEF) {
+                return literal(v, phases[v]);
+            }
+        }
+        return -1;
+    }
+
+    private void saveModel() {
+        if (model.length < numOfVars) {
+            model = new boolean[numOfVars];
+        }
+        for (int v = 0; v < numOfVars; v++) {
+            model[v] = values[v] == TRUE;
+        }
+    }
+
+    private void bumpVar(int v) {
+        activities[v] += varInc;
+        if (activities[v] > 1e100) {
+            for (int i = 0; i < numOfVars; i++) {
+                activities[i] *= 1e-100;
+            }
+            varInc *= 1e-100;
+        }
+        if (heapIndexes[v] >= 0) heapUp(heapIndexes[v]);
+    }
+
+    private void bumpClause(Clause c) {
+        c.activity += clauseInc;
+        if (c.activity > 1e20) {
+            for (Clause l : learnts) {
+                l.activity *= 1e-20;
+            }
+            clauseInc *= 1e-20;
+        }
+    }
+
+    // the Luby sequence y^x: 1, 1, 2, 1, 1, 2, 4, ...
+    static double luby(double y, int x) {
+        int size = 1;
+        int seq = 0;
+        while (size < x + 1) {
+            seq++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != x) {
+            size = (size - 1) >> 1;
+            seq--;
+            x = x % size;
+        }
+        return Math.pow(y, seq);
+    }
+
+    private void heapInsert(int v) {
+        heapIndexes[v] = heapSize;
+        heap[heapSize++] = v;
+        heapUp(heapIndexes[v]);
+    }
+
+    private int heapRemoveMax() {
+        int v = heap[0];
+        heapIndexes[v] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndexes[heap[0]] = 0;
+            heapDown(0);
+        }
+        return v;
+    }
+
+    private void heapUp(int i) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (activities[heap[parent]] >= activities[v]) break;
+            heap[i] = heap[parent];
+            heapIndexes[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        heapIndexes[v] = i;
+    }
+
+    private void heapDown(int i) {
+        int v = heap[i];
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && activities[heap[child + 1]] > activities[heap[child]]) {
+                child++;
+            }
+            if (activities[heap[child]] <= activities[v]) break;
+            heap[i] = heap[child];
+            heapIndexes[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapIndexes[v] = i;
+    }
+}
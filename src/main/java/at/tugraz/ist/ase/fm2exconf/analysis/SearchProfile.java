@@ -0,0 +1,122 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The search of the consistency checks of a {@link ChocoModel} with the Choco backend,
+ * i.e. the order of the feature variables, the order of their values and the restarts.
+ *
+ * Consecutive checks, e.g. of the dead features, differ by a single unit clause,
+ * so the solution of a check is often a solution of the next one. With the phase saving,
+ * each feature first takes its value in the last solution found on the model.
+ * The restarts follow the Luby sequence on the number of fails of a check. The phases are saved
+ * only by the solutions, so a restart changes the search only by the dom/wdeg weights, which are kept
+ * across the restarts. The restarts are therefore allowed only with {@link VariableOrder#DOM_WDEG},
+ * with either value order. The static orders {@link VariableOrder#BF} and {@link VariableOrder#DF}
+ * would replay the same tree after each restart.
+ * With a {@link WitnessTracker}, the features which are not yet true in a witness are tried true first,
+ * and the value order applies to the other features.
+ *
+ * The {@link SatBackend} always branches by VSIDS with phase saving and Luby restarts,
+ * and keeps its learned clauses across the checks, so the profiles don't apply to it.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class SearchProfile {
+
+    public enum VariableOrder {
+        DOM_WDEG, // the dom/wdeg heuristic with last conflict
+        BF, // the breadth-first order of the feature tree
+        DF // the depth-first order of the feature tree
+    }
+
+    public enum ValueOrder {
+        MIN, // false first
+        PHASE_SAVING // the value in the last solution, false if there is no solution yet
+    }
+
+    // the scale of the Luby sequence of the restarts, in fails
+    public static final int DEFAULT_RESTART_SCALE = 100;
+
+    /**
+     * The search of the previous versions, dom/wdeg with false first and without restarts.
+     */
+    public static final SearchProfile DEFAULT = new SearchProfile(VariableOrder.DOM_WDEG, ValueOrder.MIN, false);
+
+    private final VariableOrder variableOrder;
+    private final ValueOrder valueOrder;
+    private final boolean restarts;
+
+    /**
+     * @param variableOrder - the order of the feature variables
+     * @param valueOrder - the order of the values
+     * @param restarts - true to restart the search of a check by the Luby sequence,
+     *                 only with {@link VariableOrder#DOM_WDEG}
+     * @throws IllegalArgumentException if the restarts are requested with a static variable order
+     */
+    public SearchProfile(VariableOrder variableOrder, ValueOrder valueOrder, boolean restarts) throws IllegalArgumentException {
+        if (variableOrder == null) throw new NullPointerException("The variable order have to be not null!");
+        if (valueOrder == null) throw new NullPointerException("The value order have to be not null!");
+        if (restarts && variableOrder != VariableOrder.DOM_WDEG)
+            throw new IllegalArgumentException("The restarts have to be used with the variable order DOM_WDEG!");
+
+        this.variableOrder = variableOrder;
+        this.valueOrder = valueOrder;
+        this.restarts = restarts;
+    }
+
+    public VariableOrder getVariableOrder() {
+        return variableOrder;
+    }
+
+    public ValueOrder getValueOrder() {
+        return valueOrder;
+    }
+
+    public boolean isRestarts() {
+        return restarts;
+    }
+
+    /**
+     * @return all valid combinations of the variable orders, the value orders and the restarts
+     */
+    public static SearchProfile[] values() {
+        List<SearchProfile> profiles = new ArrayList<>();
+        for (VariableOrder variableOrder : VariableOrder.values()) {
+            for (ValueOrder valueOrder : ValueOrder.values()) {
+                profiles.add(new SearchProfile(variableOrder, valueOrder, false));
+                if (variableOrder == VariableOrder.DOM_WDEG) {
+                    profiles.add(new SearchProfile(variableOrder, valueOrder, true));
+                }
+            }
+        }
+        return profiles.toArray(new SearchProfile[0]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SearchProfile)) return false;
+        SearchProfile profile = (SearchProfile) o;
+        return variableOrder == profile.variableOrder && valueOrder == profile.valueOrder && restarts == profile.restarts;
+    }
+
+    @Override
+    public int hashCode() {
+        return (variableOrder.ordinal() * 2 + valueOrder.ordinal()) * 2 + (restarts ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return variableOrder + "/" + valueOrder + (restarts ? "/restarts" : "");
+    }
+}
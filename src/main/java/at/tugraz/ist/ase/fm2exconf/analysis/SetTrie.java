@@ -0,0 +1,139 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A set-trie of sets of dense ids, e.g. of the diagnoses found so far.
+ *
+ * Each set is stored as the path of its ids in the increasing order, so sets with
+ * the same smallest ids share their prefix. The trie answers whether a stored set
+ * is a subset of a given set, and whether a given set is stored, by following only
+ * the paths of the ids of the given set, instead of comparing it with every stored set.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class SetTrie {
+
+    private static class Node {
+        // the children by their ids
+        Map<Integer, Node> children;
+        // true if a set ends at this node
+        boolean last = false;
+
+        Node getChild(int id) {
+            return children == null ? null : children.get(id);
+        }
+
+        Node addChild(int id) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(id, k -> new Node());
+        }
+    }
+
+    private Node root = new Node();
+    private int size = 0;
+
+    /**
+     * Add a set to the trie.
+     *
+     * @param set - a set of ids
+     * @return false if the set is already stored, true otherwise
+     */
+    public boolean add(BitSet set) {
+        Node node = root;
+        for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) {
+            node = node.addChild(id);
+        }
+        if (node.last) return false;
+
+        node.last = true;
+        size++;
+        return true;
+    }
+
+    /**
+     * @param set - a set of ids
+     * @return true if the set is stored
+     */
+    public boolean contains(BitSet set) {
+        Node node = root;
+        for (int id = set.nextSetBit(0); id >= 0 && node != null; id = set.nextSetBit(id + 1)) {
+            node = node.getChild(id);
+        }
+        return node != null && node.last;
+    }
+
+    /**
+     * @param set - a set of ids
+     * @return true if a stored set is a subset of the given set, including the set itself
+     */
+    public boolean containsSubsetOf(BitSet set) {
+        return findSubsetOf(set) != null;
+    }
+
+    /**
+     * @param set - a set of ids
+     * @return a stored set which is a subset of the given set, or null if there is no such set
+     */
+    public BitSet findSubsetOf(BitSet set) {
+        BitSet path = new BitSet();
+        return findSubsetOf(root, set, 0, path) ? path : null;
+    }
+
+    // follow the children whose ids are in the set and greater than the id of the node,
+    // the path holds the ids from the root to the node
+    private static boolean findSubsetOf(Node node, BitSet set, int from, BitSet path) {
+        if (node.last) return true;
+        if (node.children == null) return false;
+
+        if (node.children.size() < set.cardinality()) {
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                int id = child.getKey();
+                if (id >= from && set.get(id) && findSubsetOf(child.getValue(), set, id + 1, path, id)) {
+                    return true;
+                }
+            }
+        } else {
+            for (int id = set.nextSetBit(from); id >= 0; id = set.nextSetBit(id + 1)) {
+                Node child = node.children.get(id);
+                if (child != null && findSubsetOf(child, set, id + 1, path, id)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean findSubsetOf(Node child, BitSet set, int from, BitSet path, int id) {
+        path.set(id);
+        if (findSubsetOf(child, set, from, path)) {
+            return true;
+        }
+        path.clear(id);
+        return false;
+    }
+
+    /**
+     * @return the number of stored sets
+     */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        root = new Node();
+        size = 0;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.util.ESat;
+
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * A solver which checks the consistency of sets of constraints of a {@link ChocoModel}.
+ * The constraints of the {@link ChocoModel} identify the clauses of the feature model,
+ * and a backend decides how these clauses are solved.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public interface SolverBackend {
+
+    enum Type {
+        CHOCO, // the Choco solver, see {@link ChocoBackend}
+        SAT // an embedded CDCL SAT solver, see {@link SatBackend}
+    }
+
+    /**
+     * Check the consistency of a given set of constraints of the model.
+     *
+     * @param constraints - a set of constraints of the model
+     * @param witness - true if the constraints include all constraints of the current check,
+     *                so that the solution is kept and recorded by the {@link WitnessTracker}
+     * @return true if the constraints are consistent, false otherwise
+     * @throws CheckLimitException when the check reaches one of the {@link CheckLimits}
+     */
+    boolean isConsistent(Collection<Constraint> constraints, boolean witness) throws CheckLimitException;
+
+    /**
+     * Check the consistency of a given set of constraints of the model by the propagation only,
+     * i.e. without any search. A solution which fixes all feature variables is kept
+     * like a solution of {@link #isConsistent(Collection, boolean)}.
+     *
+     * @param constraints - a set of constraints of the model
+     * @param witness - true if the constraints include all constraints of the current check
+     * @return {@link ESat#FALSE} if the propagation fails, {@link ESat#TRUE} if it fixes
+     * all feature variables, {@link ESat#UNDEFINED} otherwise
+     */
+    ESat propagate(Collection<Constraint> constraints, boolean witness);
+
+    /**
+     * Return the last solution of a check with a witness
+     * in the form of the indexes of the true features in the breadth-first order.
+     *
+     * @return a {@link BitSet} of the true features, or null if there is no solution yet
+     */
+    BitSet getSolution();
+
+    /**
+     * Set a {@link WitnessTracker} which records the solutions
+     * and decides the preferred values of the features.
+     *
+     * @param witnessTracker - a {@link WitnessTracker} or null
+     */
+    void setWitnessTracker(WitnessTracker witnessTracker);
+
+    /**
+     * Set the {@link CheckLimits} of the checks of {@link #isConsistent(Collection, boolean)}.
+     * The propagation of {@link #propagate(Collection, boolean)} is not limited.
+     *
+     * @param limits - the {@link CheckLimits} or null for no limits
+     */
+    void setLimits(CheckLimits limits);
+
+    /**
+     * Reset the state of the solver.
+     */
+    void reset();
+}
@@ -0,0 +1,245 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import at.tugraz.ist.ase.fm2exconf.core.Relationship;
+
+import java.util.*;
+
+/**
+ * Infers the features which are true (core) or false (dead) in all configurations
+ * from the structure of a {@link FeatureModel}, without a solver.
+ *
+ * The relationships and the requires/excludes constraints are binary implications
+ * between the literals {f = true} and {f = false}, e.g. a child implies its parent,
+ * a mandatory parent implies its child, and a feature which excludes g implies {g = false}.
+ * Starting from the root, which is true, the values are propagated along the implications.
+ * In addition, a true child of an alternative group makes its siblings false,
+ * and a group whose children are all false makes its parent false.
+ * Each literal is propagated once, so the inference is linear in the size of the model.
+ *
+ * The inferred values hold in all configurations, but not every core or dead feature
+ * is inferred, so the undecided features still have to be checked by the solver.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class StructuralInference {
+
+    private FeatureModel featureModel;
+    // index of features in the breadth-first order
+    private Map<String, Integer> indexes;
+
+    // the literal of the feature i with the value v is 2 * i + (v ? 1 : 0)
+    private List<List<Integer>> implications;
+    // the alternative groups of the children of each feature
+    private List<List<int[]>> alternativeGroups;
+    // the groups of the children of each feature, with the parent at the last position
+    private List<List<int[]>> groups;
+
+    private BitSet trueFeatures;
+    private BitSet falseFeatures;
+
+    public StructuralInference(FeatureModel featureModel) {
+        this.featureModel = featureModel;
+
+        int n = featureModel.getNumOfFeatures();
+        indexes = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            indexes.put(featureModel.getFeature(i).getName(), i);
+        }
+
+        implications = new ArrayList<>(2 * n);
+        for (int i = 0; i < 2 * n; i++) {
+            implications.add(new ArrayList<>());
+        }
+        alternativeGroups = new ArrayList<>(n);
+        groups = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            alternativeGroups.add(new ArrayList<>());
+            groups.add(new ArrayList<>());
+        }
+        trueFeatures = new BitSet(n);
+        falseFeatures = new BitSet(n);
+    }
+
+    /**
+     * Infer the core and dead features.
+     *
+     * @return false if the inference derives both values of a feature, i.e. the feature model is void,
+     * in which case no value is inferred, true otherwise
+     */
+    public boolean infer() {
+        buildImplications();
+
+        trueFeatures.clear();
+        falseFeatures.clear();
+
+        // the groups of each feature, and the number of their children which aren't false
+        int[] openChildren = new int[countGroups()];
+        Map<int[], Integer> groupIds = new IdentityHashMap<>();
+        for (List<int[]> gs : groups) {
+            for (int[] group : gs) {
+                openChildren[groupIds.size()] = group.length - 1;
+                groupIds.put(group, groupIds.size());
+            }
+        }
+
+        Deque<Integer> queue = new ArrayDeque<>();
+        if (!assign(literal(0, true), queue)) return fail();
+        while (!queue.isEmpty()) {
+            int lit = queue.poll();
+            int feature = lit / 2;
+
+            for (int implied : implications.get(lit)) {
+                if (!assign(implied, queue)) return fail();
+            }
+
+            if (isPositive(lit)) {
+                // the siblings of a true child of an alternative group are false
+                for (int[] group : alternativeGroups.get(feature)) {
+                    for (int i = 0; i < group.length - 1; i++) {
+                        if (group[i] != feature && !assign(literal(group[i], false), queue)) return fail();
+                    }
+                }
+            } else {
+                // a group whose children are all false has a false parent
+                for (int[] group : groups.get(feature)) {
+                    int id = groupIds.get(group);
+                    if (--openChildren[id] == 0
+                            && !assign(literal(group[group.length - 1], false), queue)) return fail();
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean assign(int lit, Deque<Integer> queue) {
+        int feature = lit / 2;
+        BitSet same = isPositive(lit) ? trueFeatures : falseFeatures;
+        BitSet opposite = isPositive(lit) ? falseFeatures : trueFeatures;
+
+        if (opposite.get(feature)) return false;
+        if (!same.get(feature)) {
+            same.set(feature);
+            queue.add(lit);
+        }
+        return true;
+    }
+
+    private boolean fail() {
+        trueFeatures.clear();
+        falseFeatures.clear();
+        return false;
+    }
+
+    private void buildImplications() {
+        implications.forEach(List::clear);
+        alternativeGroups.forEach(List::clear);
+        groups.forEach(List::clear);
+
+        for (Relationship r : featureModel.getRelationships()) {
+            int left = indexes.get(r.getLeftSide());
+            switch (r.getType()) {
+                case MANDATORY:
+                    // parent <=> child
+                    int child = indexes.get(r.getRightSide().get(0));
+                    addImplication(left, true, child, true);
+                    addImplication(child, true, left, true);
+                    break;
+                case OPTIONAL:
+                    // child => parent
+                    addImplication(left, true, indexes.get(r.getRightSide().get(0)), true);
+                    break;
+                case OR:
+                case ALTERNATIVE:
+                    // each child => parent
+                    int[] group = new int[r.getRightSide().size() + 1];
+                    for (int i = 0; i < r.getRightSide().size(); i++) {
+                        group[i] = indexes.get(r.getRightSide().get(i));
+                        addImplication(group[i], true, left, true);
+                    }
+                    group[group.length - 1] = left;
+
+                    for (int i = 0; i < group.length - 1; i++) {
+                        groups.get(group[i]).add(group);
+                        if (r.getType() == Relationship.RelationshipType.ALTERNATIVE) {
+                            alternativeGroups.get(group[i]).add(group);
+                        }
+                    }
+                    break;
+            }
+        }
+        for (Relationship r : featureModel.getConstraints()) {
+            int left = indexes.get(r.getLeftSide());
+            int right = indexes.get(r.getRightSide().get(0));
+            switch (r.getType()) {
+                case REQUIRES:
+                    // left => right
+                    addImplication(left, true, right, true);
+                    break;
+                case EXCLUDES:
+                    // left => !right
+                    addImplication(left, true, right, false);
+                    break;
+            }
+        }
+    }
+
+    // add {from = fromValue} => {to = toValue} and its contrapositive
+    private void addImplication(int from, boolean fromValue, int to, boolean toValue) {
+        implications.get(literal(from, fromValue)).add(literal(to, toValue));
+        implications.get(literal(to, !toValue)).add(literal(from, !fromValue));
+    }
+
+    private int countGroups() {
+        int count = 0;
+        for (List<int[]> gs : groups) {
+            count += gs.size();
+        }
+        return count;
+    }
+
+    private static int literal(int feature, boolean value) {
+        return 2 * feature + (value ? 1 : 0);
+    }
+
+    private static boolean isPositive(int lit) {
+        return (lit & 1) == 1;
+    }
+
+    /**
+     * @return true if the feature is inferred to be true in all configurations, i.e. it is core
+     */
+    public boolean isTrue(String feature) {
+        return trueFeatures.get(indexes.get(feature));
+    }
+
+    /**
+     * @return true if the feature is inferred to be false in all configurations, i.e. it is dead
+     */
+    public boolean isFalse(String feature) {
+        return falseFeatures.get(indexes.get(feature));
+    }
+
+    /**
+     * @return true if the value of the feature is inferred
+     */
+    public boolean isDecided(String feature) {
+        return isTrue(feature) || isFalse(feature);
+    }
+
+    public int getNumOfTrueFeatures() {
+        return trueFeatures.cardinality();
+    }
+
+    public int getNumOfFalseFeatures() {
+        return falseFeatures.cardinality();
+    }
+}
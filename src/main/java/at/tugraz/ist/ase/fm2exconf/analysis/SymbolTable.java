@@ -0,0 +1,89 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import at.tugraz.ist.ase.fm2exconf.core.Relationship;
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The symbols of a {@link FeatureModel}, which are shared by all {@link ChocoModel}s of the feature model.
+ *
+ * A feature has a dense id, i.e. its index in the breadth-first order, which is also
+ * the index of its variable in {@link ChocoModel#getFeatureVars()}. Each model registers
+ * the constraints of the relationships when it is created, so a constraint of any model
+ * is mapped to its {@link Relationship} by the identity of the constraint,
+ * without comparing the texts of the constraints.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class SymbolTable {
+
+    private FeatureModel featureModel;
+    // the id of a feature is its index in the breadth-first order
+    private Map<String, Integer> ids;
+    // the constraints of all models, which are read by the workers of the analysis
+    private Map<Constraint, Relationship> relationships = new ConcurrentHashMap<>();
+
+    public SymbolTable(FeatureModel featureModel) {
+        if (featureModel == null) throw new NullPointerException("The feature model have to be not null!");
+        this.featureModel = featureModel;
+
+        int n = featureModel.getNumOfFeatures();
+        ids = new HashMap<>(2 * n);
+        for (int i = 0; i < n; i++) {
+            ids.put(featureModel.getFeature(i).getName(), i);
+        }
+    }
+
+    public FeatureModel getFeatureModel() {
+        return featureModel;
+    }
+
+    public int getNumOfFeatures() {
+        return ids.size();
+    }
+
+    /**
+     * @param name - a feature name
+     * @return the id of the feature, i.e. its index in the breadth-first order
+     * @throws IllegalArgumentException when the feature doesn't exist in the feature model
+     */
+    public int getId(String name) throws IllegalArgumentException {
+        Integer id = ids.get(name);
+        if (id == null)
+            throw new IllegalArgumentException("The feature " + name + " is not exist in the feature model!");
+        return id;
+    }
+
+    /**
+     * @param name - a feature name
+     * @return true if the feature exists in the feature model
+     */
+    public boolean contains(String name) {
+        return ids.containsKey(name);
+    }
+
+    void addConstraint(Constraint constraint, Relationship relationship) {
+        relationships.put(constraint, relationship);
+    }
+
+    /**
+     * @param constraint - a constraint of a {@link ChocoModel} of the feature model
+     * @return the {@link Relationship} of the constraint, or null if the constraint
+     * doesn't belong to a relationship, e.g. an assumption of a check
+     */
+    public Relationship getRelationship(Constraint constraint) {
+        return relationships.get(constraint);
+    }
+}
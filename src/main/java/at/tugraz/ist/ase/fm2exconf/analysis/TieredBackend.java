@@ -0,0 +1,108 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.util.ESat;
+
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * A {@link SolverBackend} which checks the consistency in two tiers.
+ *
+ * The first tier runs only the propagation of another backend, see {@link SolverBackend#propagate(Collection, boolean)}.
+ * If the propagation fails, the constraints are inconsistent, and if it fixes all feature variables,
+ * they are consistent. Only the remaining checks run the full search of the second tier.
+ * Many checks of dead features are settled by the first tier, e.g. the ones caused by chains
+ * of requires and excludes constraints.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class TieredBackend implements SolverBackend {
+
+    private SolverBackend backend;
+
+    private long numOfPropagationFailures = 0;
+    private long numOfPropagationSolutions = 0;
+    private long numOfSearches = 0;
+
+    /**
+     * @param backend - the backend, which runs the propagation and the search
+     */
+    public TieredBackend(SolverBackend backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public boolean isConsistent(Collection<Constraint> constraints, boolean witness) {
+        ESat result = backend.propagate(constraints, witness);
+        if (result == ESat.FALSE) {
+            numOfPropagationFailures++;
+            return false;
+        }
+        if (result == ESat.TRUE) {
+            numOfPropagationSolutions++;
+            return true;
+        }
+
+        numOfSearches++;
+        return backend.isConsistent(constraints, witness);
+    }
+
+    @Override
+    public ESat propagate(Collection<Constraint> constraints, boolean witness) {
+        return backend.propagate(constraints, witness);
+    }
+
+    @Override
+    public BitSet getSolution() {
+        return backend.getSolution();
+    }
+
+    @Override
+    public void setWitnessTracker(WitnessTracker witnessTracker) {
+        backend.setWitnessTracker(witnessTracker);
+    }
+
+    @Override
+    public void setLimits(CheckLimits limits) {
+        backend.setLimits(limits);
+    }
+
+    @Override
+    public void reset() {
+        backend.reset();
+    }
+
+    public SolverBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * @return the number of checks settled as inconsistent by the propagation
+     */
+    public long getNumOfPropagationFailures() {
+        return numOfPropagationFailures;
+    }
+
+    /**
+     * @return the number of checks settled as consistent by the propagation
+     */
+    public long getNumOfPropagationSolutions() {
+        return numOfPropagationSolutions;
+    }
+
+    /**
+     * @return the number of checks which ran the full search
+     */
+    public long getNumOfSearches() {
+        return numOfSearches;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records the values of features in the solutions (witnesses) found by the checks
+ * of a {@link ChocoModel}. A feature which is true in a witness is not dead,
+ * and a feature which is false in a witness is not full mandatory,
+ * so the solver calls of these checks can be skipped.
+ * In the same way, two features which are true together in a witness are co-selectable,
+ * so the conditionally dead check of this pair can be skipped.
+ *
+ * The search of the models prefers the values which are not yet covered, see {@link #isPreferredTrue(int)},
+ * so that later solves cover as many features as possible.
+ * The tracker could be shared by the models of several workers. The preferred values are read
+ * without a lock on each branching decision, from a snapshot which is replaced by each witness.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class WitnessTracker {
+
+    // index of features in the breadth-first order
+    private Map<String, Integer> indexes;
+    // features which are true/false in at least one witness
+    private BitSet seenTrue;
+    private BitSet seenFalse;
+    // a copy of seenTrue, which is read without a lock by the searches of the workers
+    private volatile BitSet seenTrueSnapshot;
+    // pairs[i] - features which are true together with the feature i in at least one witness
+    private BitSet[] pairs;
+    // prefer true for all features, e.g. to cover pairs
+    private volatile boolean preferTrue = false;
+
+    private int numOfWitnesses = 0;
+    private int numOfSkippedChecks = 0;
+    private int numOfCoveredPairs = 0;
+    private int numOfCheckedPairs = 0;
+
+    public WitnessTracker(FeatureModel fm) {
+        indexes = new HashMap<>();
+        for (int i = 0; i < fm.getNumOfFeatures(); i++) {
+            indexes.put(fm.getFeature(i).getName(), i);
+        }
+        seenTrue = new BitSet(fm.getNumOfFeatures());
+        seenFalse = new BitSet(fm.getNumOfFeatures());
+        seenTrueSnapshot = new BitSet(fm.getNumOfFeatures());
+        pairs = new BitSet[fm.getNumOfFeatures()];
+    }
+
+    /**
+     * Record the values of the features in a solution.
+     *
+     * @param trueFeatures - the indexes of the true features in the breadth-first order
+     */
+    public synchronized void record(BitSet trueFeatures) {
+        BitSet falseFeatures = new BitSet(pairs.length);
+        falseFeatures.set(0, pairs.length);
+        falseFeatures.andNot(trueFeatures);
+
+        seenTrue.or(trueFeatures);
+        seenFalse.or(falseFeatures);
+        if (!seenTrue.equals(seenTrueSnapshot)) {
+            seenTrueSnapshot = (BitSet) seenTrue.clone();
+        }
+
+        // all pairs of true features are co-selectable
+        for (int i = trueFeatures.nextSetBit(0); i >= 0; i = trueFeatures.nextSetBit(i + 1)) {
+            if (pairs[i] == null) {
+                pairs[i] = new BitSet(pairs.length);
+            }
+            pairs[i].or(trueFeatures);
+        }
+        numOfWitnesses++;
+    }
+
+    /**
+     * @return true if the feature is true in a witness, i.e. it is not dead
+     */
+    public synchronized boolean isSeenTrue(String feature) {
+        boolean covered = seenTrue.get(indexes.get(feature));
+        if (covered) numOfSkippedChecks++;
+        return covered;
+    }
+
+    /**
+     * @return true if the feature is false in a witness, i.e. it is not full mandatory
+     */
+    public synchronized boolean isSeenFalse(String feature) {
+        boolean covered = seenFalse.get(indexes.get(feature));
+        if (covered) numOfSkippedChecks++;
+        return covered;
+    }
+
+    /**
+     * Check whether two features are true together in a witness.
+     * A pair which is not covered is counted as a pair which needs an explicit check.
+     *
+     * @return true if the features are co-selectable, i.e. the pair is not conditionally dead
+     */
+    public synchronized boolean isCoveredPair(String feature1, String feature2) {
+        BitSet row = pairs[indexes.get(feature1)];
+        boolean covered = row != null && row.get(indexes.get(feature2));
+        if (covered) {
+            numOfCoveredPairs++;
+        } else {
+            numOfCheckedPairs++;
+        }
+        return covered;
+    }
+
+    /**
+     * Prefer true for all features, which covers more pairs per witness.
+     *
+     * @param preferTrue - true to prefer true for all features
+     */
+    public void setPreferTrue(boolean preferTrue) {
+        this.preferTrue = preferTrue;
+    }
+
+    /**
+     * Prefer true for features which are not yet true in a witness,
+     * then false for features which are not yet false in a witness.
+     * It is called on each branching decision and doesn't lock the tracker.
+     *
+     * @param index - the index of a feature in the breadth-first order
+     * @return true if the preferred value of the feature is true
+     */
+    public boolean isPreferredTrue(int index) {
+        return preferTrue || !seenTrueSnapshot.get(index);
+    }
+
+    public synchronized int getNumOfWitnesses() {
+        return numOfWitnesses;
+    }
+
+    public synchronized int getNumOfSkippedChecks() {
+        return numOfSkippedChecks;
+    }
+
+    public synchronized int getNumOfCoveredPairs() {
+        return numOfCoveredPairs;
+    }
+
+    public synchronized int getNumOfCheckedPairs() {
+        return numOfCheckedPairs;
+    }
+}
@@ -9,6 +9,7 @@
 package at.tugraz.ist.ase.fm2exconf.core;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static at.tugraz.ist.ase.fm2exconf.core.Utilities.createStringFromArrayWithSeparator;
 import static at.tugraz.ist.ase.fm2exconf.core.Utilities.replaceSpecialCharactersByUnderscore;
@@ -38,6 +39,8 @@ public class Relationship {
     private ArrayList<String> excelFormulaeWithTrueFalse;
 
     private ArrayList<String> constraints;
+    // the constraints of the latest solver model of the relationship, whose texts are added on request
+    private List<?> constraintSource;
 
     public Relationship(RelationshipType type, String leftSide, ArrayList<String> rightSide) {
 //        id = idCount++;
@@ -108,12 +111,27 @@ public class Relationship {
         constraints.add(constraint);
     }
 
+    // the texts of the constraints are only created by getConstraints()
+    public void setConstraintSource(List<?> constraints) {
+        this.constraintSource = constraints;
+    }
+
     public ArrayList<String> getConstraints() {
+        List<?> source = constraintSource;
+        if (source != null) {
+            for (Object c : source) {
+                String text = c.toString();
+                if (!constraints.contains(text)) {
+                    constraints.add(text);
+                }
+            }
+            constraintSource = null;
+        }
         return constraints;
     }
 
     public boolean isExist(String constraint) {
-        for (String cstr: constraints) {
+        for (String cstr: getConstraints()) {
             if (cstr.equals(constraint))
                 return true;
         }
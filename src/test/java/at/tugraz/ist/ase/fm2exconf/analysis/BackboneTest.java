@@ -0,0 +1,74 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.Feature;
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import at.tugraz.ist.ase.fm2exconf.core.Relationship;
+import org.junit.Test;
+
+import static at.tugraz.ist.ase.fm2exconf.analysis.TestFeatureModels.coreDeadFeatureModel;
+import static at.tugraz.ist.ase.fm2exconf.analysis.TestFeatureModels.hasValueInAll;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the {@link Backbone}: the backbone equals the results of the plain checks of each feature.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class BackboneTest {
+
+    private static void assertEqualsPlainChecks(FeatureModel fm, ChocoModel model, Backbone backbone) {
+        for (Feature f : fm.getFeatures(FeatureModel.FEATURE_ORDER.BF)) {
+            String name = f.getName();
+            assertEquals(name, hasValueInAll(model, name, true), backbone.isTrue(name));
+            assertEquals(name, hasValueInAll(model, name, false), backbone.isFalse(name));
+        }
+    }
+
+    @Test
+    public void testBackboneEqualsPlainChecks() throws Exception {
+        for (boolean incremental : new boolean[]{false, true}) {
+            FeatureModel fm = coreDeadFeatureModel();
+            ChocoModel model = new ChocoModel(fm, incremental);
+
+            Backbone backbone = new Backbone(model);
+            assertTrue(backbone.compute());
+            assertEqualsPlainChecks(fm, model, backbone);
+
+            assertTrue(backbone.isTrue("c2"));
+            assertTrue(backbone.isFalse("d"));
+            assertFalse(backbone.isTrue("e") || backbone.isFalse("e"));
+            assertTrue(backbone.getNumOfSolverCalls() <= fm.getNumOfFeatures() + 1);
+        }
+    }
+
+    @Test
+    public void testSolutions() throws Exception {
+        FeatureModel fm = coreDeadFeatureModel();
+        ChocoModel model = new ChocoModel(fm, true);
+
+        Backbone backbone = new Backbone(model);
+        backbone.compute();
+
+        // e is free, so a solution with e = true is found, and d is dead
+        assertTrue(backbone.hasSolution("d", "e"));
+        assertFalse(backbone.hasSolution("e", "d"));
+    }
+
+    @Test
+    public void testVoidModel() throws Exception {
+        FeatureModel fm = coreDeadFeatureModel();
+        // b2 is dead, so a mandatory b, which requires b2, makes the model void
+        fm.addRelationship(Relationship.RelationshipType.MANDATORY, "r", new String[]{"b"});
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "b", new String[]{"b2"});
+
+        assertFalse(new Backbone(new ChocoModel(fm, true)).compute());
+    }
+}
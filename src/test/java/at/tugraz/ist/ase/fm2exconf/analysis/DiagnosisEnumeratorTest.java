@@ -0,0 +1,118 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.constraints.Constraint;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static at.tugraz.ist.ase.fm2exconf.analysis.TestFeatureModels.deadFeatureModel;
+import static at.tugraz.ist.ase.fm2exconf.analysis.TestFeatureModels.toSets;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the {@link HSTree} and the {@link DiagnosisEnumerator}: the diagnoses are minimal
+ * and the same as the ones of the baseline {@link FastDiag}.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class DiagnosisEnumeratorTest {
+
+    private ChocoModel model;
+    private ConsistencyChecker checker;
+    private List<Constraint> c;
+    private List<Constraint> ac;
+
+    // the diagnoses of the dead feature b
+    private void setUp(boolean incremental) throws Exception {
+        model = new ChocoModel(deadFeatureModel(), incremental);
+        model.addAssumption(model.getVarWithName("b"), true);
+        checker = new ConsistencyChecker(model.getBackend());
+        c = model.getCF();
+        ac = model.getAC();
+    }
+
+    private void assertMinimal(List<List<Constraint>> diagnoses) {
+        for (List<Constraint> diag : diagnoses) {
+            List<Constraint> rest = new ArrayList<>(ac);
+            rest.removeAll(diag);
+            assertTrue(checker.isConsistent(rest));
+
+            // no constraint of the diagnosis could stay
+            for (Constraint cstr : diag) {
+                List<Constraint> smaller = new ArrayList<>(rest);
+                smaller.add(cstr);
+                assertFalse(checker.isConsistent(smaller));
+            }
+        }
+    }
+
+    @Test
+    public void testHSTreeEqualsFastDiag() throws Exception {
+        for (boolean incremental : new boolean[]{false, true}) {
+            setUp(incremental);
+            Set<Set<Constraint>> expected = toSets(new FastDiag(checker).findAllDiagnoses(c, ac));
+            assertEquals(3, expected.size());
+
+            List<List<Constraint>> diagnoses = new HSTree(new FastDiagV4(checker)).findAllDiagnoses(c, ac);
+            assertMinimal(diagnoses);
+            assertEquals(diagnoses.size(), toSets(diagnoses).size());
+            assertEquals(expected, toSets(diagnoses));
+        }
+    }
+
+    @Test
+    public void testEnumeratorEqualsFastDiag() throws Exception {
+        for (boolean incremental : new boolean[]{false, true}) {
+            setUp(incremental);
+            Set<Set<Constraint>> expected = toSets(new FastDiag(checker).findAllDiagnoses(c, ac));
+
+            DiagnosisEnumerator.Result result = new DiagnosisEnumerator(new FastDiagV4(checker)).findDiagnoses(c, ac);
+            assertTrue(result.isComplete());
+            assertMinimal(result);
+            assertEquals(expected, toSets(result));
+
+            // in the order of increasing cardinality
+            for (int i = 1; i < result.size(); i++) {
+                assertTrue(result.get(i - 1).size() <= result.get(i).size());
+            }
+        }
+    }
+
+    @Test
+    public void testEnumeratorLimits() throws Exception {
+        setUp(true);
+
+        DiagnosisEnumerator enumerator = new DiagnosisEnumerator(new FastDiagV4(checker));
+        enumerator.setMaxCardinality(1);
+        DiagnosisEnumerator.Result result = enumerator.findDiagnoses(c, ac);
+        assertEquals(1, result.size());
+        assertEquals(DiagnosisEnumerator.Status.TRUNCATED_BY_CARDINALITY, result.getStatus());
+
+        // all diagnoses have at most 2 constraints
+        enumerator.setMaxCardinality(2);
+        result = enumerator.findDiagnoses(c, ac);
+        assertEquals(3, result.size());
+        assertTrue(result.isComplete());
+
+        enumerator.setMaxCardinality(0);
+        enumerator.setMaxDiagnoses(3);
+        result = enumerator.findDiagnoses(c, ac);
+        assertEquals(3, result.size());
+        assertTrue(result.isComplete());
+
+        enumerator.setMaxDiagnoses(2);
+        result = enumerator.findDiagnoses(c, ac);
+        assertEquals(2, result.size());
+        assertEquals(DiagnosisEnumerator.Status.TRUNCATED_BY_COUNT, result.getStatus());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.BoolVar;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the {@link DiagnosisIndex}.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class DiagnosisIndexTest {
+
+    private Constraint[] cstrs;
+
+    @Before
+    public void setUp() {
+        Model model = new Model();
+        BoolVar[] vars = model.boolVarArray("f", 5);
+        cstrs = new Constraint[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            cstrs[i] = model.arithm(vars[i], "=", 1);
+        }
+    }
+
+    private List<Constraint> diag(int... indexes) {
+        Constraint[] diag = new Constraint[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            diag[i] = cstrs[indexes[i]];
+        }
+        return Arrays.asList(diag);
+    }
+
+    @Test
+    public void testAddAndContains() {
+        DiagnosisIndex index = new DiagnosisIndex();
+        assertTrue(index.add(diag(0, 2)));
+        assertFalse(index.add(diag(2, 0)));
+        assertEquals(1, index.size());
+
+        assertTrue(index.contains(diag(2, 0)));
+        assertFalse(index.contains(diag(0)));
+        assertFalse(index.contains(diag(0, 2, 3)));
+    }
+
+    @Test
+    public void testIsMinimal() {
+        DiagnosisIndex index = new DiagnosisIndex();
+        assertTrue(index.isMinimal(diag(1, 3)));
+
+        index.add(diag(1, 3));
+        index.add(diag(4));
+
+        assertFalse(index.isMinimal(diag(1, 3)));
+        assertFalse(index.isMinimal(diag(0, 1, 3)));
+        assertFalse(index.isMinimal(diag(2, 4)));
+        assertTrue(index.isMinimal(diag(1, 2)));
+        assertTrue(index.isMinimal(diag(0, 3)));
+        assertTrue(index.isMinimal(Collections.<Constraint>emptyList()));
+    }
+
+    @Test
+    public void testConstraintsSeenOnlyInQueries() {
+        DiagnosisIndex index = new DiagnosisIndex();
+        // the constraints of the queries get ids too, which must not match the stored diagnoses
+        assertFalse(index.contains(diag(0)));
+        assertTrue(index.isMinimal(diag(1, 2)));
+
+        index.add(diag(3));
+        assertTrue(index.isMinimal(diag(0, 1, 2)));
+        assertFalse(index.isMinimal(diag(0, 3)));
+    }
+}
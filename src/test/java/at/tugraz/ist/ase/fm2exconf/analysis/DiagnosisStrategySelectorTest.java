@@ -0,0 +1,74 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the {@link DiagnosisStrategySelector}.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class DiagnosisStrategySelectorTest {
+
+    private static final DiagnosisStrategySelector.Statistics STATISTICS =
+            new DiagnosisStrategySelector.Statistics(20, 50, 10, 4);
+
+    @Test
+    public void testDefaultCandidates() {
+        DiagnosisStrategySelector selector = new DiagnosisStrategySelector();
+        assertEquals(EnumSet.of(DiagnosisStrategy.Type.FASTDIAG, DiagnosisStrategy.Type.FASTDIAG_V4),
+                EnumSet.copyOf(selector.getCandidates()));
+        assertEquals(DiagnosisStrategy.Type.FASTDIAG_V4, selector.select(STATISTICS));
+    }
+
+    @Test
+    public void testMixedCandidatesAreRejected() {
+        DiagnosisStrategySelector selector = new DiagnosisStrategySelector();
+        for (DiagnosisStrategy.Type type : new DiagnosisStrategy.Type[]{DiagnosisStrategy.Type.FASTDIAG_V3,
+                DiagnosisStrategy.Type.HS_TREE, DiagnosisStrategy.Type.QUICKXPLAIN}) {
+            try {
+                selector.setCandidates(Arrays.asList(DiagnosisStrategy.Type.FASTDIAG_V4, type));
+                fail();
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            // a single candidate is fine
+            selector.setCandidates(Collections.singletonList(type));
+            assertEquals(type, selector.select(STATISTICS));
+        }
+    }
+
+    @Test
+    public void testSelectTheFastestCandidate() {
+        DiagnosisStrategySelector selector = new DiagnosisStrategySelector();
+
+        // each candidate is tried once in the bucket
+        selector.record(STATISTICS, DiagnosisStrategy.Type.FASTDIAG_V4, 300);
+        assertEquals(DiagnosisStrategy.Type.FASTDIAG, selector.select(STATISTICS));
+        selector.record(STATISTICS, DiagnosisStrategy.Type.FASTDIAG, 100);
+        assertEquals(DiagnosisStrategy.Type.FASTDIAG, selector.select(STATISTICS));
+
+        // the averages decide
+        selector.record(STATISTICS, DiagnosisStrategy.Type.FASTDIAG, 700);
+        assertEquals(DiagnosisStrategy.Type.FASTDIAG_V4, selector.select(STATISTICS));
+
+        // another bucket has no timings yet
+        assertEquals(DiagnosisStrategy.Type.FASTDIAG_V4,
+                selector.select(new DiagnosisStrategySelector.Statistics(2000, 5000, 10, 400)));
+        assertEquals(2, selector.getTimings().size());
+        assertEquals(2, selector.getTimings().get(DiagnosisStrategy.Type.FASTDIAG).getCount());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import at.tugraz.ist.ase.fm2exconf.core.Relationship;
+import org.chocosolver.solver.constraints.Constraint;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static at.tugraz.ist.ase.fm2exconf.analysis.TestFeatureModels.deadFeatureModel;
+import static at.tugraz.ist.ase.fm2exconf.analysis.TestFeatureModels.toSets;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the default candidates of the {@link DiagnosisStrategySelector}:
+ * all of them find the same diagnoses of an anomaly.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class DiagnosisStrategyTest {
+
+    private static DiagnosisStrategy create(DiagnosisStrategy.Type type, ChocoModel model, ConsistencyChecker checker) {
+        switch (type) {
+            case FASTDIAG:
+                return new FastDiag(checker);
+            case FASTDIAG_V3:
+                return new FastDiagV3(model, checker);
+            case FASTDIAG_V4:
+                return new FastDiagV4(checker);
+            case HS_TREE:
+                return new HSTree(new FastDiagV4(checker));
+            default:
+                throw new IllegalArgumentException("The strategy " + type + " has no diagnoses of the constraints!");
+        }
+    }
+
+    // the diagnoses of each default candidate, which have to be equal
+    private static Set<Set<Constraint>> assertSameDiagnoses(ChocoModel model) {
+        ConsistencyChecker checker = new ConsistencyChecker(model.getBackend());
+        List<Constraint> c = model.getCF();
+        List<Constraint> ac = model.getAC();
+
+        Set<Set<Constraint>> expected = null;
+        for (DiagnosisStrategy.Type type : new DiagnosisStrategySelector().getCandidates()) {
+            Set<Set<Constraint>> diagnoses = toSets(create(type, model, checker).findAllDiagnoses(c, ac));
+            if (expected == null) {
+                expected = diagnoses;
+            }
+            assertEquals(type.toString(), expected, diagnoses);
+        }
+        return expected;
+    }
+
+    @Test
+    public void testDeadFeature() throws Exception {
+        for (boolean incremental : new boolean[]{false, true}) {
+            ChocoModel model = new ChocoModel(deadFeatureModel(), incremental);
+            model.addAssumption(model.getVarWithName("b"), true);
+
+            assertEquals(3, assertSameDiagnoses(model).size());
+        }
+    }
+
+    @Test
+    public void testConflictOfTwoConstraints() throws Exception {
+        // C = {requires(r, x), excludes(x, r)} is the single minimal conflict,
+        // so each constraint alone is a diagnosis
+        FeatureModel fm = new FeatureModel();
+        fm.addFeatures(new String[]{"r", "x"});
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "r", new String[]{"x"});
+        fm.addConstraint(Relationship.RelationshipType.EXCLUDES, "x", new String[]{"r"});
+
+        for (boolean incremental : new boolean[]{false, true}) {
+            ChocoModel model = new ChocoModel(fm, incremental);
+            assertEquals(2, model.getCF().size());
+            assertEquals(2, assertSameDiagnoses(model).size());
+        }
+    }
+}
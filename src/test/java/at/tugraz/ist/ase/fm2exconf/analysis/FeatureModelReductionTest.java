@@ -0,0 +1,81 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.Feature;
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import org.junit.Before;
+import org.junit.Test;
+
+import static at.tugraz.ist.ase.fm2exconf.analysis.TestFeatureModels.coreDeadFeatureModel;
+import static at.tugraz.ist.ase.fm2exconf.analysis.TestFeatureModels.hasValueInAll;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the {@link FeatureModelReduction}: the checks of the representatives in the reduced model
+ * equal the plain checks of the features in the original model.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class FeatureModelReductionTest {
+
+    private FeatureModel fm;
+    private FeatureModelReduction reduction;
+
+    @Before
+    public void setUp() throws Exception {
+        fm = coreDeadFeatureModel();
+        reduction = new FeatureModelReduction(fm);
+        reduction.reduce();
+    }
+
+    @Test
+    public void testClasses() {
+        // the mandatory chain r, a, a1 with c, which is required by a, and the cycle c1, c2
+        for (String name : new String[]{"r", "a", "a1", "c"}) {
+            assertEquals(name, "r", reduction.getRepresentative(name));
+        }
+        assertEquals("c1", reduction.getRepresentative("c2"));
+        assertEquals("b", reduction.getRepresentative("b"));
+        assertEquals(7, reduction.getNumOfClasses());
+        assertEquals(7, reduction.getReducedModel().getNumOfFeatures());
+        assertEquals("r", reduction.getReducedModel().getName());
+        assertTrue(reduction.getNumOfReducedRelationships() < reduction.getNumOfRelationships());
+    }
+
+    @Test
+    public void testReducedChecksEqualPlainChecks() {
+        for (boolean incremental : new boolean[]{false, true}) {
+            ChocoModel model = new ChocoModel(fm, incremental);
+            ChocoModel reducedModel = new ChocoModel(reduction.getReducedModel(), incremental);
+
+            for (Feature f : fm.getFeatures(FeatureModel.FEATURE_ORDER.BF)) {
+                String name = f.getName();
+                String representative = reduction.getRepresentative(name);
+                assertEquals(name, hasValueInAll(model, name, true), hasValueInAll(reducedModel, representative, true));
+                assertEquals(name, hasValueInAll(model, name, false), hasValueInAll(reducedModel, representative, false));
+            }
+        }
+    }
+
+    @Test
+    public void testBackboneOfReducedModel() {
+        ChocoModel model = new ChocoModel(fm, true);
+
+        Backbone backbone = new Backbone(new ChocoModel(reduction.getReducedModel(), true));
+        backbone.setReduction(reduction);
+        assertTrue(backbone.compute());
+
+        for (Feature f : fm.getFeatures(FeatureModel.FEATURE_ORDER.BF)) {
+            String name = f.getName();
+            assertEquals(name, hasValueInAll(model, name, true), backbone.isTrue(name));
+            assertEquals(name, hasValueInAll(model, name, false), backbone.isFalse(name));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import at.tugraz.ist.ase.fm2exconf.core.Relationship;
+import org.junit.Test;
+
+import static at.tugraz.ist.ase.fm2exconf.analysis.TestFeatureModels.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the {@link ChocoModel.GroupEncoding}s: the LADDER and the NATIVE encodings
+ * of the ALTERNATIVE and OR relationships accept the same assignments as the PAIRWISE encoding.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class GroupEncodingTest {
+
+    // compare the encodings of the groups under all assignments of their features
+    private static void assertSameAsPairwise(ChocoModel.GroupEncoding groupEncoding, boolean incremental) throws Exception {
+        FeatureModel fm = groupFeatureModel();
+        ChocoModel pairwise = new ChocoModel(fm, incremental, ChocoModel.GroupEncoding.PAIRWISE);
+        ChocoModel model = new ChocoModel(fm, incremental, groupEncoding);
+
+        for (Relationship r : fm.getRelationships()) {
+            for (int assignment = 0; assignment < 1 << (r.getRightSide().size() + 1); assignment++) {
+                boolean expected = isConsistent(pairwise, r, pairwise.getCstrs(r), assignment);
+                assertEquals(r.getConfRule() + " " + assignment, satisfies(r, assignment), expected);
+                assertEquals(r.getConfRule() + " " + assignment, expected, isConsistent(model, r, model.getCstrs(r), assignment));
+            }
+        }
+    }
+
+    @Test
+    public void testLadder() throws Exception {
+        assertSameAsPairwise(ChocoModel.GroupEncoding.LADDER, false);
+        assertSameAsPairwise(ChocoModel.GroupEncoding.LADDER, true);
+    }
+
+    @Test
+    public void testNative() throws Exception {
+        assertSameAsPairwise(ChocoModel.GroupEncoding.NATIVE, false);
+    }
+
+    @Test
+    public void testFeatureChecks() throws Exception {
+        FeatureModel fm = groupFeatureModel();
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "p1", new String[]{"q2"});
+        fm.addConstraint(Relationship.RelationshipType.EXCLUDES, "p2", new String[]{"q"});
+        ChocoModel pairwise = new ChocoModel(fm, true, ChocoModel.GroupEncoding.PAIRWISE);
+        ChocoModel ladder = new ChocoModel(fm, true, ChocoModel.GroupEncoding.LADDER);
+
+        for (int i = 0; i < fm.getNumOfFeatures(); i++) {
+            String name = fm.getFeature(i).getName();
+            for (boolean value : new boolean[]{false, true}) {
+                assertEquals(name, hasValueInAll(pairwise, name, value), hasValueInAll(ladder, name, value));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNativeRequiresNonIncrementalModel() throws Exception {
+        new ChocoModel(groupFeatureModel(), true, ChocoModel.GroupEncoding.NATIVE);
+    }
+
+    @Test
+    public void testNativeFallsBackToNonIncrementalAnalysis() throws Exception {
+        AnalysisOperator operator = new AnalysisOperator(groupFeatureModel(), null, true, ChocoModel.GroupEncoding.NATIVE);
+        assertFalse(operator.isIncremental());
+        assertEquals(ChocoModel.GroupEncoding.NATIVE, operator.getGroupEncoding());
+    }
+}
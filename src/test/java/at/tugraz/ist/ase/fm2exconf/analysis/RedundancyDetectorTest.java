@@ -0,0 +1,109 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import at.tugraz.ist.ase.fm2exconf.core.Relationship;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static at.tugraz.ist.ase.fm2exconf.analysis.TestFeatureModels.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the {@link RedundancyDetector}: the negations of the relationships, see {@link ChocoModel#getNotCstrs(Relationship)},
+ * and the results of both {@link RedundancyDetector.Mode}s.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class RedundancyDetectorTest {
+
+    // the negation accepts exactly the assignments which the PAIRWISE encoding of the relationship rejects
+    private static void assertNegations(FeatureModel fm) {
+        List<Relationship> relationships = new ArrayList<>(fm.getRelationships());
+        relationships.addAll(fm.getConstraints());
+
+        for (boolean incremental : new boolean[]{false, true}) {
+            ChocoModel pairwise = new ChocoModel(fm, incremental, ChocoModel.GroupEncoding.PAIRWISE);
+            for (ChocoModel.GroupEncoding groupEncoding : new ChocoModel.GroupEncoding[]{ChocoModel.GroupEncoding.PAIRWISE, ChocoModel.GroupEncoding.LADDER}) {
+                ChocoModel model = new ChocoModel(fm, incremental, groupEncoding);
+
+                for (Relationship r : relationships) {
+                    for (int assignment = 0; assignment < 1 << (r.getRightSide().size() + 1); assignment++) {
+                        String message = r.getConfRule() + " " + assignment;
+                        boolean holds = isConsistent(pairwise, r, pairwise.getCstrs(r), assignment);
+                        assertEquals(message, satisfies(r, assignment), holds);
+                        assertEquals(message, !holds, isConsistent(model, r, model.getNotCstrs(r), assignment));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNegationsOfGroups() throws Exception {
+        assertNegations(groupFeatureModel());
+    }
+
+    @Test
+    public void testNegationsOfRelationshipsAndConstraints() throws Exception {
+        assertNegations(coreDeadFeatureModel());
+    }
+
+    // x requires z, z requires y, x requires y, and a copy of z requires y
+    private static FeatureModel redundantFeatureModel() throws Exception {
+        FeatureModel fm = new FeatureModel();
+        fm.addFeatures(new String[]{"r", "x", "y", "z"});
+        fm.addRelationship(Relationship.RelationshipType.OPTIONAL, "x", new String[]{"r"});
+        fm.addRelationship(Relationship.RelationshipType.OPTIONAL, "y", new String[]{"r"});
+        fm.addRelationship(Relationship.RelationshipType.OPTIONAL, "z", new String[]{"r"});
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "x", new String[]{"z"});
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "z", new String[]{"y"});
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "x", new String[]{"y"});
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "z", new String[]{"y"});
+        return fm;
+    }
+
+    @Test
+    public void testIndependentChecks() throws Exception {
+        FeatureModel fm = redundantFeatureModel();
+        List<Relationship> constraints = fm.getConstraints();
+        ChocoModel model = new ChocoModel(fm, true);
+        RedundancyDetector detector = new RedundancyDetector(constraints);
+        detector.prepare(model);
+
+        // the copies imply each other, so both are redundant alone
+        assertFalse(detector.isRedundant(model, constraints.get(0)));
+        assertTrue(detector.isRedundant(model, constraints.get(1)));
+        assertTrue(detector.isRedundant(model, constraints.get(2)));
+        assertTrue(detector.isRedundant(model, constraints.get(3)));
+
+        // the checks don't depend on the order
+        assertTrue(detector.isRedundant(model, constraints.get(1)));
+        assertEquals(5, detector.getNumOfChecks());
+    }
+
+    @Test
+    public void testNonRedundantSubset() throws Exception {
+        FeatureModel fm = redundantFeatureModel();
+        List<Relationship> constraints = fm.getConstraints();
+        for (boolean incremental : new boolean[]{false, true}) {
+            ChocoModel model = new ChocoModel(fm, incremental);
+            RedundancyDetector detector = new RedundancyDetector(constraints);
+            detector.prepare(model);
+
+            // the first copy and x requires y are removed, the second copy is kept
+            assertEquals(Arrays.asList(constraints.get(0), constraints.get(3)), detector.findNonRedundantSubset(model));
+            assertTrue(detector.getUndecided().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the {@link SatSolver}: the assumptions, the learned clauses across the solves,
+ * the Luby restarts and the limits.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class SatSolverTest {
+
+    // the pigeonhole problem of n pigeons in n - 1 holes, which is inconsistent
+    // if all pigeons are assumed, p[i][j] - the pigeon i is in the hole j, pigeons[i] - the pigeon i is there
+    private static int[] addPigeonhole(SatSolver solver, int n) {
+        int holes = n - 1;
+        int[][] p = new int[n][holes];
+        int[] pigeons = new int[n];
+        for (int i = 0; i < n; i++) {
+            pigeons[i] = solver.newVar();
+            for (int j = 0; j < holes; j++) {
+                p[i][j] = solver.newVar();
+            }
+        }
+        // a pigeon which is there is in a hole
+        for (int i = 0; i < n; i++) {
+            int[] clause = new int[holes + 1];
+            clause[0] = SatSolver.literal(pigeons[i], false);
+            for (int j = 0; j < holes; j++) {
+                clause[j + 1] = SatSolver.literal(p[i][j], true);
+            }
+            solver.addClause(clause);
+        }
+        // at most one pigeon in a hole
+        for (int j = 0; j < holes; j++) {
+            for (int i = 0; i < n; i++) {
+                for (int k = i + 1; k < n; k++) {
+                    solver.addClause(SatSolver.literal(p[i][j], false), SatSolver.literal(p[k][j], false));
+                }
+            }
+        }
+        return pigeons;
+    }
+
+    private static int[] allTrue(int[] vars) {
+        int[] lits = new int[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            lits[i] = SatSolver.literal(vars[i], true);
+        }
+        return lits;
+    }
+
+    @Test
+    public void testSolveWithoutAssumptions() {
+        SatSolver solver = new SatSolver();
+        int a = solver.newVar();
+        int b = solver.newVar();
+        // a, a -> b
+        solver.addClause(SatSolver.literal(a, true));
+        solver.addClause(SatSolver.literal(a, false), SatSolver.literal(b, true));
+
+        assertTrue(solver.solve());
+        assertTrue(solver.getModelValue(a));
+        assertTrue(solver.getModelValue(b));
+    }
+
+    @Test
+    public void testAssumptions() {
+        SatSolver solver = new SatSolver();
+        int a = solver.newVar();
+        int b = solver.newVar();
+        // a -> b
+        solver.addClause(SatSolver.literal(a, false), SatSolver.literal(b, true));
+
+        assertTrue(solver.solve(SatSolver.literal(a, true)));
+        assertTrue(solver.getModelValue(b));
+
+        assertFalse(solver.solve(SatSolver.literal(a, true), SatSolver.literal(b, false)));
+        assertFalse(solver.isStopped());
+
+        // an inconsistent set of assumptions doesn't make the clauses inconsistent
+        assertTrue(solver.solve(SatSolver.literal(b, false)));
+        assertFalse(solver.getModelValue(a));
+        assertTrue(solver.solve());
+    }
+
+    @Test
+    public void testContradictoryAssumptions() {
+        SatSolver solver = new SatSolver();
+        int a = solver.newVar();
+
+        assertFalse(solver.solve(SatSolver.literal(a, true), SatSolver.literal(a, false)));
+        assertTrue(solver.solve(SatSolver.literal(a, false)));
+        assertFalse(solver.getModelValue(a));
+    }
+
+    @Test
+    public void testInconsistentClauses() {
+        SatSolver solver = new SatSolver();
+        int a = solver.newVar();
+        solver.addClause(SatSolver.literal(a, true));
+
+        assertFalse(solver.addClause(SatSolver.literal(a, false)));
+        assertFalse(solver.solve());
+    }
+
+    @Test
+    public void testClausesAddedBetweenSolves() {
+        SatSolver solver = new SatSolver();
+        int a = solver.newVar();
+        int b = solver.newVar();
+        solver.addClause(SatSolver.literal(a, true), SatSolver.literal(b, true));
+        assertTrue(solver.solve(SatSolver.literal(a, false)));
+        assertTrue(solver.getModelValue(b));
+
+        solver.addClause(SatSolver.literal(b, false));
+        assertFalse(solver.solve(SatSolver.literal(a, false)));
+        assertTrue(solver.solve());
+        assertTrue(solver.getModelValue(a));
+    }
+
+    @Test
+    public void testLearnedClausesAreKeptAcrossSolves() {
+        SatSolver solver = new SatSolver();
+        int[] pigeons = addPigeonhole(solver, 6);
+
+        // without all pigeons, the holes are enough
+        assertTrue(solver.solve(allTrue(Arrays.copyOf(pigeons, pigeons.length - 1))));
+
+        long conflicts = solver.getNumOfConflicts();
+        assertFalse(solver.solve(allTrue(pigeons)));
+        long firstConflicts = solver.getNumOfConflicts() - conflicts;
+        int learnts = solver.getNumOfLearnts();
+        assertTrue(firstConflicts > 0);
+        assertTrue(learnts > 0);
+
+        // the learned clauses are derived from the clauses only,
+        // so they still hold and shorten the same solve
+        conflicts = solver.getNumOfConflicts();
+        assertFalse(solver.solve(allTrue(pigeons)));
+        assertTrue(solver.getNumOfConflicts() - conflicts <= firstConflicts);
+
+        // and they don't exclude the models under other assumptions
+        assertTrue(solver.solve(allTrue(Arrays.copyOfRange(pigeons, 1, pigeons.length))));
+    }
+
+    @Test
+    public void testLubySequence() {
+        double[] expected = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, 1};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], SatSolver.luby(2, i), 0);
+        }
+    }
+
+    @Test
+    public void testSolveAcrossRestarts() {
+        SatSolver solver = new SatSolver();
+        // needs more conflicts than the first restart allows
+        int[] pigeons = addPigeonhole(solver, 8);
+
+        assertFalse(solver.solve(allTrue(pigeons)));
+        assertFalse(solver.isStopped());
+        assertTrue(solver.getNumOfConflicts() > 100);
+    }
+
+    @Test
+    public void testConflictLimit() {
+        SatSolver solver = new SatSolver();
+        int[] pigeons = addPigeonhole(solver, 8);
+
+        solver.setLimits(0, 10, 0);
+        assertFalse(solver.solve(allTrue(pigeons)));
+        assertTrue(solver.isStopped());
+
+        // the stopped solve leaves the solver usable
+        solver.setLimits(0, 0, 0);
+        assertTrue(solver.solve(allTrue(Arrays.copyOf(pigeons, pigeons.length - 1))));
+        assertFalse(solver.isStopped());
+    }
+
+    @Test
+    public void testPropagate() {
+        SatSolver solver = new SatSolver();
+        int a = solver.newVar();
+        int b = solver.newVar();
+        int c = solver.newVar();
+        // a -> b, b -> not c
+        solver.addClause(SatSolver.literal(a, false), SatSolver.literal(b, true));
+        solver.addClause(SatSolver.literal(b, false), SatSolver.literal(c, false));
+
+        BitSet trueVars = new BitSet();
+        BitSet falseVars = new BitSet();
+        assertTrue(solver.propagate(new int[]{SatSolver.literal(a, true)}, trueVars, falseVars));
+        assertTrue(trueVars.get(a));
+        assertTrue(trueVars.get(b));
+        assertTrue(falseVars.get(c));
+
+        assertFalse(solver.propagate(new int[]{SatSolver.literal(a, true), SatSolver.literal(c, true)},
+                new BitSet(), new BitSet()));
+        // the assignment is undone
+        assertTrue(solver.solve(SatSolver.literal(c, true)));
+        assertFalse(solver.getModelValue(a));
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the {@link SearchProfile}.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class SearchProfileTest {
+
+    @Test
+    public void testRestartsWithDomWDeg() {
+        for (SearchProfile.ValueOrder valueOrder : SearchProfile.ValueOrder.values()) {
+            SearchProfile profile = new SearchProfile(SearchProfile.VariableOrder.DOM_WDEG, valueOrder, true);
+            assertTrue(profile.isRestarts());
+        }
+    }
+
+    @Test
+    public void testRestartsWithStaticOrderAreRejected() {
+        for (SearchProfile.VariableOrder variableOrder : new SearchProfile.VariableOrder[]{
+                SearchProfile.VariableOrder.BF, SearchProfile.VariableOrder.DF}) {
+            for (SearchProfile.ValueOrder valueOrder : SearchProfile.ValueOrder.values()) {
+                try {
+                    new SearchProfile(variableOrder, valueOrder, true);
+                    fail();
+                } catch (IllegalArgumentException e) {
+                    // expected
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testValues() {
+        SearchProfile[] profiles = SearchProfile.values();
+        // 3 variable orders x 2 value orders without restarts, 2 value orders with restarts
+        assertEquals(8, profiles.length);
+        for (SearchProfile profile : profiles) {
+            assertTrue(!profile.isRestarts() || profile.getVariableOrder() == SearchProfile.VariableOrder.DOM_WDEG);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the {@link SetTrie}, also compared with a brute-force search over random sets.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class SetTrieTest {
+
+    private static BitSet set(int... ids) {
+        BitSet set = new BitSet();
+        for (int id : ids) {
+            set.set(id);
+        }
+        return set;
+    }
+
+    private static boolean isSubset(BitSet subset, BitSet set) {
+        BitSet rest = (BitSet) subset.clone();
+        rest.andNot(set);
+        return rest.isEmpty();
+    }
+
+    @Test
+    public void testAddAndContains() {
+        SetTrie trie = new SetTrie();
+        assertTrue(trie.add(set(1, 3)));
+        assertTrue(trie.add(set(1, 3, 5)));
+        assertFalse(trie.add(set(1, 3)));
+        assertEquals(2, trie.size());
+
+        assertTrue(trie.contains(set(1, 3)));
+        assertTrue(trie.contains(set(1, 3, 5)));
+        assertFalse(trie.contains(set(1)));
+        assertFalse(trie.contains(set(3, 5)));
+    }
+
+    @Test
+    public void testContainsSubsetOf() {
+        SetTrie trie = new SetTrie();
+        trie.add(set(2, 4));
+        trie.add(set(1, 7));
+
+        assertTrue(trie.containsSubsetOf(set(2, 4)));
+        assertTrue(trie.containsSubsetOf(set(0, 2, 3, 4)));
+        assertTrue(trie.containsSubsetOf(set(1, 5, 7)));
+        assertFalse(trie.containsSubsetOf(set(2, 7)));
+        assertFalse(trie.containsSubsetOf(set()));
+    }
+
+    @Test
+    public void testFindSubsetOf() {
+        SetTrie trie = new SetTrie();
+        trie.add(set(2, 4));
+
+        assertEquals(set(2, 4), trie.findSubsetOf(set(1, 2, 3, 4)));
+        assertNull(trie.findSubsetOf(set(1, 2, 3)));
+    }
+
+    @Test
+    public void testEmptySet() {
+        SetTrie trie = new SetTrie();
+        assertFalse(trie.containsSubsetOf(set(1)));
+
+        trie.add(set());
+        assertTrue(trie.contains(set()));
+        assertTrue(trie.containsSubsetOf(set(1)));
+    }
+
+    @Test
+    public void testClear() {
+        SetTrie trie = new SetTrie();
+        trie.add(set(1));
+        trie.clear();
+
+        assertEquals(0, trie.size());
+        assertFalse(trie.contains(set(1)));
+        assertTrue(trie.add(set(1)));
+    }
+
+    @Test
+    public void testRandomSetsAgainstBruteForce() {
+        Random random = new Random(42);
+        SetTrie trie = new SetTrie();
+        List<BitSet> sets = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            BitSet set = new BitSet();
+            for (int id = 0; id < 12; id++) {
+                if (random.nextInt(4) == 0) {
+                    set.set(id);
+                }
+            }
+            assertEquals(!sets.contains(set), trie.add(set));
+            if (!sets.contains(set)) {
+                sets.add(set);
+            }
+        }
+        assertEquals(sets.size(), trie.size());
+
+        for (int i = 0; i < 500; i++) {
+            BitSet query = new BitSet();
+            for (int id = 0; id < 12; id++) {
+                if (random.nextInt(2) == 0) {
+                    query.set(id);
+                }
+            }
+            boolean expected = false;
+            for (BitSet set : sets) {
+                expected |= isSubset(set, query);
+            }
+            assertEquals(expected, trie.containsSubsetOf(query));
+            assertEquals(sets.contains(query), trie.contains(query));
+
+            BitSet found = trie.findSubsetOf(query);
+            assertEquals(expected, found != null);
+            if (found != null) {
+                assertTrue(sets.contains(found));
+                assertTrue(isSubset(found, query));
+            }
+        }
+    }
+}
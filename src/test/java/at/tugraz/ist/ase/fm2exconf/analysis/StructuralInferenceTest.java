@@ -0,0 +1,117 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.Feature;
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import at.tugraz.ist.ase.fm2exconf.core.Relationship;
+import org.junit.Test;
+
+import static at.tugraz.ist.ase.fm2exconf.analysis.TestFeatureModels.coreDeadFeatureModel;
+import static at.tugraz.ist.ase.fm2exconf.analysis.TestFeatureModels.hasValueInAll;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the {@link StructuralInference}: the inferred values agree with the plain checks
+ * of each feature, and the {@link Backbone} which skips them stays the same.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class StructuralInferenceTest {
+
+    @Test
+    public void testInferenceAgreesWithPlainChecks() throws Exception {
+        FeatureModel fm = coreDeadFeatureModel();
+        ChocoModel model = new ChocoModel(fm, true);
+
+        StructuralInference inference = new StructuralInference(fm);
+        assertTrue(inference.infer());
+
+        for (Feature f : fm.getFeatures(FeatureModel.FEATURE_ORDER.BF)) {
+            String name = f.getName();
+            if (inference.isTrue(name)) {
+                assertTrue(name, hasValueInAll(model, name, true));
+            }
+            if (inference.isFalse(name)) {
+                assertTrue(name, hasValueInAll(model, name, false));
+            }
+        }
+
+        // the mandatory chain, the required c, the excluded b2 and d, which requires b2
+        for (String name : new String[]{"r", "a", "a1", "c"}) {
+            assertTrue(name, inference.isTrue(name));
+        }
+        assertTrue(inference.isFalse("b2"));
+        assertTrue(inference.isFalse("d"));
+        // the or group isn't decided by the implications
+        assertFalse(inference.isDecided("c1"));
+        assertFalse(inference.isDecided("e"));
+    }
+
+    @Test
+    public void testGroups() throws Exception {
+        FeatureModel fm = new FeatureModel();
+        fm.addFeatures(new String[]{"r", "a", "b", "a1", "a2", "b1", "b2"});
+        fm.addRelationship(Relationship.RelationshipType.OPTIONAL, "a", new String[]{"r"});
+        fm.addRelationship(Relationship.RelationshipType.MANDATORY, "r", new String[]{"b"});
+        fm.addRelationship(Relationship.RelationshipType.OR, "a", new String[]{"a1", "a2"});
+        fm.addRelationship(Relationship.RelationshipType.ALTERNATIVE, "b", new String[]{"b1", "b2"});
+        fm.addConstraint(Relationship.RelationshipType.EXCLUDES, "b", new String[]{"a1"});
+        fm.addConstraint(Relationship.RelationshipType.EXCLUDES, "b", new String[]{"a2"});
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "r", new String[]{"b1"});
+        ChocoModel model = new ChocoModel(fm, true);
+
+        StructuralInference inference = new StructuralInference(fm);
+        assertTrue(inference.infer());
+
+        // all children of the or group are false, so its parent is false
+        assertTrue(inference.isFalse("a"));
+        // b1 is true, so its sibling is false
+        assertTrue(inference.isFalse("b2"));
+        for (Feature f : fm.getFeatures(FeatureModel.FEATURE_ORDER.BF)) {
+            String name = f.getName();
+            assertTrue(name, inference.isDecided(name));
+            assertEquals(name, inference.isTrue(name), hasValueInAll(model, name, true));
+            assertEquals(name, inference.isFalse(name), hasValueInAll(model, name, false));
+        }
+    }
+
+    @Test
+    public void testVoidModel() throws Exception {
+        FeatureModel fm = coreDeadFeatureModel();
+        fm.addRelationship(Relationship.RelationshipType.MANDATORY, "r", new String[]{"b"});
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "b", new String[]{"b2"});
+
+        StructuralInference inference = new StructuralInference(fm);
+        assertFalse(inference.infer());
+        assertEquals(0, inference.getNumOfTrueFeatures());
+        assertEquals(0, inference.getNumOfFalseFeatures());
+    }
+
+    @Test
+    public void testBackboneWithInference() throws Exception {
+        FeatureModel fm = coreDeadFeatureModel();
+
+        Backbone plain = new Backbone(new ChocoModel(fm, true));
+        assertTrue(plain.compute());
+
+        StructuralInference inference = new StructuralInference(fm);
+        inference.infer();
+        Backbone backbone = new Backbone(new ChocoModel(fm, true));
+        backbone.setInference(inference);
+        assertTrue(backbone.compute());
+
+        for (Feature f : fm.getFeatures(FeatureModel.FEATURE_ORDER.BF)) {
+            String name = f.getName();
+            assertEquals(name, plain.isTrue(name), backbone.isTrue(name));
+            assertEquals(name, plain.isFalse(name), backbone.isFalse(name));
+        }
+        assertTrue(backbone.getNumOfSolverCalls() <= plain.getNumOfSolverCalls());
+    }
+}
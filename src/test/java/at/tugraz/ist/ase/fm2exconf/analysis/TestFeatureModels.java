@@ -0,0 +1,152 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis;
+
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModelException;
+import at.tugraz.ist.ase.fm2exconf.core.Relationship;
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Small feature models and helpers shared by the tests of the analysis.
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+final class TestFeatureModels {
+
+    private TestFeatureModels() {
+    }
+
+    /**
+     * The feature b is dead: the mandatory a excludes b, and a requires d, which excludes b.
+     * With {b = true}, the minimal conflicts are {mandatory(r, a), excludes(a, b)}
+     * and {mandatory(r, a), requires(a, d), excludes(d, b)}.
+     */
+    static FeatureModel deadFeatureModel() throws FeatureModelException {
+        FeatureModel fm = new FeatureModel();
+        fm.addFeatures(new String[]{"r", "a", "b", "c", "d"});
+        fm.addRelationship(Relationship.RelationshipType.MANDATORY, "r", new String[]{"a"});
+        fm.addRelationship(Relationship.RelationshipType.OPTIONAL, "b", new String[]{"r"});
+        fm.addRelationship(Relationship.RelationshipType.OPTIONAL, "c", new String[]{"r"});
+        fm.addRelationship(Relationship.RelationshipType.OPTIONAL, "d", new String[]{"r"});
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "a", new String[]{"d"});
+        fm.addConstraint(Relationship.RelationshipType.EXCLUDES, "a", new String[]{"b"});
+        fm.addConstraint(Relationship.RelationshipType.EXCLUDES, "d", new String[]{"b"});
+        return fm;
+    }
+
+    /**
+     * A model with core, dead and free features: the mandatory chain r, a, a1,
+     * the false optional c, which is required by a, the or group of c with the cycle
+     * of requires between c1 and c2, the alternative group of b with the dead b2,
+     * which is excluded by a, and the dead d, which requires b2.
+     */
+    static FeatureModel coreDeadFeatureModel() throws FeatureModelException {
+        FeatureModel fm = new FeatureModel();
+        fm.addFeatures(new String[]{"r", "a", "b", "c", "d", "e", "a1", "b1", "b2", "c1", "c2"});
+        fm.addRelationship(Relationship.RelationshipType.MANDATORY, "r", new String[]{"a"});
+        fm.addRelationship(Relationship.RelationshipType.OPTIONAL, "b", new String[]{"r"});
+        fm.addRelationship(Relationship.RelationshipType.OPTIONAL, "c", new String[]{"r"});
+        fm.addRelationship(Relationship.RelationshipType.OPTIONAL, "d", new String[]{"r"});
+        fm.addRelationship(Relationship.RelationshipType.OPTIONAL, "e", new String[]{"r"});
+        fm.addRelationship(Relationship.RelationshipType.MANDATORY, "a", new String[]{"a1"});
+        fm.addRelationship(Relationship.RelationshipType.ALTERNATIVE, "b", new String[]{"b1", "b2"});
+        fm.addRelationship(Relationship.RelationshipType.OR, "c", new String[]{"c1", "c2"});
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "a", new String[]{"c"});
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "c1", new String[]{"c2"});
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "c2", new String[]{"c1"});
+        fm.addConstraint(Relationship.RelationshipType.EXCLUDES, "a", new String[]{"b2"});
+        fm.addConstraint(Relationship.RelationshipType.REQUIRES, "d", new String[]{"b2"});
+        return fm;
+    }
+
+    /**
+     * A model with the alternative group of p with four children and the or group of q with three children.
+     */
+    static FeatureModel groupFeatureModel() throws FeatureModelException {
+        FeatureModel fm = new FeatureModel();
+        fm.addFeatures(new String[]{"r", "p", "q", "p1", "p2", "p3", "p4", "q1", "q2", "q3"});
+        fm.addRelationship(Relationship.RelationshipType.OPTIONAL, "p", new String[]{"r"});
+        fm.addRelationship(Relationship.RelationshipType.OPTIONAL, "q", new String[]{"r"});
+        fm.addRelationship(Relationship.RelationshipType.ALTERNATIVE, "p", new String[]{"p1", "p2", "p3", "p4"});
+        fm.addRelationship(Relationship.RelationshipType.OR, "q", new String[]{"q1", "q2", "q3"});
+        return fm;
+    }
+
+    /**
+     * Check the given constraints under an assignment of the features of a relationship,
+     * together with the background of the model, i.e. {r = true}.
+     *
+     * @param assignment - the bits of the values of the left side and the right side of the relationship
+     * @return true if the constraints are consistent under the assignment
+     */
+    static boolean isConsistent(ChocoModel model, Relationship r, List<Constraint> constraints, int assignment) {
+        model.resetCstrs();
+        model.addAssumption(model.getVarWithName(r.getLeftSide()), (assignment & 1) != 0);
+        for (int i = 0; i < r.getRightSide().size(); i++) {
+            model.addAssumption(model.getVarWithName(r.getRightSide().get(i)), (assignment & (2 << i)) != 0);
+        }
+        List<Constraint> checked = new ArrayList<>(model.getB());
+        checked.addAll(constraints);
+        boolean result = model.isConsistent(checked);
+        model.resetCstrs();
+        return result;
+    }
+
+    /**
+     * @return true if the assignment of the features of a relationship, see {@link #isConsistent(ChocoModel, Relationship, List, int)},
+     * satisfies the relationship
+     */
+    static boolean satisfies(Relationship r, int assignment) {
+        boolean left = (assignment & 1) != 0;
+        int children = Integer.bitCount(assignment >> 1);
+        switch (r.getType()) {
+            case MANDATORY:
+                return left == (children == 1);
+            case OPTIONAL:
+            case REQUIRES:
+                return !left || children == 1;
+            case EXCLUDES:
+                return !left || children == 0;
+            case ALTERNATIVE:
+                return left ? children == 1 : children == 0;
+            default: // OR
+                return left == (children > 0);
+        }
+    }
+
+    /**
+     * The plain check of a feature: the model with {f = !value} is inconsistent.
+     *
+     * @return true if the feature has the value in all configurations
+     */
+    static boolean hasValueInAll(ChocoModel model, String feature, boolean value) {
+        model.resetCstrs();
+        model.addAssumption(model.getVarWithName(feature), !value);
+        boolean result = !model.isConsistent();
+        model.resetCstrs();
+        return result;
+    }
+
+    /**
+     * @return the diagnoses as sets, so their order and the order of their constraints don't matter
+     */
+    static Set<Set<Constraint>> toSets(List<List<Constraint>> diagnoses) {
+        Set<Set<Constraint>> sets = new HashSet<>();
+        for (List<Constraint> diag : diagnoses) {
+            sets.add(new HashSet<>(diag));
+        }
+        return sets;
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis.benchmark;
+
+import at.tugraz.ist.ase.fm2exconf.analysis.*;
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import at.tugraz.ist.ase.fm2exconf.parser.Parser;
+import at.tugraz.ist.ase.fm2exconf.parser.ParserException;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.BoolVar;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+
+/**
+ * Compares {@link FastDiag}, {@link FastDiagV3} and {@link FastDiagV4} on the diagnoses
+ * of the void feature models, the dead features and the full mandatory features.
+ *
+ * For each algorithm, it reports the consistency checks, the elapsed time, the allocated memory
+ * and the CPU time of the thread per diagnosis, first with a new {@link ConsistencyChecker}, i.e. including the solver calls,
+ * then with the same checker again, whose cache answers all checks, i.e. only the set
+ * operations of the algorithm. The allocated memory is reported by the JVMs which support
+ * {@link com.sun.management.ThreadMXBean}, e.g. HotSpot and OpenJDK, otherwise it is "n/a".
+ *
+ * Usage: FastDiagBenchmark [-rounds N] [-sat] [files or directories...]
+ * The default directory is "feature models/errors".
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class FastDiagBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+    private static final boolean ALLOCATION_SUPPORTED = isAllocationSupported();
+
+    /**
+     * A diagnosis problem, i.e. the constraints C which could be diagnosed
+     * and all constraints AC of an inconsistent check.
+     */
+    static class Task {
+        List<Constraint> C;
+        List<Constraint> AC;
+
+        Task(List<Constraint> C, List<Constraint> AC) {
+            this.C = C;
+            this.AC = AC;
+        }
+    }
+
+    private interface Algorithm {
+        List<? extends Collection<Constraint>> diagnose(ChocoModel model, ConsistencyChecker checker, Task task);
+    }
+
+    // the measures of an algorithm on a model
+    private static class Measure {
+        long checks = 0;
+        long solverCalls = 0;
+        long time = 0;
+        long allocation = 0;
+        long cpuTime = 0;
+        long cachedTime = 0;
+        long cachedAllocation = 0;
+        long cachedCpuTime = 0;
+        int diagnoses = 0;
+        Set<Set<Constraint>> results;
+    }
+
+    private static final String[] NAMES = {"FastDiag", "FastDiagV3", "FastDiagV4"};
+    private static final Algorithm[] ALGORITHMS = {
+            FastDiagBenchmark::runFastDiag,
+            FastDiagBenchmark::runFastDiagV3,
+            FastDiagBenchmark::runFastDiagV4
+    };
+
+    public static void main(String[] args) {
+        int rounds = 5;
+        boolean sat = false;
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-rounds")) {
+                rounds = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-sat")) {
+                sat = true;
+            } else {
+                collectFiles(new File(args[i]), files);
+            }
+        }
+        if (files.isEmpty()) {
+            collectFiles(new File("feature models/errors"), files);
+        }
+
+        System.out.println(String.format("%-40s %-11s %6s %8s %8s %11s %11s %11s %11s %11s %11s %6s",
+                "model", "algorithm", "diags", "checks", "solver", "ms/diag", "KB/diag", "cpu/diag",
+                "ms/diag(c)", "KB/diag(c)", "cpu/diag(c)", "same"));
+
+        for (File file : files) {
+            FeatureModel fm;
+            try {
+                fm = new Parser().parse(file);
+            } catch (ParserException e) {
+                System.out.println(file.getName() + ": " + e.getMessage());
+                continue;
+            }
+
+            ChocoModel model = new ChocoModel(fm, true);
+            if (sat) {
+                model.setBackend(new SatBackend(model));
+            }
+
+            List<Task> tasks = createTasks(model);
+            if (tasks.isEmpty()) continue;
+
+            Measure[] measures = new Measure[ALGORITHMS.length];
+            for (int round = 0; round < WARMUP_ROUNDS + rounds; round++) {
+                boolean measured = round >= WARMUP_ROUNDS;
+                for (int a = 0; a < ALGORITHMS.length; a++) {
+                    Measure m = run(ALGORITHMS[a], model, tasks);
+                    if (measured) {
+                        measures[a] = add(measures[a], m);
+                    }
+                }
+            }
+
+            for (int a = 0; a < ALGORITHMS.length; a++) {
+                Measure m = measures[a];
+                double diags = Math.max(1, m.diagnoses);
+                System.out.println(String.format("%-40s %-11s %6d %8d %8d %11.3f %11s %11.3f %11.3f %11s %11.3f %6s",
+                        file.getName(), NAMES[a], m.diagnoses / rounds, m.checks / rounds, m.solverCalls / rounds,
+                        m.time / 1e6 / diags, formatKB(m.allocation, diags), m.cpuTime / 1e6 / diags,
+                        m.cachedTime / 1e6 / diags, formatKB(m.cachedAllocation, diags), m.cachedCpuTime / 1e6 / diags,
+                        m.results.equals(measures[0].results) ? "yes" : "NO"));
+            }
+        }
+    }
+
+    static void collectFiles(File file, List<File> files) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children == null) return;
+            Arrays.sort(children);
+            for (File child : children) {
+                collectFiles(child, files);
+            }
+        } else if (file.isFile()) {
+            files.add(file);
+        }
+    }
+
+    // the diagnosis problems of the void feature model, the dead and the full mandatory features
+    static List<Task> createTasks(ChocoModel model) {
+        List<Task> tasks = new ArrayList<>();
+
+        model.resetCstrs();
+        if (!model.isConsistent()) {
+            tasks.add(createTask(model));
+            return tasks;
+        }
+
+        BoolVar[] featureVars = model.getFeatureVars();
+        for (int i = 1; i < featureVars.length; i++) {
+            for (boolean value : new boolean[]{true, false}) {
+                model.addAssumption(featureVars[i], value);
+                if (!model.isConsistent()) {
+                    tasks.add(createTask(model));
+                }
+                model.resetCstrs();
+            }
+        }
+        return tasks;
+    }
+
+    private static Task createTask(ChocoModel model) {
+        List<Constraint> C = new ArrayList<>(model.getCF());
+        Collections.reverse(C);
+        List<Constraint> AC = model.getAC();
+        Collections.reverse(AC);
+        return new Task(C, AC);
+    }
+
+    private static Measure run(Algorithm algorithm, ChocoModel model, List<Task> tasks) {
+        Measure m = new Measure();
+        m.results = new HashSet<>();
+
+        // with a new checker
+        ConsistencyChecker checker = new ConsistencyChecker(model.getBackend(), Integer.MAX_VALUE);
+        long allocation = getAllocatedBytes();
+        long cpuTime = getCpuTime();
+        long time = System.nanoTime();
+        for (Task task : tasks) {
+            for (Collection<Constraint> diag : algorithm.diagnose(model, checker, task)) {
+                m.results.add(new HashSet<>(diag));
+                m.diagnoses++;
+            }
+        }
+        m.time = System.nanoTime() - time;
+        m.cpuTime = getCpuTime() - cpuTime;
+        m.allocation = getAllocatedBytes() - allocation;
+        m.checks = checker.getNumOfHits() + checker.getNumOfMisses();
+        m.solverCalls = checker.getNumOfMisses();
+
+        // with the same checker, which answers all checks from the cache
+        allocation = getAllocatedBytes();
+        cpuTime = getCpuTime();
+        time = System.nanoTime();
+        for (Task task : tasks) {
+            algorithm.diagnose(model, checker, task);
+        }
+        m.cachedTime = System.nanoTime() - time;
+        m.cachedCpuTime = getCpuTime() - cpuTime;
+        m.cachedAllocation = getAllocatedBytes() - allocation;
+        return m;
+    }
+
+    private static Measure add(Measure sum, Measure m) {
+        if (sum == null) return m;
+        sum.checks += m.checks;
+        sum.solverCalls += m.solverCalls;
+        sum.time += m.time;
+        sum.allocation += m.allocation;
+        sum.cpuTime += m.cpuTime;
+        sum.cachedTime += m.cachedTime;
+        sum.cachedAllocation += m.cachedAllocation;
+        sum.cachedCpuTime += m.cachedCpuTime;
+        sum.diagnoses += m.diagnoses;
+        return sum;
+    }
+
+    // the allocated bytes of the current thread, 0 if they are not supported by the JVM
+    static long getAllocatedBytes() {
+        if (!ALLOCATION_SUPPORTED) return 0;
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static boolean isAllocationSupported() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return false;
+
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        return sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled();
+    }
+
+    private static String formatKB(long bytes, double diags) {
+        return ALLOCATION_SUPPORTED ? String.format("%.1f", bytes / 1024.0 / diags) : "n/a";
+    }
+
+    // the CPU time of the current thread in nanoseconds, 0 if it is not supported by the JVM
+    static long getCpuTime() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean.isCurrentThreadCpuTimeSupported() ? bean.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static List<List<Constraint>> runFastDiag(ChocoModel model, ConsistencyChecker checker, Task task) {
+        List<Constraint> c = new ArrayList<>(task.C);
+        List<Constraint> ac = new ArrayList<>(task.AC);
+
+        List<List<Constraint>> allDiag = new ArrayList<>();
+        List<Constraint> diag = FastDiag.fastDiag(c, ac, checker);
+        FastDiag.calculateAllDiagnoses(diag, c, ac, checker, allDiag);
+        return allDiag;
+    }
+
+    private static List<Set<Constraint>> runFastDiagV3(ChocoModel model, ConsistencyChecker checker, Task task) {
+        Set<Constraint> C = new LinkedHashSet<>(task.C);
+        Set<Constraint> B = new LinkedHashSet<>(task.AC);
+        B.removeAll(C);
+
+        FastDiagV3 fastDiag = new FastDiagV3(model, checker);
+        Set<Constraint> diag = fastDiag.findDiagnosis(C, B);
+        return fastDiag.findAllDiagnoses(diag, C, B);
+    }
+
+    private static List<List<Constraint>> runFastDiagV4(ChocoModel model, ConsistencyChecker checker, Task task) {
+        return new FastDiagV4(checker).findAllDiagnoses(task.C, task.AC);
+    }
+}
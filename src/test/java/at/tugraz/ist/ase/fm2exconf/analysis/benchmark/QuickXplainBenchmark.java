@@ -0,0 +1,196 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis.benchmark;
+
+import at.tugraz.ist.ase.fm2exconf.analysis.*;
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import at.tugraz.ist.ase.fm2exconf.core.Relationship;
+import at.tugraz.ist.ase.fm2exconf.parser.Parser;
+import at.tugraz.ist.ase.fm2exconf.parser.ParserException;
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Compares {@link FastDiag#calculateAllDiagnoses} with the conflict-directed diagnosis search,
+ * i.e. the minimal hitting sets of the {@link QuickXplain} conflicts of the relationships,
+ * see {@link DiagnosisEnumerator#findGroupDiagnoses(List, List)}, on the diagnoses
+ * of the void feature models, the dead features and the full mandatory features.
+ *
+ * FastDiag diagnoses the clauses, the conflict-directed search the relationships.
+ * The results are compared on the minimal sets of the relationships of the FastDiag diagnoses.
+ * These are the diagnoses of the relationships only if both enumerations are complete, i.e. they
+ * find all diagnoses and are neither truncated by a bound nor stopped by the {@link CheckLimits}.
+ * The enumeration of FastDiag doesn't guarantee to find all diagnoses, so a difference in the
+ * column "same" points to an incomplete enumeration and is not an error by itself.
+ * For each algorithm, it reports the diagnoses of the relationships, the consistency checks,
+ * the solver calls and the time per task.
+ *
+ * Usage: QuickXplainBenchmark [-rounds N] [-sat] [files or directories...]
+ * The default directory is "feature models/errors".
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class QuickXplainBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+
+    private interface Algorithm {
+        List<List<Constraint>> diagnose(ChocoModel model, ConsistencyChecker checker, FastDiagBenchmark.Task task);
+    }
+
+    // the measures of an algorithm on a model
+    private static class Measure {
+        long checks = 0;
+        long solverCalls = 0;
+        long time = 0;
+        List<Set<Set<Relationship>>> results;
+    }
+
+    private static final String[] NAMES = {"FastDiag", "QuickXplain"};
+    private static final Algorithm[] ALGORITHMS = {
+            QuickXplainBenchmark::runFastDiag,
+            QuickXplainBenchmark::runQuickXplain
+    };
+
+    public static void main(String[] args) {
+        int rounds = 5;
+        boolean sat = false;
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-rounds")) {
+                rounds = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-sat")) {
+                sat = true;
+            } else {
+                FastDiagBenchmark.collectFiles(new File(args[i]), files);
+            }
+        }
+        if (files.isEmpty()) {
+            FastDiagBenchmark.collectFiles(new File("feature models/errors"), files);
+        }
+
+        System.out.println(String.format("%-40s %-11s %6s %6s %8s %8s %11s %6s",
+                "model", "algorithm", "tasks", "diags", "checks", "solver", "ms/task", "same"));
+
+        for (File file : files) {
+            FeatureModel fm;
+            try {
+                fm = new Parser().parse(file);
+            } catch (ParserException e) {
+                System.out.println(file.getName() + ": " + e.getMessage());
+                continue;
+            }
+
+            ChocoModel model = new ChocoModel(fm, true);
+            if (sat) {
+                model.setBackend(new SatBackend(model));
+            }
+
+            List<FastDiagBenchmark.Task> tasks = FastDiagBenchmark.createTasks(model);
+            if (tasks.isEmpty()) continue;
+
+            Measure[] measures = new Measure[ALGORITHMS.length];
+            for (int round = 0; round < WARMUP_ROUNDS + rounds; round++) {
+                boolean measured = round >= WARMUP_ROUNDS;
+                for (int a = 0; a < ALGORITHMS.length; a++) {
+                    Measure m = run(ALGORITHMS[a], model, tasks);
+                    if (measured) {
+                        measures[a] = add(measures[a], m);
+                    }
+                }
+            }
+
+            for (int a = 0; a < ALGORITHMS.length; a++) {
+                Measure m = measures[a];
+                int diags = 0;
+                for (Set<Set<Relationship>> diagnoses : m.results) {
+                    diags += diagnoses.size();
+                }
+                System.out.println(String.format("%-40s %-11s %6d %6d %8d %8d %11.3f %6s",
+                        file.getName(), NAMES[a], tasks.size(), diags, m.checks / rounds, m.solverCalls / rounds,
+                        m.time / 1e6 / rounds / tasks.size(),
+                        m.results.equals(measures[0].results) ? "yes" : "NO"));
+            }
+        }
+    }
+
+    private static Measure run(Algorithm algorithm, ChocoModel model, List<FastDiagBenchmark.Task> tasks) {
+        Measure m = new Measure();
+        m.results = new ArrayList<>();
+
+        ConsistencyChecker checker = new ConsistencyChecker(model.getBackend(), Integer.MAX_VALUE);
+        long time = System.nanoTime();
+        for (FastDiagBenchmark.Task task : tasks) {
+            m.results.add(toRelationshipDiagnoses(model, algorithm.diagnose(model, checker, task)));
+        }
+        m.time = System.nanoTime() - time;
+        m.checks = checker.getNumOfHits() + checker.getNumOfMisses();
+        m.solverCalls = checker.getNumOfMisses();
+        return m;
+    }
+
+    private static Measure add(Measure sum, Measure m) {
+        if (sum == null) return m;
+        sum.checks += m.checks;
+        sum.solverCalls += m.solverCalls;
+        sum.time += m.time;
+        return sum;
+    }
+
+    // the minimal sets of the relationships of the diagnoses
+    private static Set<Set<Relationship>> toRelationshipDiagnoses(ChocoModel model, List<List<Constraint>> diagnoses) {
+        List<Set<Relationship>> sets = new ArrayList<>();
+        for (List<Constraint> diag : diagnoses) {
+            Set<Relationship> set = new HashSet<>();
+            for (Constraint c : diag) {
+                set.add(model.getRelationship(c));
+            }
+            sets.add(set);
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+
+        Set<Set<Relationship>> minimal = new HashSet<>();
+        for (Set<Relationship> set : sets) {
+            boolean isMinimal = true;
+            for (Set<Relationship> m : minimal) {
+                if (set.containsAll(m)) {
+                    isMinimal = false;
+                    break;
+                }
+            }
+            if (isMinimal) {
+                minimal.add(set);
+            }
+        }
+        return minimal;
+    }
+
+    private static List<List<Constraint>> runFastDiag(ChocoModel model, ConsistencyChecker checker, FastDiagBenchmark.Task task) {
+        List<Constraint> c = new ArrayList<>(task.C);
+        List<Constraint> ac = new ArrayList<>(task.AC);
+
+        List<List<Constraint>> allDiag = new ArrayList<>();
+        List<Constraint> diag = FastDiag.fastDiag(c, ac, checker);
+        FastDiag.calculateAllDiagnoses(diag, c, ac, checker, allDiag);
+        return allDiag;
+    }
+
+    private static List<List<Constraint>> runQuickXplain(ChocoModel model, ConsistencyChecker checker, FastDiagBenchmark.Task task) {
+        // the constraints of each relationship form a group
+        Map<Relationship, List<Constraint>> groups = new LinkedHashMap<>();
+        for (Constraint c : task.C) {
+            groups.computeIfAbsent(model.getRelationship(c), k -> new ArrayList<>()).add(c);
+        }
+
+        DiagnosisEnumerator enumerator = new DiagnosisEnumerator(new FastDiagV4(checker));
+        return enumerator.findGroupDiagnoses(new ArrayList<>(groups.values()), task.AC);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Feature Model to Excel-based Configurator Support Tool
+ *
+ * Copyright (c) 2020-2023 AIG team, Institute for Software Technology, Graz University of Technology, Austria
+ *
+ * Contact: http://ase.ist.tugraz.at/ASE/
+ */
+
+package at.tugraz.ist.ase.fm2exconf.analysis.benchmark;
+
+import at.tugraz.ist.ase.fm2exconf.analysis.*;
+import at.tugraz.ist.ase.fm2exconf.core.Feature;
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModel;
+import at.tugraz.ist.ase.fm2exconf.core.FeatureModelException;
+import at.tugraz.ist.ase.fm2exconf.parser.Parser;
+import at.tugraz.ist.ase.fm2exconf.parser.ParserException;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Compares the {@link SearchProfile}s of the Choco backend on the consistency checks
+ * of each anomaly type, i.e. {fi = true} of the dead features, {fi = false} of the full mandatory
+ * features, {f = false, p = true} of the false optional features and {fi = true, fj = true}
+ * of the conditionally dead features.
+ *
+ * The models are configured by the default flags of the {@link AnalysisOperator}, i.e. by its witness
+ * pruning and its tiered checks, which could be enabled by the options. With the witness pruning,
+ * the checks of each anomaly type start with a new {@link WitnessTracker} and a check of the whole model,
+ * the checks covered by a witness are skipped, and the pairs of the conditionally dead features
+ * prefer true, as in a run of the analysis. The backbone and the structural inference are not used,
+ * since they replace the checks of the features.
+ *
+ * For each model and anomaly type, it reports the checks, the solved and the inconsistent checks and the time
+ * per check of each profile, and the fastest profile. Finally, it reports the profile with the lowest
+ * total time of each anomaly type over all models, which could be set by
+ * {@link AnalysisOperator#setSearchProfile(Feature.AnomalyType, SearchProfile)}.
+ *
+ * Usage: SearchProfileBenchmark [-rounds N] [-witnesses] [-tiered] [files or directories...]
+ * The default directory is "feature models".
+ *
+ * @author Viet-Man Le (vietman.le@ist.tugraz.at)
+ */
+public class SearchProfileBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+
+    // a check assumes the values of the features
+    private static class Check {
+        String[] features;
+        boolean[] values;
+
+        Check(String[] features, boolean[] values) {
+            this.features = features;
+            this.values = values;
+        }
+    }
+
+    public static void main(String[] args) {
+        int rounds = 5;
+        boolean witnessPruning = false;
+        boolean tieredChecks = false;
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-rounds")) {
+                rounds = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-witnesses")) {
+                witnessPruning = true;
+            } else if (args[i].equals("-tiered")) {
+                tieredChecks = true;
+            } else {
+                FastDiagBenchmark.collectFiles(new File(args[i]), files);
+            }
+        }
+        if (files.isEmpty()) {
+            FastDiagBenchmark.collectFiles(new File("feature models"), files);
+        }
+
+        SearchProfile[] profiles = SearchProfile.values();
+        // the total time of each profile for each anomaly type over all models
+        Map<Feature.AnomalyType, long[]> totals = new EnumMap<>(Feature.AnomalyType.class);
+
+        System.out.println(String.format("%-40s %-18s %-30s %7s %7s %7s %11s",
+                "model", "anomaly type", "profile", "checks", "solved", "incons", "ms/check"));
+
+        for (File file : files) {
+            FeatureModel fm;
+            Map<Feature.AnomalyType, List<Check>> checks;
+            AnalysisOperator defaults;
+            try {
+                fm = new Parser().parse(file);
+                checks = createChecks(fm);
+                defaults = new AnalysisOperator(fm, null);
+            } catch (ParserException | FeatureModelException e) {
+                System.out.println(file.getName() + ": " + e.getMessage());
+                continue;
+            }
+            boolean witnesses = witnessPruning || defaults.isWitnessPruning();
+            boolean tiered = tieredChecks || defaults.isTieredChecks();
+
+            for (Map.Entry<Feature.AnomalyType, List<Check>> entry : checks.entrySet()) {
+                List<Check> typeChecks = entry.getValue();
+                if (typeChecks.isEmpty()) continue;
+
+                // a model for each profile, so the dom/wdeg weights and the phases of the other profiles don't apply
+                ChocoModel[] models = new ChocoModel[profiles.length];
+                for (int p = 0; p < profiles.length; p++) {
+                    models[p] = new ChocoModel(fm, true);
+                    if (tiered) {
+                        models[p].setBackend(new TieredBackend(new ChocoBackend(models[p])));
+                    }
+                    models[p].setSearchProfile(profiles[p]);
+                }
+
+                long[] times = new long[profiles.length];
+                int[] solved = new int[profiles.length];
+                int[] inconsistent = new int[profiles.length];
+                for (int round = 0; round < WARMUP_ROUNDS + rounds; round++) {
+                    for (int p = 0; p < profiles.length; p++) {
+                        long time = System.nanoTime();
+                        int[] n = run(fm, models[p], entry.getKey(), typeChecks, witnesses);
+                        time = System.nanoTime() - time;
+                        if (round >= WARMUP_ROUNDS) {
+                            times[p] += time;
+                            solved[p] = n[0];
+                            inconsistent[p] = n[1];
+                        }
+                    }
+                }
+
+                int best = 0;
+                long[] total = totals.computeIfAbsent(entry.getKey(), k -> new long[profiles.length]);
+                for (int p = 0; p < profiles.length; p++) {
+                    total[p] += times[p];
+                    if (times[p] < times[best]) best = p;
+
+                    System.out.println(String.format("%-40s %-18s %-30s %7d %7d %7d %11.3f",
+                            file.getName(), entry.getKey(), profiles[p], typeChecks.size(), solved[p], inconsistent[p],
+                            times[p] / 1e6 / rounds / typeChecks.size()));
+                }
+                System.out.println(String.format("%-40s %-18s winner: %s", file.getName(), entry.getKey(), profiles[best]));
+            }
+        }
+
+        System.out.println();
+        System.out.println(String.format("%-18s %-30s %11s", "anomaly type", "winner", "total ms"));
+        for (Map.Entry<Feature.AnomalyType, long[]> entry : totals.entrySet()) {
+            long[] total = entry.getValue();
+            int best = 0;
+            for (int p = 1; p < profiles.length; p++) {
+                if (total[p] < total[best]) best = p;
+            }
+            System.out.println(String.format("%-18s %-30s %11.3f",
+                    entry.getKey(), profiles[best], total[best] / 1e6 / rounds));
+        }
+    }
+
+    // the checks of each anomaly type, as in the AnalysisOperator
+    private static Map<Feature.AnomalyType, List<Check>> createChecks(FeatureModel fm) throws FeatureModelException {
+        Map<Feature.AnomalyType, List<Check>> checks = new EnumMap<>(Feature.AnomalyType.class);
+        for (Feature.AnomalyType type : Feature.AnomalyType.values()) {
+            checks.put(type, new ArrayList<>());
+        }
+
+        for (int i = 1; i < fm.getNumOfFeatures(); i++) {
+            Feature feature = fm.getFeature(i);
+            String f = feature.getName();
+
+            checks.get(Feature.AnomalyType.DEAD).add(new Check(new String[]{f}, new boolean[]{true}));
+            checks.get(Feature.AnomalyType.FULLMANDATORY).add(new Check(new String[]{f}, new boolean[]{false}));
+
+            if (!fm.isOptionalFeature(feature)) continue;
+
+            for (Feature parent : fm.getMandatoryParents(feature)) {
+                if (fm.isMandatoryFeature(parent)) {
+                    checks.get(Feature.AnomalyType.FALSEOPTIONAL).add(new Check(new String[]{f, parent.getName()},
+                            new boolean[]{false, true}));
+                }
+            }
+            for (int j = 1; j < fm.getNumOfFeatures(); j++) {
+                if (j == i) continue;
+                checks.get(Feature.AnomalyType.CONDITIONALLYDEAD).add(new Check(new String[]{f, fm.getFeature(j).getName()},
+                        new boolean[]{true, true}));
+            }
+        }
+        return checks;
+    }
+
+    // return the number of the solved checks and of the inconsistent checks
+    private static int[] run(FeatureModel fm, ChocoModel model, Feature.AnomalyType type,
+                             List<Check> checks, boolean witnesses) {
+        WitnessTracker tracker = null;
+        if (witnesses) {
+            tracker = new WitnessTracker(fm);
+            model.setWitnessTracker(tracker);
+            // the first witness of the consistency check of the analysis
+            model.isConsistent();
+            tracker.setPreferTrue(type == Feature.AnomalyType.CONDITIONALLYDEAD);
+        }
+
+        int solved = 0;
+        int inconsistent = 0;
+        for (Check check : checks) {
+            if (tracker != null && isCovered(tracker, type, check)) continue;
+
+            solved++;
+            for (int i = 0; i < check.features.length; i++) {
+                model.addAssumption(model.getVarWithName(check.features[i]), check.values[i]);
+            }
+            if (!model.isConsistent()) {
+                inconsistent++;
+            }
+            model.resetCstrs();
+        }
+        return new int[]{solved, inconsistent};
+    }
+
+    // the checks which are skipped by the witness pruning of the AnalysisOperator
+    private static boolean isCovered(WitnessTracker tracker, Feature.AnomalyType type, Check check) {
+        switch (type) {
+            case DEAD:
+                return tracker.isSeenTrue(check.features[0]);
+            case FULLMANDATORY:
+                return tracker.isSeenFalse(check.features[0]);
+            case CONDITIONALLYDEAD:
+                return tracker.isCoveredPair(check.features[0], check.features[1]);
+            default:
+                return false;
+        }
+    }
+}